@@ -43,6 +43,16 @@ android {
     composeOptions {
         kotlinCompilerExtensionVersion = "1.5.3"
     }
+    testOptions {
+        // 数据层会调用 android.util.Log，JVM 单元测试中返回默认值即可
+        unitTests.isReturnDefaultValues = true
+        // 耗时基准（*BenchmarkTest）只在 -Pbenchmark 时运行
+        unitTests.all { test ->
+            if (!project.hasProperty("benchmark")) {
+                test.exclude("**/*BenchmarkTest.class")
+            }
+        }
+    }
     packaging {
         resources {
             excludes += "/META-INF/{AL2.0,LGPL2.1}"
@@ -75,13 +85,19 @@ dependencies {
     // Room Database
     implementation("androidx.room:room-runtime:2.6.1")
     implementation("androidx.room:room-ktx:2.6.1")
+    implementation("androidx.room:room-paging:2.6.1")
     ksp("androidx.room:room-compiler:2.6.1")
     
+    // Paging
+    implementation("androidx.paging:paging-runtime-ktx:3.2.1")
+    implementation("androidx.paging:paging-compose:3.2.1")
+    
     // Coil for image loading
     implementation("io.coil-kt:coil-compose:2.5.0")
     
     // ViewModel Compose
     implementation("androidx.lifecycle:lifecycle-viewmodel-compose:2.6.2")
+    implementation("androidx.lifecycle:lifecycle-runtime-compose:2.6.2")
     
     // Networking
     implementation("com.squareup.okhttp3:okhttp:4.12.0")
@@ -95,6 +111,9 @@ dependencies {
     
     // Testing
     testImplementation("junit:junit:4.13.2")
+    testImplementation("org.jetbrains.kotlinx:kotlinx-coroutines-test:1.7.3")
+    // 在 JVM 上执行智能歌单编译出的 SQL
+    testImplementation("org.xerial:sqlite-jdbc:3.43.2.0")
     androidTestImplementation("androidx.test.ext:junit:1.1.5")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.5.1")
     androidTestImplementation(platform("androidx.compose:compose-bom:2023.10.01"))
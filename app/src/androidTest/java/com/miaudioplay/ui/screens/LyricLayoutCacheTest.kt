@@ -0,0 +1,115 @@
+package com.miaudioplay.ui.screens
+
+import androidx.compose.foundation.layout.Spacer
+import androidx.compose.foundation.layout.fillMaxSize
+import androidx.compose.foundation.layout.fillMaxWidth
+import androidx.compose.foundation.layout.height
+import androidx.compose.foundation.lazy.LazyColumn
+import androidx.compose.foundation.lazy.itemsIndexed
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableIntStateOf
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.graphics.graphicsLayer
+import androidx.compose.ui.platform.LocalDensity
+import androidx.compose.ui.platform.testTag
+import androidx.compose.ui.test.junit4.createComposeRule
+import androidx.compose.ui.test.onNodeWithTag
+import androidx.compose.ui.test.performScrollToIndex
+import androidx.compose.ui.text.TextStyle
+import androidx.compose.ui.text.rememberTextMeasurer
+import androidx.compose.ui.unit.sp
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.miaudioplay.data.LrcParser
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * 滚动、切换当前行与调整偏移时，每行歌词只测量一次
+ */
+@RunWith(AndroidJUnit4::class)
+class LyricLayoutCacheTest {
+
+    @get:Rule
+    val composeRule = createComposeRule()
+
+    @Test
+    fun scrollingAndOffsetChangesMeasureEachLineOnce() {
+        val lyrics = mutableStateOf(
+            LrcParser.parse(
+                buildString {
+                    for (i in 0 until LINES) {
+                        append('[').append(LrcParser.formatTimestamp(i * 1_000L)).append("]line ").append(i).append('\n')
+                    }
+                }
+            )
+        )
+        val currentIndex = mutableIntStateOf(0)
+        var measureCalls = 0
+        val composedLines = HashSet<Int>()
+
+        composeRule.setContent {
+            // 与 NowPlayingScreen 相同：通过缓存取得布局，当前行以 lambda 传入
+            val textMeasurer = rememberTextMeasurer()
+            val currentLyricIndex = { currentIndex.intValue }
+            val lines = lyrics.value
+            val layoutCache = rememberLyricLayoutCache(
+                lyrics = lines,
+                lineWidthPx = LINE_WIDTH_PX,
+                lineStyle = TextStyle(fontSize = 18.sp),
+                translationStyle = TextStyle(fontSize = 14.sp)
+            ) { text, style, constraints ->
+                measureCalls++
+                textMeasurer.measure(text = text, style = style, constraints = constraints)
+            }
+            val density = LocalDensity.current
+
+            LazyColumn(modifier = Modifier.fillMaxSize().testTag(LIST_TAG)) {
+                itemsIndexed(lines) { index, lyric ->
+                    val isCurrentLine by rememberIsCurrentLine(index, currentLyricIndex)
+                    val layout = layoutCache.line(index, lyric.text)
+                    composedLines += index
+                    Spacer(
+                        modifier = Modifier
+                            .fillMaxWidth()
+                            .height(with(density) { layout.size.height.toDp() })
+                            .graphicsLayer { alpha = if (isCurrentLine) 1f else 0.6f }
+                    )
+                }
+            }
+        }
+        composeRule.waitForIdle()
+        val initialCalls = measureCalls
+        assertTrue(initialCalls > 0)
+        assertEquals(composedLines.size, initialCalls)
+
+        // 逐段滚到底再滚回顶部，每一步同时推进当前行
+        val steps = (0 until LINES step SCROLL_STEP) + (LINES - 1 downTo 0 step SCROLL_STEP)
+        for (index in steps) {
+            composeRule.onNodeWithTag(LIST_TAG).performScrollToIndex(index)
+            composeRule.runOnIdle { currentIndex.intValue = index }
+            composeRule.waitForIdle()
+        }
+        assertEquals(LINES, composedLines.size)
+        assertEquals(LINES, measureCalls)
+
+        // 调整偏移只平移时间戳，已测量的布局继续使用
+        for (offset in listOf(500L, 1_000L, -500L)) {
+            composeRule.runOnIdle { lyrics.value = lyrics.value.withUserOffset(offset) }
+            composeRule.waitForIdle()
+        }
+        composeRule.onNodeWithTag(LIST_TAG).performScrollToIndex(LINES / 2)
+        composeRule.waitForIdle()
+        assertEquals(LINES, measureCalls)
+    }
+
+    private companion object {
+        const val LINES = 200
+        const val SCROLL_STEP = 5
+        const val LINE_WIDTH_PX = 600
+        const val LIST_TAG = "lyrics"
+    }
+}
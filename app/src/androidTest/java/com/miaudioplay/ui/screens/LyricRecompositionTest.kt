@@ -0,0 +1,66 @@
+package com.miaudioplay.ui.screens
+
+import androidx.compose.foundation.layout.fillMaxSize
+import androidx.compose.foundation.lazy.LazyColumn
+import androidx.compose.foundation.lazy.items
+import androidx.compose.material3.Text
+import androidx.compose.runtime.SideEffect
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableIntStateOf
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.test.junit4.createComposeRule
+import androidx.compose.ui.test.onNodeWithText
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Assert.assertEquals
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * 当前歌词行前进时，只有失去和获得高亮的两行重组
+ */
+@RunWith(AndroidJUnit4::class)
+class LyricRecompositionTest {
+
+    @get:Rule
+    val composeRule = createComposeRule()
+
+    @Test
+    fun advancingCurrentLineRecomposesOnlyTwoRows() {
+        val currentIndex = mutableIntStateOf(0)
+        val recompositions = IntArray(LINES)
+
+        composeRule.setContent {
+            // 与 NowPlayingScreen 相同：通过 lambda 传入当前行，外层不读取其值
+            val currentLyricIndex = { currentIndex.intValue }
+            LazyColumn(modifier = Modifier.fillMaxSize()) {
+                items(LINES) { index ->
+                    val isCurrentLine by rememberIsCurrentLine(index, currentLyricIndex)
+                    SideEffect { recompositions[index]++ }
+                    Text(if (isCurrentLine) "current $index" else "line $index")
+                }
+            }
+        }
+        composeRule.waitForIdle()
+        composeRule.onNodeWithText("current 0").assertExists()
+        val initial = recompositions.copyOf()
+
+        for (next in 1..3) {
+            composeRule.runOnIdle { currentIndex.intValue = next }
+            composeRule.waitForIdle()
+            composeRule.onNodeWithText("current $next").assertExists()
+        }
+
+        val changed = recompositions.indices.filter { recompositions[it] != initial[it] }
+        // 0..3 每行恰好失去或获得高亮各一次
+        assertEquals(listOf(0, 1, 2, 3), changed)
+        assertEquals(1, recompositions[0] - initial[0])
+        assertEquals(2, recompositions[1] - initial[1])
+        assertEquals(2, recompositions[2] - initial[2])
+        assertEquals(1, recompositions[3] - initial[3])
+    }
+
+    private companion object {
+        const val LINES = 30
+    }
+}
@@ -15,7 +15,9 @@ import androidx.compose.material3.*
 import androidx.compose.runtime.*
 import androidx.compose.ui.Modifier
 import androidx.core.content.ContextCompat
+import androidx.lifecycle.compose.collectAsStateWithLifecycle
 import androidx.lifecycle.viewmodel.compose.viewModel
+import androidx.paging.compose.collectAsLazyPagingItems
 import com.miaudioplay.ui.components.MiniPlayer
 import com.miaudioplay.ui.screens.NowPlayingScreen
 import com.miaudioplay.ui.screens.PlaylistsScreen
@@ -102,22 +104,16 @@ fun MainScreen(viewModel: MusicViewModel) {
     var showNowPlaying by remember { mutableStateOf(false) }
     var selectedPlaylist by remember { mutableStateOf<Playlist?>(null) }
     
-    val songs by viewModel.songs.collectAsState()
     val filteredSongs by viewModel.filteredSongs.collectAsState()
     val searchQuery by viewModel.searchQuery.collectAsState()
     val isLoading by viewModel.isLoading.collectAsState()
     val currentSong by viewModel.currentSong.collectAsState()
-    val isPlaying by viewModel.isPlaying.collectAsState()
-    val currentPosition by viewModel.currentPosition.collectAsState()
-    val duration by viewModel.duration.collectAsState()
-    val shuffleMode by viewModel.shuffleMode.collectAsState()
-    val repeatMode by viewModel.repeatMode.collectAsState()
-    val lyrics by viewModel.lyrics.collectAsState()
-    val currentLyricIndex by viewModel.currentLyricIndex.collectAsState()
-    val lyricsLoading by viewModel.lyricsLoading.collectAsState()
-    val lyricsSource by viewModel.lyricsSource.collectAsState()
     val playlists by viewModel.playlists.collectAsState(initial = emptyList())
-    val playlistSongs by viewModel.playlistSongs.collectAsState()
+    val playlistSummaries by viewModel.playlistSummaries.collectAsState(initial = emptyList())
+    val pagedSongs = viewModel.pagedSongs.collectAsLazyPagingItems()
+    val songCount by viewModel.songCount.collectAsStateWithLifecycle()
+    val importProgress by viewModel.importProgress.collectAsStateWithLifecycle()
+    val transferMessage by viewModel.transferMessage.collectAsStateWithLifecycle()
     
     Box(modifier = Modifier.fillMaxSize()) {
         // Main content with bottom navigation
@@ -130,6 +126,8 @@ fun MainScreen(viewModel: MusicViewModel) {
                         enter = slideInVertically(initialOffsetY = { it }),
                         exit = slideOutVertically(targetOffsetY = { it })
                     ) {
+                        // 播放状态只在迷你播放器内读取，切换播放/暂停不会重组整个页面
+                        val isPlaying by viewModel.isPlaying.collectAsStateWithLifecycle()
                         MiniPlayer(
                             currentSong = currentSong,
                             isPlaying = isPlaying,
@@ -165,6 +163,8 @@ fun MainScreen(viewModel: MusicViewModel) {
                 when (selectedTab) {
                     0 -> SongsScreen(
                         songs = filteredSongs,
+                        pagedSongs = pagedSongs,
+                        songCount = songCount,
                         currentSong = currentSong,
                         isLoading = isLoading,
                         playlists = playlists,
@@ -173,17 +173,26 @@ fun MainScreen(viewModel: MusicViewModel) {
                         onSongClick = { song -> viewModel.playSong(song, filteredSongs) },
                         onAddToPlaylist = { song, playlist ->
                             viewModel.addSongToPlaylist(playlist.id, song)
-                        }
+                        },
+                        onAddSongsToPlaylist = { songIds, playlist ->
+                            viewModel.addSongsToPlaylist(playlist.id, songIds)
+                        },
+                        onLocateSong = { song -> viewModel.getSongPosition(song) }
                     )
                     1 -> PlaylistsScreen(
-                        playlists = playlists,
+                        playlists = playlistSummaries,
                         onPlaylistClick = { playlist -> 
                             selectedPlaylist = playlist
                             viewModel.loadPlaylistSongs(playlist.id)
                         },
                         onCreatePlaylist = { name -> viewModel.createPlaylist(name) },
                         onDeletePlaylist = { id -> viewModel.deletePlaylist(id) },
-                        onPlayPlaylist = { id -> viewModel.playPlaylist(id) }
+                        onPlayPlaylist = { id -> viewModel.playPlaylist(id) },
+                        importProgress = importProgress,
+                        transferMessage = transferMessage,
+                        onImportPlaylist = { uri -> viewModel.importPlaylist(uri) },
+                        onExportPlaylist = { playlist, uri -> viewModel.exportPlaylist(playlist.id, uri) },
+                        onTransferMessageShown = { viewModel.clearTransferMessage() }
                     )
                 }
             }
@@ -197,14 +206,27 @@ fun MainScreen(viewModel: MusicViewModel) {
             exit = slideOutHorizontally(targetOffsetX = { it })
         ) {
             if (currentPlaylist != null) {
+                // 只在详情页可见时收集，离开后歌单的数据库观察随之停止
+                val playlistSongs by viewModel.playlistSongs.collectAsStateWithLifecycle()
+                val playlistOrphans by viewModel.playlistOrphans.collectAsStateWithLifecycle()
                 PlaylistDetailScreen(
                     playlist = currentPlaylist,
                     songs = playlistSongs,
                     currentSong = currentSong,
-                    onBackClick = { selectedPlaylist = null },
+                    onBackClick = {
+                        selectedPlaylist = null
+                        viewModel.closePlaylist()
+                    },
                     onSongClick = { song -> viewModel.playSong(song, playlistSongs) },
                     onPlayAllClick = { viewModel.playPlaylist(currentPlaylist.id) },
-                    onRemoveFromPlaylist = { songId: Long -> viewModel.removeSongFromPlaylist(currentPlaylist.id, songId) }
+                    onRemoveFromPlaylist = { songId: Long -> viewModel.removeSongFromPlaylist(currentPlaylist.id, songId) },
+                    playlists = playlists,
+                    onAddSongsToPlaylist = { songIds, playlist -> viewModel.addSongsToPlaylist(playlist.id, songIds) },
+                    onRemoveSongs = { songIds -> viewModel.removeSongsFromPlaylist(currentPlaylist.id, songIds) },
+                    onMoveSong = { song, up -> viewModel.movePlaylistSong(currentPlaylist.id, song, up) },
+                    orphanCount = playlistOrphans.size,
+                    onRepairOrphans = { viewModel.repairPlaylist() },
+                    onRemoveOrphans = { viewModel.removePlaylistOrphans() }
                 )
             }
         }
@@ -215,25 +237,57 @@ fun MainScreen(viewModel: MusicViewModel) {
             enter = slideInVertically(initialOffsetY = { it }),
             exit = slideOutVertically(targetOffsetY = { it })
         ) {
-            NowPlayingScreen(
-                currentSong = currentSong,
-                isPlaying = isPlaying,
-                shuffleMode = shuffleMode,
-                repeatMode = repeatMode,
-                currentPosition = currentPosition,
-                duration = duration,
-                lyrics = lyrics,
-                currentLyricIndex = currentLyricIndex,
-                lyricsLoading = lyricsLoading,
-                lyricsSource = lyricsSource,
-                onPlayPauseClick = { viewModel.togglePlayPause() },
-                onPreviousClick = { viewModel.seekToPrevious() },
-                onNextClick = { viewModel.seekToNext() },
-                onShuffleClick = { viewModel.toggleShuffle() },
-                onRepeatClick = { viewModel.toggleRepeatMode() },
-                onSeek = { position -> viewModel.seekTo(position) },
+            NowPlayingRoute(
+                viewModel = viewModel,
                 onBackClick = { showNowPlaying = false }
             )
         }
     }
 }
+
+/**
+ * 播放页的状态只在播放页可见时收集，播放进度与当前歌词行以延迟读取的方式
+ * 传入，变化时只影响实际绘制它们的组件，不会重组 MainScreen 与歌曲列表。
+ */
+@Composable
+private fun NowPlayingRoute(
+    viewModel: MusicViewModel,
+    onBackClick: () -> Unit
+) {
+    val currentSong by viewModel.currentSong.collectAsStateWithLifecycle()
+    val isPlaying by viewModel.isPlaying.collectAsStateWithLifecycle()
+    val duration by viewModel.duration.collectAsStateWithLifecycle()
+    val shuffleMode by viewModel.shuffleMode.collectAsStateWithLifecycle()
+    val repeatMode by viewModel.repeatMode.collectAsStateWithLifecycle()
+    val lyrics by viewModel.lyrics.collectAsStateWithLifecycle()
+    val currentLyricIndex = viewModel.currentLyricIndex.collectAsStateWithLifecycle()
+    val lyricsLoading by viewModel.lyricsLoading.collectAsStateWithLifecycle()
+    val lyricsSource by viewModel.lyricsSource.collectAsStateWithLifecycle()
+    val lyricsOffset by viewModel.lyricsOffset.collectAsStateWithLifecycle()
+    val showTranslation by viewModel.showTranslation.collectAsStateWithLifecycle()
+    
+    NowPlayingScreen(
+        currentSong = currentSong,
+        isPlaying = isPlaying,
+        shuffleMode = shuffleMode,
+        repeatMode = repeatMode,
+        positionTicker = viewModel.positionTicker,
+        duration = duration,
+        lyrics = lyrics,
+        currentLyricIndex = { currentLyricIndex.value },
+        lyricsLoading = lyricsLoading,
+        lyricsSource = lyricsSource,
+        lyricsOffset = lyricsOffset,
+        onLyricsOffsetChange = { delta -> viewModel.adjustLyricsOffset(delta) },
+        onLyricsOffsetReset = { viewModel.resetLyricsOffset() },
+        showTranslation = showTranslation,
+        onToggleTranslation = { viewModel.toggleTranslation() },
+        onPlayPauseClick = { viewModel.togglePlayPause() },
+        onPreviousClick = { viewModel.seekToPrevious() },
+        onNextClick = { viewModel.seekToNext() },
+        onShuffleClick = { viewModel.toggleShuffle() },
+        onRepeatClick = { viewModel.toggleRepeatMode() },
+        onSeek = { position -> viewModel.seekTo(position) },
+        onBackClick = onBackClick
+    )
+}
@@ -0,0 +1,341 @@
+package com.miaudioplay.data
+
+import android.util.Log
+import com.miaudioplay.data.models.LyricsDocument
+import com.miaudioplay.data.models.LyricsSource
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.charset.Charset
+
+/**
+ * 从音频文件标签中读取内嵌歌词
+ *
+ * 支持：
+ * - ID3v2.2/2.3/2.4 的 USLT（普通歌词）与 SYLT（同步歌词）帧
+ * - FLAC VORBIS_COMMENT 中的 LYRICS / UNSYNCEDLYRICS 字段
+ *
+ * 只读取标签头部区域：按帧/块头部逐个跳过无关数据（如封面图片），
+ * 仅把歌词帧本身读入内存，且单帧大小受限。
+ */
+object EmbeddedLyricsReader {
+    private const val TAG = "EmbeddedLyricsReader"
+
+    // 单个歌词帧/注释的最大读取字节数
+    private const val MAX_FRAME_BYTES = 512 * 1024
+
+    // SYLT 时间戳格式：2 = 毫秒
+    private const val SYLT_FORMAT_MILLIS = 2
+
+    private val VORBIS_LYRICS_KEYS = listOf("LYRICS", "UNSYNCEDLYRICS")
+
+    /**
+     * 读取内嵌歌词；没有歌词或格式不支持时返回null
+     */
+    fun readLyrics(audioPath: String): LyricsDocument? {
+        val text = readLyricsText(audioPath) ?: return null
+        return LrcParser.parseDocument(text, LyricsSource.EMBEDDED)
+    }
+
+    /**
+     * 读取歌词原文：SYLT 转换为LRC，USLT/Vorbis 注释原样返回（可能是LRC或纯文本）
+     */
+    private fun readLyricsText(audioPath: String): String? {
+        val file = File(audioPath)
+        if (!file.canRead()) return null
+
+        return try {
+            RandomAccessFile(file, "r").use { raf ->
+                val header = ByteArray(10)
+                if (raf.length() < header.size) return null
+                raf.readFully(header)
+
+                var flacStart = 0L
+                if (isId3Header(header)) {
+                    val tagSize = syncSafeInt(header, 6)
+                    readId3Lyrics(raf, header, tagSize)?.let { return it }
+                    // 部分FLAC文件前面带有ID3v2标签
+                    flacStart = 10L + tagSize + if (header[5].toInt() and 0x10 != 0) 10 else 0
+                }
+
+                readFlacLyrics(raf, flacStart)
+            }
+        } catch (e: Exception) {
+            Log.w(TAG, "Failed to read embedded lyrics: $audioPath", e)
+            null
+        }
+    }
+
+    private fun isId3Header(header: ByteArray): Boolean {
+        return header[0] == 'I'.code.toByte() &&
+            header[1] == 'D'.code.toByte() &&
+            header[2] == '3'.code.toByte()
+    }
+
+    /**
+     * 遍历ID3v2帧，SYLT优先于USLT
+     */
+    private fun readId3Lyrics(raf: RandomAccessFile, header: ByteArray, tagSize: Int): String? {
+        val majorVersion = header[3].toInt()
+        val flags = header[5].toInt()
+        if (majorVersion !in 2..4) return null
+
+        // 整体去同步化的旧标签需要先还原才能解析帧，较少见，直接跳过
+        if (flags and 0x80 != 0 && majorVersion < 4) return null
+
+        val tagEnd = 10L + tagSize
+        var pos = 10L
+
+        // 跳过扩展头
+        if (flags and 0x40 != 0 && majorVersion >= 3) {
+            val ext = ByteArray(4)
+            raf.seek(pos)
+            raf.readFully(ext)
+            val extSize = if (majorVersion == 4) syncSafeInt(ext, 0) else bigEndianInt(ext, 0) + 4
+            pos += extSize
+        }
+
+        val idLength = if (majorVersion == 2) 3 else 4
+        val frameHeaderSize = if (majorVersion == 2) 6 else 10
+        val frameHeader = ByteArray(frameHeaderSize)
+        var unsynced: String? = null
+
+        while (pos + frameHeaderSize <= tagEnd) {
+            raf.seek(pos)
+            raf.readFully(frameHeader)
+            if (frameHeader[0].toInt() == 0) break // 填充区
+
+            val frameId = String(frameHeader, 0, idLength, Charsets.ISO_8859_1)
+            val frameSize = when (majorVersion) {
+                2 -> ((frameHeader[3].toInt() and 0xFF) shl 16) or
+                    ((frameHeader[4].toInt() and 0xFF) shl 8) or
+                    (frameHeader[5].toInt() and 0xFF)
+                3 -> bigEndianInt(frameHeader, 4)
+                else -> syncSafeInt(frameHeader, 4)
+            }
+            if (frameSize <= 0 || pos + frameHeaderSize + frameSize > tagEnd) break
+
+            val bodyStart = pos + frameHeaderSize
+            pos = bodyStart + frameSize
+
+            val isSylt = frameId == "SYLT" || frameId == "SLT"
+            val isUslt = frameId == "USLT" || frameId == "ULT"
+            if ((!isSylt && !isUslt) || frameSize > MAX_FRAME_BYTES) continue
+
+            // 帧格式标志：压缩/加密的帧无法直接解析；分组标识、数据长度等附加字节位于帧内容之前
+            val formatFlags = if (majorVersion >= 3) frameHeader[9].toInt() else 0
+            var extraBytes = 0
+            var unsynchronised = false
+            when (majorVersion) {
+                3 -> {
+                    if (formatFlags and 0xC0 != 0) continue
+                    if (formatFlags and 0x20 != 0) extraBytes += 1 // 分组标识
+                }
+                4 -> {
+                    if (formatFlags and 0x0C != 0) continue
+                    if (formatFlags and 0x40 != 0) extraBytes += 1 // 分组标识
+                    if (formatFlags and 0x01 != 0) extraBytes += 4 // 数据长度指示
+                    // 2.4 的标签级去同步化标志表示所有帧都经过去同步化
+                    unsynchronised = formatFlags and 0x02 != 0 || flags and 0x80 != 0
+                }
+            }
+            if (extraBytes >= frameSize) continue
+
+            val raw = ByteArray(frameSize - extraBytes)
+            raf.seek(bodyStart + extraBytes)
+            raf.readFully(raw)
+            val body = if (unsynchronised) resynchronise(raw) else raw
+
+            if (isSylt) {
+                parseSylt(body)?.let { return it }
+            } else if (unsynced == null) {
+                unsynced = parseUslt(body)
+            }
+        }
+
+        return unsynced
+    }
+
+    /**
+     * USLT: 编码(1) 语言(3) 描述(以编码对应的结束符结尾) 歌词文本
+     */
+    private fun parseUslt(body: ByteArray): String? {
+        if (body.size < 5) return null
+        val encoding = body[0].toInt()
+        val descriptorEnd = findTerminator(body, 4, encoding)
+        if (descriptorEnd < 0) return null
+
+        val textStart = descriptorEnd + terminatorLength(encoding)
+        val text = decode(body, textStart, body.size, encoding).trim { it <= ' ' || it == '\u0000' }
+        return text.takeIf { it.isNotBlank() }
+    }
+
+    /**
+     * SYLT: 编码(1) 语言(3) 时间戳格式(1) 内容类型(1) 描述 ，之后为 [文本 + 4字节时间戳] 的重复序列
+     */
+    private fun parseSylt(body: ByteArray): String? {
+        if (body.size < 7) return null
+        val encoding = body[0].toInt()
+        val timestampFormat = body[4].toInt()
+        if (timestampFormat != SYLT_FORMAT_MILLIS) return null
+
+        val descriptorEnd = findTerminator(body, 6, encoding)
+        if (descriptorEnd < 0) return null
+
+        val termLength = terminatorLength(encoding)
+        val lrc = StringBuilder()
+        var pos = descriptorEnd + termLength
+
+        while (pos < body.size) {
+            val textEnd = findTerminator(body, pos, encoding)
+            if (textEnd < 0 || textEnd + termLength + 4 > body.size) break
+
+            val text = decode(body, pos, textEnd, encoding).trim()
+            val timestamp = bigEndianInt(body, textEnd + termLength).toLong() and 0xFFFFFFFFL
+            pos = textEnd + termLength + 4
+
+            if (text.isNotEmpty()) {
+                lrc.append('[').append(LrcParser.formatTimestamp(timestamp)).append(']')
+                lrc.append(text).append('\n')
+            }
+        }
+
+        return lrc.takeIf { it.isNotEmpty() }?.toString()
+    }
+
+    /**
+     * 遍历FLAC元数据块，只读取 VORBIS_COMMENT 块
+     */
+    private fun readFlacLyrics(raf: RandomAccessFile, start: Long): String? {
+        val fileLength = raf.length()
+        val magic = ByteArray(4)
+        if (start + magic.size > fileLength) return null
+        raf.seek(start)
+        raf.readFully(magic)
+        if (String(magic, Charsets.ISO_8859_1) != "fLaC") return null
+
+        val blockHeader = ByteArray(4)
+        var pos = start + 4
+
+        while (pos + 4 <= fileLength) {
+            raf.seek(pos)
+            raf.readFully(blockHeader)
+            val isLast = blockHeader[0].toInt() and 0x80 != 0
+            val blockType = blockHeader[0].toInt() and 0x7F
+            val blockSize = ((blockHeader[1].toInt() and 0xFF) shl 16) or
+                ((blockHeader[2].toInt() and 0xFF) shl 8) or
+                (blockHeader[3].toInt() and 0xFF)
+            pos += 4
+
+            if (blockType == 4) {
+                return readVorbisComments(raf, pos, blockSize)
+            }
+            if (isLast) break
+            pos += blockSize
+        }
+
+        return null
+    }
+
+    private fun readVorbisComments(raf: RandomAccessFile, start: Long, size: Int): String? {
+        val end = start + size
+        val lengthBytes = ByteArray(4)
+        raf.seek(start)
+
+        raf.readFully(lengthBytes)
+        val vendorLength = littleEndianInt(lengthBytes).toLong() and 0xFFFFFFFFL
+        raf.seek(raf.filePointer + vendorLength)
+
+        raf.readFully(lengthBytes)
+        val count = littleEndianInt(lengthBytes)
+
+        for (i in 0 until count) {
+            if (raf.filePointer + 4 > end) break
+            raf.readFully(lengthBytes)
+            val length = littleEndianInt(lengthBytes)
+            if (length < 0 || raf.filePointer + length > end) break
+
+            // 只需判断字段名，先读取名字部分
+            val keyProbe = ByteArray(minOf(length, 16))
+            val commentStart = raf.filePointer
+            raf.readFully(keyProbe)
+            val separator = keyProbe.indexOf('='.code.toByte())
+            val key = if (separator > 0) String(keyProbe, 0, separator, Charsets.US_ASCII) else ""
+
+            if (VORBIS_LYRICS_KEYS.any { it.equals(key, ignoreCase = true) } && length <= MAX_FRAME_BYTES) {
+                val comment = ByteArray(length)
+                raf.seek(commentStart)
+                raf.readFully(comment)
+                val text = String(comment, separator + 1, length - separator - 1, Charsets.UTF_8).trim()
+                if (text.isNotBlank()) return text
+            }
+
+            raf.seek(commentStart + length)
+        }
+
+        return null
+    }
+
+    /**
+     * 还原去同步化：去掉插入在 0xFF 之后的 0x00
+     */
+    private fun resynchronise(data: ByteArray): ByteArray {
+        val out = ByteArray(data.size)
+        var length = 0
+        var i = 0
+        while (i < data.size) {
+            val b = data[i]
+            out[length++] = b
+            i += if (b == 0xFF.toByte() && i + 1 < data.size && data[i + 1].toInt() == 0) 2 else 1
+        }
+        return if (length == data.size) data else out.copyOf(length)
+    }
+
+    private fun terminatorLength(encoding: Int): Int = if (encoding == 1 || encoding == 2) 2 else 1
+
+    private fun findTerminator(data: ByteArray, from: Int, encoding: Int): Int {
+        if (terminatorLength(encoding) == 1) {
+            for (i in from until data.size) {
+                if (data[i].toInt() == 0) return i
+            }
+        } else {
+            var i = from
+            while (i + 1 < data.size) {
+                if (data[i].toInt() == 0 && data[i + 1].toInt() == 0) return i
+                i += 2
+            }
+        }
+        return -1
+    }
+
+    private fun decode(data: ByteArray, start: Int, end: Int, encoding: Int): String {
+        if (end <= start) return ""
+        val charset: Charset = when (encoding) {
+            1 -> Charsets.UTF_16 // 带BOM
+            2 -> Charsets.UTF_16BE
+            3 -> Charsets.UTF_8
+            else -> Charsets.ISO_8859_1
+        }
+        return String(data, start, end - start, charset)
+    }
+
+    private fun syncSafeInt(data: ByteArray, offset: Int): Int {
+        return ((data[offset].toInt() and 0x7F) shl 21) or
+            ((data[offset + 1].toInt() and 0x7F) shl 14) or
+            ((data[offset + 2].toInt() and 0x7F) shl 7) or
+            (data[offset + 3].toInt() and 0x7F)
+    }
+
+    private fun bigEndianInt(data: ByteArray, offset: Int): Int {
+        return ((data[offset].toInt() and 0xFF) shl 24) or
+            ((data[offset + 1].toInt() and 0xFF) shl 16) or
+            ((data[offset + 2].toInt() and 0xFF) shl 8) or
+            (data[offset + 3].toInt() and 0xFF)
+    }
+
+    private fun littleEndianInt(data: ByteArray): Int {
+        return (data[0].toInt() and 0xFF) or
+            ((data[1].toInt() and 0xFF) shl 8) or
+            ((data[2].toInt() and 0xFF) shl 16) or
+            ((data[3].toInt() and 0xFF) shl 24)
+    }
+}
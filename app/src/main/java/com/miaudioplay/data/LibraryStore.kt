@@ -0,0 +1,229 @@
+package com.miaudioplay.data
+
+import android.provider.MediaStore
+import com.miaudioplay.data.models.LibrarySong
+import com.miaudioplay.data.models.Song
+
+/**
+ * 按列保存的媒体库快照
+ *
+ * id、时长、专辑ID保存在基本类型数组中；艺术家与专辑名放入字符串池，
+ * 每行只记录池中的下标，重复数千次的名字只保存一份。
+ * 作为 List<Song> 使用时按下标临时生成 Song 视图，不常驻内存。
+ *
+ * 构建快照时同时建立 id → 行号 的基本类型索引；URI 查找先解析出末尾的 id，
+ * 不需要为每首歌生成 URI 字符串比较。
+ */
+class LibraryStore private constructor(
+    private val ids: LongArray,
+    private val titles: Array<String>,
+    private val artistIndices: IntArray,
+    private val albumIndices: IntArray,
+    private val albumIds: LongArray,
+    private val durations: LongArray,
+    private val paths: Array<String>,
+    private val artistPool: Array<String>,
+    private val albumPool: Array<String>,
+    private val idIndex: LongIntMap
+) : AbstractList<Song>(), RandomAccess {
+
+    override val size: Int
+        get() = ids.size
+
+    override fun get(index: Int): Song = Song(
+        id = ids[index],
+        title = titles[index],
+        artist = artistPool[artistIndices[index]],
+        album = albumPool[albumIndices[index]],
+        duration = durations[index],
+        albumId = albumIds[index],
+        path = paths[index]
+    )
+
+    fun idAt(index: Int): Long = ids[index]
+
+    /**
+     * 歌曲所在的行号，不在媒体库中时返回 -1
+     */
+    fun indexOfId(id: Long): Int = idIndex.get(id)
+
+    fun findById(id: Long): Song? {
+        val index = idIndex.get(id)
+        return if (index >= 0) get(index) else null
+    }
+
+    fun findByUri(uri: String): Song? {
+        val id = parseSongId(uri)
+        return if (id >= 0) findById(id) else null
+    }
+
+    // 修复失效歌单条目时才需要，按需构建
+    private val pathIndex: Map<String, Int> by lazy {
+        HashMap<String, Int>(size * 2).also { index ->
+            for (i in paths.indices) {
+                if (paths[i].isNotEmpty()) index.putIfAbsent(paths[i], i)
+            }
+        }
+    }
+
+    private val titleArtistIndex: Map<String, Int> by lazy {
+        HashMap<String, Int>(size * 2).also { index ->
+            for (i in titles.indices) {
+                index.putIfAbsent(titleArtistKey(titles[i], artistPool[artistIndices[i]]), i)
+            }
+        }
+    }
+
+    fun findByPath(path: String): Song? = pathIndex[path]?.let { get(it) }
+
+    fun findByTitleAndArtist(title: String, artist: String): Song? {
+        return titleArtistIndex[titleArtistKey(title, artist)]?.let { get(it) }
+    }
+
+    // 导入歌单时按文件名查找相对路径；同名文件通过 fileNameNext 串成链表
+    private val fileNameIndex: Map<String, Int> by lazy {
+        HashMap<String, Int>(size * 2).also { index ->
+            for (i in paths.indices.reversed()) {
+                if (paths[i].isEmpty()) continue
+                val key = fileNameKey(paths[i])
+                index[key]?.let { fileNameNext[i] = it }
+                index[key] = i
+            }
+        }
+    }
+
+    private val fileNameNext: IntArray by lazy { IntArray(size) { -1 } }
+
+    /**
+     * 按路径后缀查找，用于歌单文件中的相对路径（如 "Album/01.mp3"），忽略大小写
+     *
+     * 唯一匹配时返回行号，没有匹配返回 -1，匹配到多首（无法确定是哪一首）返回 AMBIGUOUS。
+     *
+     * 更短的后缀匹配到的歌曲包含更长后缀的结果，因此一旦出现 AMBIGUOUS，
+     * 调用方去掉更多目录后继续查找也不会得到唯一结果。
+     */
+    fun indexOfPathSuffix(suffix: String): Int {
+        val normalized = suffix.trimStart('/')
+        if (normalized.isEmpty()) return -1
+        var i = fileNameIndex[fileNameKey(normalized)] ?: return -1
+        var found = -1
+        while (i >= 0) {
+            val path = paths[i]
+            if (path.length > normalized.length &&
+                path.endsWith(normalized, ignoreCase = true) &&
+                path[path.length - normalized.length - 1] == '/'
+            ) {
+                if (found >= 0) return AMBIGUOUS
+                found = i
+            }
+            i = fileNameNext[i]
+        }
+        return found
+    }
+
+    private fun fileNameKey(path: String): String = path.substringAfterLast('/').lowercase()
+
+    private fun titleArtistKey(title: String, artist: String): String {
+        return title.trim().lowercase() + '\u0000' + artist.trim().lowercase()
+    }
+
+    /**
+     * 遵循 List 的约定按元素比较；两个快照之间直接比较各列，不逐行生成 Song 视图
+     * hashCode 沿用 AbstractList 的实现
+     */
+    override fun equals(other: Any?): Boolean {
+        if (other === this) return true
+        if (other !is LibraryStore) return super.equals(other)
+        if (!ids.contentEquals(other.ids) ||
+            !durations.contentEquals(other.durations) ||
+            !albumIds.contentEquals(other.albumIds) ||
+            !titles.contentEquals(other.titles) ||
+            !paths.contentEquals(other.paths)
+        ) {
+            return false
+        }
+        for (i in ids.indices) {
+            if (artistPool[artistIndices[i]] != other.artistPool[other.artistIndices[i]] ||
+                albumPool[albumIndices[i]] != other.albumPool[other.albumIndices[i]]
+            ) {
+                return false
+            }
+        }
+        return true
+    }
+
+    override fun hashCode(): Int = super.hashCode()
+
+    companion object {
+        // Song.uri 的字符串形式：content://media/external/audio/media/<id>
+        // 只在按 URI 查找时才需要，延迟初始化，JVM 单元测试中不访问 MediaStore
+        private val AUDIO_URI_PREFIX by lazy { MediaStore.Audio.Media.EXTERNAL_CONTENT_URI.toString() + "/" }
+
+        val EMPTY = from(emptyList())
+
+        // indexOfPathSuffix：后缀对应多首歌曲
+        const val AMBIGUOUS = -2
+
+        /**
+         * 从媒体库歌曲URI中解析 id，格式不符时返回 -1
+         */
+        fun parseSongId(uri: String): Long {
+            val prefix = AUDIO_URI_PREFIX
+            if (!uri.startsWith(prefix) || uri.length == prefix.length) return -1
+            var id = 0L
+            for (i in prefix.length until uri.length) {
+                val digit = uri[i] - '0'
+                if (digit !in 0..9 || id > (Long.MAX_VALUE - digit) / 10) return -1
+                id = id * 10 + digit
+            }
+            return id
+        }
+
+        fun from(rows: List<LibrarySong>): LibraryStore {
+            val artists = StringPool()
+            val albums = StringPool()
+            val size = rows.size
+            val ids = LongArray(size)
+            val albumIds = LongArray(size)
+            val durations = LongArray(size)
+            val artistIndices = IntArray(size)
+            val albumIndices = IntArray(size)
+            val idIndex = LongIntMap(size)
+
+            for (i in 0 until size) {
+                val row = rows[i]
+                ids[i] = row.id
+                idIndex.putIfAbsent(row.id, i)
+                albumIds[i] = row.albumId
+                durations[i] = row.duration
+                artistIndices[i] = artists.indexOf(row.artist)
+                albumIndices[i] = albums.indexOf(row.album)
+            }
+
+            return LibraryStore(
+                ids = ids,
+                titles = Array(size) { rows[it].title },
+                artistIndices = artistIndices,
+                albumIndices = albumIndices,
+                albumIds = albumIds,
+                durations = durations,
+                paths = Array(size) { rows[it].path },
+                artistPool = artists.toArray(),
+                albumPool = albums.toArray(),
+                idIndex = idIndex
+            )
+        }
+    }
+
+    private class StringPool {
+        private val indices = HashMap<String, Int>()
+        private val values = ArrayList<String>()
+
+        fun indexOf(value: String): Int = indices.getOrPut(value) {
+            values.add(value)
+            values.size - 1
+        }
+
+        fun toArray(): Array<String> = values.toTypedArray()
+    }
+}
@@ -0,0 +1,363 @@
+package com.miaudioplay.data
+
+import android.content.ContentResolver
+import android.content.Context
+import android.content.SharedPreferences
+import android.database.ContentObserver
+import android.database.Cursor
+import android.net.Uri
+import android.os.Build
+import android.os.SystemClock
+import android.provider.MediaStore
+import android.util.Log
+import androidx.room.withTransaction
+import com.miaudioplay.data.models.LibrarySong
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.update
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+
+/**
+ * 一次同步对本地媒体库的改动
+ */
+data class LibraryDiff(
+    val upserted: Int,
+    val removedIds: List<Long>,
+    val fullScan: Boolean
+) {
+    val isEmpty: Boolean
+        get() = upserted == 0 && removedIds.isEmpty()
+}
+
+/**
+ * MediaStore → songs 表的增量同步
+ *
+ * - Android 11+：按卷记录 MediaStore.getGeneration，只查询 GENERATION_MODIFIED 更大的行；
+ *   卷的 generation 未变化时完全跳过查询
+ * - 更早版本：查询上次同步之后 DATE_ADDED / DATE_MODIFIED 变化的行
+ * - 删除：增量写入后若行数与 MediaStore 不一致，再比对 _ID 集合找出被删除的行
+ * - MediaStore 版本变化（媒体库重建）、本地表为空或 songs 表新增了同步填充的列
+ *   （LIBRARY_SCHEMA 变化）时做一次全量扫描
+ *
+ * 写入按批次放在事务中；同步期间 [isSyncing] 为 true，媒体库的观察者据此暂停读取，
+ * 结束后一次性读取结果，不必在每个批次提交后重新读取整张表。
+ *
+ * 运行期间通过 ContentObserver 监听 MediaStore，合并一段时间内的通知后
+ * 只同步通知中涉及的歌曲。
+ */
+class LibrarySync(context: Context, private val database: MusicDatabase) {
+    companion object {
+        private const val TAG = "LibrarySync"
+
+        private const val PREFS_NAME = "library_sync"
+        private const val KEY_MEDIASTORE_VERSION = "mediastore_version"
+        private const val KEY_GENERATION_PREFIX = "generation_"
+        private const val KEY_LAST_SYNC_SECONDS = "last_sync_seconds"
+        private const val KEY_LIBRARY_SCHEMA = "library_schema"
+
+        // songs 表中由同步填充的列变化时递增（迁移只能填默认值），下次同步全量扫描一次
+        // 7: dateAdded（MIGRATION_6_7 暂用 dateModified 代替）
+        private const val LIBRARY_SCHEMA = 7
+
+        // 每个事务写入的行数；删除时同时受 SQLite 变量个数（999）限制
+        private const val BATCH_SIZE = 500
+
+        private val PROJECTION = arrayOf(
+            MediaStore.Audio.Media._ID,
+            MediaStore.Audio.Media.TITLE,
+            MediaStore.Audio.Media.ARTIST,
+            MediaStore.Audio.Media.ALBUM,
+            MediaStore.Audio.Media.ALBUM_ID,
+            MediaStore.Audio.Media.DURATION,
+            MediaStore.Audio.Media.DATA,
+            MediaStore.Audio.Media.DATE_MODIFIED,
+            MediaStore.Audio.Media.DATE_ADDED
+        )
+
+        // 通知停止这么久后才开始同步；持续通知（如大量复制）时最长等待 MAX_COALESCE_MS
+        private const val QUIET_PERIOD_MS = 500L
+        private const val MAX_COALESCE_MS = 5_000L
+
+        private const val MUSIC_SELECTION = "${MediaStore.Audio.Media.IS_MUSIC} != 0"
+    }
+
+    private val appContext = context.applicationContext
+    private val contentResolver: ContentResolver = appContext.contentResolver
+    private val prefs: SharedPreferences = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+    private val songDao = database.songDao()
+
+    // 正在进行的同步个数
+    private val activeSyncs = MutableStateFlow(0)
+
+    /**
+     * 是否正在向 songs 表写入同步结果
+     */
+    val isSyncing: Flow<Boolean> = activeSyncs.map { it > 0 }.distinctUntilChanged()
+
+    suspend fun sync(): LibraryDiff = withContext(Dispatchers.IO) {
+        trackSync {
+            val mediaStoreVersion = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                MediaStore.getVersion(appContext)
+            } else {
+                null
+            }
+            val fullScan = songDao.getCount() == 0 ||
+                prefs.getInt(KEY_LIBRARY_SCHEMA, 0) < LIBRARY_SCHEMA ||
+                (mediaStoreVersion != null && mediaStoreVersion != prefs.getString(KEY_MEDIASTORE_VERSION, null))
+
+            val editor = prefs.edit()
+            if (fullScan) {
+                // 旧的 generation 在媒体库重建后没有意义
+                prefs.all.keys.filter { it.startsWith(KEY_GENERATION_PREFIX) }.forEach { editor.remove(it) }
+            }
+
+            val upserted = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                syncByGeneration(fullScan, editor)
+            } else {
+                syncByDate(fullScan, editor)
+            }
+            val removedIds = removeDeletedSongs()
+
+            editor.putString(KEY_MEDIASTORE_VERSION, mediaStoreVersion)
+            editor.putInt(KEY_LIBRARY_SCHEMA, LIBRARY_SCHEMA)
+            editor.apply()
+
+            Log.d(TAG, "Library synced: upserted=$upserted, removed=${removedIds.size}, fullScan=$fullScan")
+            LibraryDiff(upserted, removedIds, fullScan)
+        }
+    }
+
+    /**
+     * 只同步指定的歌曲：仍在 MediaStore 中的写入，其余的删除
+     */
+    suspend fun syncSongs(ids: Set<Long>): LibraryDiff = withContext(Dispatchers.IO) {
+        trackSync {
+            val found = HashSet<Long>(ids.size * 2)
+            var upserted = 0
+            val removedIds = ArrayList<Long>()
+
+            for (chunk in ids.chunked(BATCH_SIZE)) {
+                // ID 均为数字，可以直接拼入语句，避免超出参数个数限制
+                val selection = "$MUSIC_SELECTION AND ${MediaStore.Audio.Media._ID} IN (${chunk.joinToString(",")})"
+                upserted += upsertFromMediaStore(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, selection, null, found)
+
+                val missing = songDao.getExistingIds(chunk.filter { it !in found })
+                if (missing.isNotEmpty()) {
+                    database.withTransaction {
+                        songDao.deleteSongs(missing)
+                    }
+                    removedIds.addAll(missing)
+                }
+            }
+
+            Log.d(TAG, "Songs synced: requested=${ids.size}, upserted=$upserted, removed=${removedIds.size}")
+            LibraryDiff(upserted, removedIds, fullScan = false)
+        }
+    }
+
+    private inline fun <T> trackSync(block: () -> T): T {
+        activeSyncs.update { it + 1 }
+        try {
+            return block()
+        } finally {
+            activeSyncs.update { it - 1 }
+        }
+    }
+
+    /**
+     * 监听 MediaStore 音频表的变化
+     *
+     * 订阅后先发出一次 null，要求调用方做一次增量同步；之后每批合并后的通知发出
+     * 涉及的歌曲ID集合，通知中没有具体ID（如整表变化）时同样发出 null。
+     * 先注册监听再发出首个值，同步期间的通知不会丢失。
+     */
+    fun changes(): Flow<Set<Long>?> = channelFlow {
+        val lock = Any()
+        val pendingIds = HashSet<Long>()
+        var needsFullSync = false
+        val signals = Channel<Unit>(Channel.CONFLATED)
+
+        val observer = object : ContentObserver(null) {
+            override fun onChange(selfChange: Boolean, uri: Uri?) {
+                val id = uri?.let { parseSongId(it) }
+                synchronized(lock) {
+                    if (id != null) pendingIds.add(id) else needsFullSync = true
+                }
+                signals.trySend(Unit)
+            }
+        }
+        contentResolver.registerContentObserver(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, true, observer)
+        send(null)
+
+        launch {
+            while (true) {
+                signals.receive()
+                val burstStart = SystemClock.elapsedRealtime()
+                do {
+                    delay(QUIET_PERIOD_MS)
+                } while (signals.tryReceive().isSuccess &&
+                    SystemClock.elapsedRealtime() - burstStart < MAX_COALESCE_MS)
+
+                val change = synchronized(lock) {
+                    val result = if (needsFullSync) null else HashSet(pendingIds)
+                    pendingIds.clear()
+                    needsFullSync = false
+                    result
+                }
+                send(change)
+            }
+        }
+
+        awaitClose { contentResolver.unregisterContentObserver(observer) }
+    }
+
+    /**
+     * content://media/external/audio/media/123 → 123；集合URI返回null
+     */
+    private fun parseSongId(uri: Uri): Long? {
+        return uri.lastPathSegment?.toLongOrNull()?.takeIf { uri.pathSegments.size > 1 }
+    }
+
+    /**
+     * 按卷比较 generation，只读取变化的行
+     */
+    private suspend fun syncByGeneration(fullScan: Boolean, editor: SharedPreferences.Editor): Int {
+        var upserted = 0
+        for (volume in MediaStore.getExternalVolumeNames(appContext)) {
+            val key = KEY_GENERATION_PREFIX + volume
+            val lastGeneration = if (fullScan) -1L else prefs.getLong(key, -1L)
+            // 先取 generation 再查询：查询期间发生的变化留到下次同步
+            val generation = MediaStore.getGeneration(appContext, volume)
+            if (generation == lastGeneration) continue
+
+            val selection = if (lastGeneration >= 0) {
+                "$MUSIC_SELECTION AND ${MediaStore.Audio.Media.GENERATION_MODIFIED} > ?"
+            } else {
+                MUSIC_SELECTION
+            }
+            val args = if (lastGeneration >= 0) arrayOf(lastGeneration.toString()) else null
+
+            upserted += upsertFromMediaStore(MediaStore.Audio.Media.getContentUri(volume), selection, args)
+            editor.putLong(key, generation)
+        }
+        return upserted
+    }
+
+    /**
+     * 旧版本没有 generation，按时间戳比较
+     * DATE_MODIFIED 是文件修改时间（复制时可能保留旧值），所以同时比较 DATE_ADDED
+     */
+    private suspend fun syncByDate(fullScan: Boolean, editor: SharedPreferences.Editor): Int {
+        val lastSync = if (fullScan) -1L else prefs.getLong(KEY_LAST_SYNC_SECONDS, -1L)
+        val syncStart = System.currentTimeMillis() / 1000
+
+        val selection = if (lastSync >= 0) {
+            "$MUSIC_SELECTION AND (${MediaStore.Audio.Media.DATE_ADDED} >= ? OR " +
+                "${MediaStore.Audio.Media.DATE_MODIFIED} >= ?)"
+        } else {
+            MUSIC_SELECTION
+        }
+        val args = if (lastSync >= 0) arrayOf(lastSync.toString(), lastSync.toString()) else null
+
+        val upserted = upsertFromMediaStore(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, selection, args)
+        editor.putLong(KEY_LAST_SYNC_SECONDS, syncStart)
+        return upserted
+    }
+
+    private suspend fun upsertFromMediaStore(
+        uri: Uri,
+        selection: String,
+        args: Array<String>?,
+        seenIds: MutableSet<Long>? = null
+    ): Int {
+        var count = 0
+        contentResolver.query(uri, PROJECTION, selection, args, null)?.use { cursor ->
+            val reader = SongCursorReader(cursor)
+            val batch = ArrayList<LibrarySong>(BATCH_SIZE)
+            while (cursor.moveToNext()) {
+                val song = reader.read()
+                seenIds?.add(song.id)
+                batch.add(song)
+                if (batch.size == BATCH_SIZE) {
+                    writeBatch(batch)
+                    count += batch.size
+                    batch.clear()
+                }
+            }
+            if (batch.isNotEmpty()) {
+                writeBatch(batch)
+                count += batch.size
+            }
+        }
+        return count
+    }
+
+    private suspend fun writeBatch(batch: List<LibrarySong>) {
+        database.withTransaction {
+            songDao.upsertSongs(batch)
+        }
+    }
+
+    /**
+     * 增量写入后本地表应是 MediaStore 的超集，行数相同即说明没有删除，
+     * 不一致时才读取全部 _ID 比对
+     */
+    private suspend fun removeDeletedSongs(): List<Long> {
+        val mediaStoreIds = contentResolver.query(
+            MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
+            arrayOf(MediaStore.Audio.Media._ID),
+            MUSIC_SELECTION,
+            null,
+            null
+        )?.use { cursor ->
+            if (cursor.count == songDao.getCount()) return emptyList()
+
+            val idColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID)
+            val ids = HashSet<Long>(cursor.count * 2)
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(idColumn))
+            }
+            ids
+        } ?: return emptyList() // 查询失败时不删除任何数据
+
+        val removedIds = songDao.getAllIds().filter { it !in mediaStoreIds }
+        removedIds.chunked(BATCH_SIZE).forEach { chunk ->
+            database.withTransaction {
+                songDao.deleteSongs(chunk)
+            }
+        }
+        return removedIds
+    }
+
+    private class SongCursorReader(private val cursor: Cursor) {
+        private val idColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID)
+        private val titleColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.TITLE)
+        private val artistColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ARTIST)
+        private val albumColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ALBUM)
+        private val albumIdColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ALBUM_ID)
+        private val durationColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DURATION)
+        private val dataColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATA)
+        private val dateModifiedColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATE_MODIFIED)
+        private val dateAddedColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATE_ADDED)
+
+        fun read(): LibrarySong = LibrarySong(
+            id = cursor.getLong(idColumn),
+            title = cursor.getString(titleColumn) ?: "Unknown",
+            artist = cursor.getString(artistColumn) ?: "Unknown Artist",
+            album = cursor.getString(albumColumn) ?: "Unknown Album",
+            albumId = cursor.getLong(albumIdColumn),
+            duration = cursor.getLong(durationColumn),
+            path = cursor.getString(dataColumn) ?: "",
+            dateModified = cursor.getLong(dateModifiedColumn),
+            dateAdded = cursor.getLong(dateAddedColumn)
+        )
+    }
+}
@@ -0,0 +1,64 @@
+package com.miaudioplay.data
+
+/**
+ * Long → Int 的开放寻址哈希表
+ *
+ * 键和值直接保存在基本类型数组中，查找不装箱、不分配对象。
+ * 只支持写入和查找，用于一次性构建的只读索引。
+ */
+internal class LongIntMap(expectedSize: Int) {
+    companion object {
+        const val MISSING = -1
+    }
+
+    // 负载因子不超过 0.5，容量取 2 的幂以便用位运算取模
+    private val mask: Int
+    private val keys: LongArray
+    private val values: IntArray
+    private val used: BooleanArray
+
+    var size: Int = 0
+        private set
+
+    init {
+        var capacity = 4
+        while (capacity < expectedSize * 2) capacity = capacity shl 1
+        mask = capacity - 1
+        keys = LongArray(capacity)
+        values = IntArray(capacity)
+        used = BooleanArray(capacity)
+    }
+
+    /**
+     * 写入键值；键已存在时保留原值并返回false
+     */
+    fun putIfAbsent(key: Long, value: Int): Boolean {
+        var slot = slotOf(key)
+        while (used[slot]) {
+            if (keys[slot] == key) return false
+            slot = (slot + 1) and mask
+        }
+        used[slot] = true
+        keys[slot] = key
+        values[slot] = value
+        size++
+        return true
+    }
+
+    fun get(key: Long): Int {
+        var slot = slotOf(key)
+        while (used[slot]) {
+            if (keys[slot] == key) return values[slot]
+            slot = (slot + 1) and mask
+        }
+        return MISSING
+    }
+
+    operator fun contains(key: Long): Boolean = get(key) != MISSING
+
+    private fun slotOf(key: Long): Int {
+        // 混合高低位，MediaStore 的连续 ID 也能均匀分布
+        val h = key * -0x61c8864680b583ebL
+        return (h xor (h ushr 32)).toInt() and mask
+    }
+}
@@ -0,0 +1,116 @@
+package com.miaudioplay.data
+
+import android.os.SystemClock
+import android.util.Log
+import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * 音乐目录的LRC文件索引
+ *
+ * 每个目录只列举一次，按规范化文件名（小写、去扩展名）记录所有 .lrc/.LRC 文件，
+ * 之后的查找直接在内存中完成，避免对共享存储逐个 File.exists 探测。
+ * 目录修改时间变化或 MediaStore 通知变化时失效。
+ */
+object LrcIndex {
+    private const val TAG = "LrcIndex"
+
+    // 同一目录在此时间内不重复检查修改时间，批量操作时每个目录只stat一次
+    private const val MTIME_RECHECK_MS = 2_000L
+
+    private class DirEntry(
+        val lastModified: Long,
+        val lrcFiles: Map<String, File>,
+        @Volatile var checkedAt: Long
+    )
+
+    private val entries = ConcurrentHashMap<String, DirEntry>()
+
+    /**
+     * 查找音频文件对应的LRC文件
+     */
+    fun find(audioPath: String): File? {
+        val audioFile = File(audioPath)
+        val parentDir = audioFile.parentFile ?: return null
+        val entry = getEntry(parentDir) ?: return null
+        return entry.lrcFiles[normalize(audioFile.nameWithoutExtension)]
+    }
+
+    /**
+     * 新写入LRC文件后更新索引，无需重新列举目录
+     */
+    fun onLrcFileWritten(lrcFile: File) {
+        val parentDir = lrcFile.parentFile ?: return
+        val entry = entries[parentDir.path] ?: return
+        val lrcFiles = HashMap(entry.lrcFiles)
+        lrcFiles[normalize(lrcFile.nameWithoutExtension)] = lrcFile
+        entries[parentDir.path] = DirEntry(
+            lastModified = parentDir.lastModified(),
+            lrcFiles = lrcFiles,
+            checkedAt = SystemClock.elapsedRealtime()
+        )
+    }
+
+    /**
+     * 使单个目录的索引失效
+     */
+    fun invalidate(dir: File) {
+        entries.remove(dir.path)
+    }
+
+    /**
+     * 使所有索引失效（MediaStore 发生变化时调用）
+     */
+    fun invalidateAll() {
+        entries.clear()
+    }
+
+    private fun getEntry(dir: File): DirEntry? {
+        val key = dir.path
+        val cached = entries[key]
+        val now = SystemClock.elapsedRealtime()
+
+        if (cached != null) {
+            if (now - cached.checkedAt < MTIME_RECHECK_MS) {
+                return cached
+            }
+            if (dir.lastModified() == cached.lastModified) {
+                cached.checkedAt = now
+                return cached
+            }
+        }
+
+        return scanDirectory(dir, now)?.also { entries[key] = it }
+    }
+
+    private fun scanDirectory(dir: File, now: Long): DirEntry? {
+        return try {
+            val lastModified = dir.lastModified()
+            val files = dir.listFiles() ?: return null
+            val lrcFiles = HashMap<String, File>()
+
+            for (file in files) {
+                val name = file.name
+                val dot = name.lastIndexOf('.')
+                if (dot <= 0 || !name.regionMatches(dot + 1, "lrc", 0, 3, ignoreCase = true) ||
+                    name.length != dot + 4
+                ) {
+                    continue
+                }
+
+                // 与原查找顺序一致：优先 .lrc，其次 .LRC
+                val key = normalize(name.substring(0, dot))
+                if (!lrcFiles.containsKey(key) || name.endsWith(".lrc")) {
+                    lrcFiles[key] = file
+                }
+            }
+
+            DirEntry(lastModified, lrcFiles, now)
+        } catch (e: SecurityException) {
+            Log.w(TAG, "Cannot list directory: ${dir.path}", e)
+            null
+        }
+    }
+
+    private fun normalize(baseName: String): String = baseName.lowercase()
+}
@@ -1,69 +1,616 @@
 package com.miaudioplay.data
 
-import com.miaudioplay.data.models.LyricLine
+import android.util.Log
+import com.miaudioplay.data.models.LrcLines
+import com.miaudioplay.data.models.LrcMetadata
+import com.miaudioplay.data.models.LyricsDocument
+import com.miaudioplay.data.models.LyricsSource
 import java.io.File
-import java.util.regex.Pattern
+import java.io.InputStream
+import java.io.Reader
+import java.util.Locale
 
+/**
+ * LRC歌词解析器
+ *
+ * 手写扫描器，单次遍历输入文本，不使用正则表达式。支持的时间标签：
+ * [mm:ss]、[m:ss.x]、[mm:ss.xx]、[mm:ss.xxx]、[mmm:ss.xx]、[mm:ss:xx]，
+ * 以及同一行上的多个时间标签。头部标签（[ti]、[ar]、[al]、[by]、[offset]、
+ * [length]）记录在 LrcMetadata 中，[offset] 在解析时直接应用到时间戳。
+ * 增强LRC（A2）的 <mm:ss.xx> 行内标签解析为逐字时间。
+ *
+ * 翻译歌词以 [x-trans] 标记行与原文分隔，保存在同一份文本中；解析后按时间戳
+ * 归并对齐到原文各行。
+ *
+ * 本地文件通过 Reader 流式解析：固定大小的字符缓冲区逐块读取，只保留
+ * 含有时间标签的歌词行，并限制总字符数与行数，异常大的文件不会整体读入内存。
+ */
 object LrcParser {
-    private val TIME_PATTERN = Pattern.compile("\\[(\\d{2}):(\\d{2})\\.(\\d{2,3})]")
-    
-    fun parse(lrcContent: String): List<LyricLine> {
-        val lyrics = mutableListOf<LyricLine>()
-        
-        lrcContent.lines().forEach { line ->
-            val matcher = TIME_PATTERN.matcher(line)
-            var lastEnd = 0
-            
-            while (matcher.find()) {
-                val minutes = matcher.group(1)?.toLongOrNull() ?: 0
-                val seconds = matcher.group(2)?.toLongOrNull() ?: 0
-                val millisStr = matcher.group(3) ?: "0"
-                val millis = if (millisStr.length == 2) {
-                    millisStr.toLongOrNull()?.times(10) ?: 0
-                } else {
-                    millisStr.toLongOrNull() ?: 0
+    private const val TAG = "LrcParser"
+
+    // 排序键的低位存放原始行号，保证相同时间戳的行保持原有顺序
+    private const val INDEX_BITS = 21
+    private const val INDEX_MASK = (1L shl INDEX_BITS) - 1
+    private const val MAX_ENTRIES = 1 shl INDEX_BITS
+
+    // 流式解析的缓冲区与上限
+    private const val STREAM_BUFFER_CHARS = 8 * 1024
+    private const val MAX_STREAM_CHARS = 2 * 1024 * 1024
+    private const val MAX_STREAM_LINES = 20_000
+    private const val MAX_LINE_CHARS = 4 * 1024
+
+    // 原文与翻译之间的分隔标记
+    private const val TRANSLATION_MARKER = "[x-trans]"
+
+    // 翻译行与原文行时间戳的对齐容差
+    private const val TRANSLATION_TOLERANCE_MS = 200L
+
+    fun parse(lrcContent: CharSequence): LrcLines {
+        val builder = Builder(lrcContent)
+        val length = lrcContent.length
+        var lineStart = 0
+
+        while (lineStart < length) {
+            var lineEnd = lineStart
+            while (lineEnd < length) {
+                val c = lrcContent[lineEnd]
+                if (c == '\n' || c == '\r') break
+                lineEnd++
+            }
+            builder.addLine(lineStart, lineEnd)
+            lineStart = lineEnd + 1
+        }
+
+        return builder.build()
+    }
+
+    /**
+     * 解析纯文本歌词，每个非空行为一条，时间戳均为 0
+     */
+    fun parsePlain(text: CharSequence): LrcLines {
+        val builder = Builder(text)
+        val length = text.length
+        var lineStart = 0
+
+        while (lineStart < length) {
+            var lineEnd = lineStart
+            while (lineEnd < length) {
+                val c = text[lineEnd]
+                if (c == '\n' || c == '\r') break
+                lineEnd++
+            }
+            builder.addPlainLine(lineStart, lineEnd)
+            lineStart = lineEnd + 1
+        }
+
+        return builder.build()
+    }
+
+    /**
+     * 生成歌词文档：能解析出时间轴的按LRC处理，否则按纯文本处理。
+     * 旧版本缓存中时间戳全为 [00:00.00] 的内容也会识别为非同步歌词。
+     */
+    fun parseDocument(text: String, source: LyricsSource): LyricsDocument? {
+        if (text.isBlank()) return null
+        if (text.contains('[')) {
+            val lines = parse(text)
+            if (lines.isSynced) {
+                return LyricsDocument(lines, isSynced = true, source = source, content = text)
+            }
+            if (lines.isNotEmpty()) {
+                // 只有 0 时间戳的LRC，去掉时间标签后按纯文本保存
+                val plain = lines.joinToString("\n") { it.text }
+                return LyricsDocument(parsePlain(plain), isSynced = false, source = source, content = plain)
+            }
+        }
+        return plainDocument(text, source)
+    }
+
+    /**
+     * 生成非同步歌词文档
+     */
+    fun plainDocument(text: String, source: LyricsSource): LyricsDocument? {
+        val lines = parsePlain(text)
+        if (lines.isEmpty()) return null
+        return LyricsDocument(lines, isSynced = false, source = source, content = text)
+    }
+
+    /**
+     * 从 Reader 流式解析
+     *
+     * 文本按块读入固定缓冲区，只有产生歌词条目的行会保留在文本池中，
+     * 头部标签与无效行读完即丢弃。超过 maxChars 或 maxLines 时停止读取，
+     * 已解析的部分照常返回。
+     */
+    fun parse(
+        reader: Reader,
+        maxChars: Int = MAX_STREAM_CHARS,
+        maxLines: Int = MAX_STREAM_LINES
+    ): LrcLines {
+        val pool = StringBuilder()
+        val builder = Builder(pool)
+        val buffer = CharArray(STREAM_BUFFER_CHARS)
+        var lineStart = 0
+        var totalChars = 0
+        var lineCount = 0
+        var truncated = false
+
+        read@ while (true) {
+            val read = reader.read(buffer)
+            if (read < 0) break
+            totalChars += read
+
+            var segmentStart = 0
+            for (i in 0 until read) {
+                val c = buffer[i]
+                if (c != '\n' && c != '\r') continue
+
+                appendBounded(pool, lineStart, buffer, segmentStart, i)
+                segmentStart = i + 1
+                if (pool.length == lineStart) continue
+
+                if (!builder.addLine(lineStart, pool.length)) {
+                    pool.setLength(lineStart)
                 }
-                
-                val timestamp = minutes * 60 * 1000 + seconds * 1000 + millis
-                lastEnd = matcher.end()
-                
-                val text = line.substring(lastEnd).trim()
-                if (text.isNotEmpty()) {
-                    lyrics.add(LyricLine(timestamp, text))
+                lineStart = pool.length
+
+                if (++lineCount >= maxLines) {
+                    truncated = true
+                    break@read
                 }
             }
+            appendBounded(pool, lineStart, buffer, segmentStart, read)
+
+            if (totalChars >= maxChars) {
+                truncated = true
+                break
+            }
+        }
+
+        if (truncated) {
+            // 达到上限时最后一行可能不完整，直接丢弃
+            Log.w(TAG, "LRC input exceeds limits ($totalChars chars, $lineCount lines), truncated")
+            pool.setLength(lineStart)
+        } else if (pool.length > lineStart && !builder.addLine(lineStart, pool.length)) {
+            pool.setLength(lineStart)
         }
-        
-        return lyrics.sortedBy { it.timestamp }
+
+        pool.trimToSize()
+        return builder.build()
     }
-    
-    fun parseFromFile(file: File): List<LyricLine> {
-        return if (file.exists() && file.canRead()) {
-            parse(file.readText())
-        } else {
-            emptyList()
+
+    /**
+     * 从字节流解析，根据开头字节自动检测编码（见 TextEncoding）
+     */
+    fun parse(input: InputStream): LrcLines {
+        return parse(TextEncoding.reader(input))
+    }
+
+    /**
+     * 流式解析本地LRC文件
+     *
+     * @throws java.io.IOException 文件无法读取时抛出
+     */
+    fun parseFromFile(file: File): LrcLines {
+        return file.inputStream().use { parse(it) }
+    }
+
+    /**
+     * 将翻译歌词附加到原文之后，以便与原文一起缓存
+     */
+    fun appendTranslation(lyrics: String, translation: String?): String {
+        if (translation.isNullOrBlank()) return lyrics
+        return buildString(lyrics.length + translation.length + TRANSLATION_MARKER.length + 2) {
+            append(lyrics.trimEnd())
+            append('\n').append(TRANSLATION_MARKER).append('\n')
+            append(translation)
         }
     }
+
+    /**
+     * 去掉 appendTranslation 附加的翻译部分，只保留原文
+     *
+     * [x-trans] 不是标准标签，翻译部分重复了每个时间戳，写到音乐目录的LRC文件中
+     * 会让其他播放器显示两遍，所以外部文件只写原文。
+     */
+    fun stripTranslation(content: String): String {
+        val marker = content.indexOf("\n$TRANSLATION_MARKER")
+        return if (marker >= 0) content.substring(0, marker + 1) else content
+    }
+
+    /**
+     * 格式化为LRC时间标签内容 mm:ss.xx（不含括号）
+     */
+    fun formatTimestamp(timestampMs: Long): String {
+        val minutes = timestampMs / 60_000
+        val seconds = (timestampMs / 1000) % 60
+        val centis = (timestampMs % 1000) / 10
+        return String.format(Locale.US, "%02d:%02d.%02d", minutes, seconds, centis)
+    }
     
     fun findLrcFile(audioPath: String): File? {
-        val audioFile = File(audioPath)
-        val baseName = audioFile.nameWithoutExtension
-        val parentDir = audioFile.parentFile ?: return null
-        
-        // Try different LRC file name patterns
-        val lrcPatterns = listOf(
-            "$baseName.lrc",
-            "$baseName.LRC",
-            "${baseName.lowercase()}.lrc"
-        )
-        
-        for (pattern in lrcPatterns) {
-            val lrcFile = File(parentDir, pattern)
-            if (lrcFile.exists()) {
-                return lrcFile
-            }
-        }
-        
-        return null
+        // 通过目录索引查找，避免每首歌多次 File.exists 探测
+        return LrcIndex.find(audioPath)
+    }
+
+    /**
+     * 追加一段行内文本，单行超过 MAX_LINE_CHARS 的部分丢弃
+     */
+    private fun appendBounded(pool: StringBuilder, lineStart: Int, buffer: CharArray, from: Int, to: Int) {
+        val room = MAX_LINE_CHARS - (pool.length - lineStart)
+        val count = minOf(to - from, room)
+        if (count > 0) pool.append(buffer, from, count)
+    }
+
+    /**
+     * 解析时间标签内容（不含方括号），失败返回 -1
+     */
+    private fun parseTimestamp(text: CharSequence, from: Int, to: Int): Long {
+        var i = from
+
+        var minutes = 0L
+        var digits = 0
+        while (i < to && text[i] in '0'..'9') {
+            minutes = minutes * 10 + (text[i] - '0')
+            digits++
+            i++
+        }
+        if (digits == 0 || digits > 4 || i >= to || text[i] != ':') return -1
+        i++
+
+        var seconds = 0L
+        digits = 0
+        while (i < to && text[i] in '0'..'9') {
+            seconds = seconds * 10 + (text[i] - '0')
+            digits++
+            i++
+        }
+        if (digits == 0 || digits > 2) return -1
+
+        var millis = 0L
+        if (i < to) {
+            if (text[i] != '.' && text[i] != ':') return -1
+            i++
+
+            var scale = 100
+            digits = 0
+            while (i < to && text[i] in '0'..'9') {
+                if (digits < 3) {
+                    millis += (text[i] - '0') * scale
+                    scale /= 10
+                }
+                digits++
+                i++
+            }
+            if (digits == 0 || i != to) return -1
+        }
+
+        return minutes * 60_000 + seconds * 1000 + millis
+    }
+
+    /**
+     * 逐行累积时间戳与文本偏移量
+     */
+    private class Builder(
+        private val source: CharSequence,
+        private val isTranslation: Boolean = false
+    ) {
+        private var timestamps = LongArray(64)
+        private var lineRefs = IntArray(64)
+        private var count = 0
+        private var isSorted = true
+
+        private var textStarts = IntArray(64)
+        private var textEnds = IntArray(64)
+        private var recordCount = 0
+
+        private var metadata = LrcMetadata.EMPTY
+
+        // 遇到翻译标记后，之后的行交给翻译轨道
+        private var translation: Builder? = null
+
+        // 增强LRC逐字时间
+        private var strippedTexts = arrayOfNulls<String>(64)
+        private var wordOffsets = IntArray(64)
+        private var wordStartRel = IntArray(64)
+        private var wordDurations = IntArray(64)
+        private var wordCharStarts = IntArray(64)
+        private var wordCharEnds = IntArray(64)
+        private var wordCount = 0
+
+        /**
+         * 纯文本行：整行作为歌词，时间戳为 0
+         */
+        fun addPlainLine(start: Int, end: Int) {
+            var pos = start
+            var textEnd = end
+            while (pos < textEnd && source[pos].isWhitespace()) pos++
+            while (textEnd > pos && source[textEnd - 1].isWhitespace()) textEnd--
+            if (pos == textEnd || count >= MAX_ENTRIES) return
+
+            addEntry(0)
+            lineRefs[count - 1] = addRecord(pos, textEnd, null, wordCount)
+        }
+
+        /**
+         * 解析 [key:value] 形式的头部标签
+         */
+        private fun addMetadata(start: Int, end: Int) {
+            var colon = start
+            while (colon < end && source[colon] != ':') colon++
+            if (colon == start || colon >= end) return
+
+            val key = source.subSequence(start, colon).toString().trim().lowercase()
+            val value = source.subSequence(colon + 1, end).toString().trim()
+            if (value.isEmpty()) return
+
+            metadata = when (key) {
+                "ti" -> metadata.copy(title = value)
+                "ar" -> metadata.copy(artist = value)
+                "al" -> metadata.copy(album = value)
+                "by" -> metadata.copy(author = value)
+                "offset" -> value.removePrefix("+").toLongOrNull()?.let { metadata.copy(offsetMs = it) } ?: metadata
+                "length" -> parseTimestamp(value, 0, value.length)
+                    .takeIf { it >= 0 }
+                    ?.let { metadata.copy(lengthMs = it) } ?: metadata
+                else -> metadata
+            }
+        }
+
+        /**
+         * 解析一行，返回该行文本是否被歌词条目引用（流式解析据此回收文本池）
+         */
+        fun addLine(start: Int, end: Int): Boolean {
+            translation?.let { return it.addLine(start, end) }
+
+            val firstEntry = count
+            var pos = start
+            while (pos < end && source[pos].isWhitespace()) pos++
+
+            while (pos < end && source[pos] == '[') {
+                var close = pos + 1
+                while (close < end && source[close] != ']') close++
+                if (close >= end) break
+
+                val timestamp = parseTimestamp(source, pos + 1, close)
+                if (timestamp < 0) {
+                    if (count == firstEntry) {
+                        if (!isTranslation && regionEquals(pos, close + 1, TRANSLATION_MARKER)) {
+                            translation = Builder(source, isTranslation = true)
+                            return false
+                        }
+                        addMetadata(pos + 1, close)
+                    }
+                    break
+                }
+                addEntry(timestamp)
+                pos = close + 1
+            }
+
+            if (count == firstEntry) return false
+
+            var textEnd = end
+            while (pos < textEnd && source[pos].isWhitespace()) pos++
+            while (textEnd > pos && source[textEnd - 1].isWhitespace()) textEnd--
+
+            val firstWord = wordCount
+            val stripped = if (containsChar(pos, textEnd, '<')) {
+                parseWords(pos, textEnd, timestamps[firstEntry])
+            } else {
+                null
+            }
+
+            // QQ音乐翻译中以 "//" 表示该行没有翻译
+            val isEmptyTranslation = isTranslation && regionEquals(pos, textEnd, "//")
+
+            if (pos == textEnd || stripped?.isEmpty() == true || isEmptyTranslation) {
+                // 空歌词行不保留
+                count = firstEntry
+                wordCount = firstWord
+                return false
+            }
+
+            val record = addRecord(pos, textEnd, stripped, firstWord)
+            for (entry in firstEntry until count) {
+                lineRefs[entry] = record
+            }
+            return true
+        }
+
+        /**
+         * 解析增强LRC行内的 <mm:ss.xx> 逐字标签，返回去掉标签后的文本；
+         * 没有有效标签时返回 null
+         */
+        private fun parseWords(start: Int, end: Int, lineTimestamp: Long): String? {
+            val firstWord = wordCount
+            val text = StringBuilder(end - start)
+            var openWord = -1
+            var pos = start
+
+            while (pos < end) {
+                val c = source[pos]
+                if (c == '<') {
+                    var close = pos + 1
+                    while (close < end && source[close] != '>') close++
+                    val time = if (close < end) parseTimestamp(source, pos + 1, close) else -1
+                    if (time >= 0) {
+                        val rel = (time - lineTimestamp).toInt()
+                        if (openWord >= 0) {
+                            wordCharEnds[openWord] = text.length
+                            wordDurations[openWord] = (rel - wordStartRel[openWord]).coerceAtLeast(0)
+                        }
+                        openWord = addWord(rel, text.length)
+                        pos = close + 1
+                        continue
+                    }
+                }
+                text.append(c)
+                pos++
+            }
+
+            if (openWord < 0) return null
+
+            if (text.length > wordCharStarts[openWord]) {
+                wordCharEnds[openWord] = text.length
+                wordDurations[openWord] = -1
+            } else {
+                // 行尾的结束标签只用于给出上一个字的时长
+                wordCount--
+            }
+
+            var lead = 0
+            while (lead < text.length && text[lead].isWhitespace()) lead++
+            var trimmedEnd = text.length
+            while (trimmedEnd > lead && text[trimmedEnd - 1].isWhitespace()) trimmedEnd--
+            val trimmedLength = trimmedEnd - lead
+
+            for (word in firstWord until wordCount) {
+                wordCharStarts[word] = (wordCharStarts[word] - lead).coerceIn(0, trimmedLength)
+                wordCharEnds[word] = (wordCharEnds[word] - lead).coerceIn(0, trimmedLength)
+            }
+
+            return text.substring(lead, trimmedEnd)
+        }
+
+        private fun regionEquals(start: Int, end: Int, text: String): Boolean {
+            if (end - start != text.length) return false
+            for (i in text.indices) {
+                if (source[start + i] != text[i]) return false
+            }
+            return true
+        }
+
+        private fun containsChar(start: Int, end: Int, char: Char): Boolean {
+            for (i in start until end) {
+                if (source[i] == char) return true
+            }
+            return false
+        }
+
+        private fun addWord(startRel: Int, charStart: Int): Int {
+            if (wordCount == wordStartRel.size) {
+                val newSize = wordCount * 2
+                wordStartRel = wordStartRel.copyOf(newSize)
+                wordDurations = wordDurations.copyOf(newSize)
+                wordCharStarts = wordCharStarts.copyOf(newSize)
+                wordCharEnds = wordCharEnds.copyOf(newSize)
+            }
+            wordStartRel[wordCount] = startRel
+            wordDurations[wordCount] = -1
+            wordCharStarts[wordCount] = charStart
+            wordCharEnds[wordCount] = charStart
+            return wordCount++
+        }
+
+        private fun addEntry(timestamp: Long) {
+            if (count >= MAX_ENTRIES) return
+            if (count == timestamps.size) {
+                timestamps = timestamps.copyOf(count * 2)
+                lineRefs = lineRefs.copyOf(count * 2)
+            }
+            if (count > 0 && timestamp < timestamps[count - 1]) {
+                isSorted = false
+            }
+            timestamps[count++] = timestamp
+        }
+
+        private fun addRecord(start: Int, end: Int, strippedText: String?, firstWord: Int): Int {
+            if (recordCount + 1 >= textStarts.size) {
+                val newSize = textStarts.size * 2
+                textStarts = textStarts.copyOf(newSize)
+                textEnds = textEnds.copyOf(newSize)
+                strippedTexts = strippedTexts.copyOf(newSize)
+                wordOffsets = wordOffsets.copyOf(newSize)
+            }
+            textStarts[recordCount] = start
+            textEnds[recordCount] = end
+            strippedTexts[recordCount] = strippedText
+            wordOffsets[recordCount] = firstWord
+            return recordCount++
+        }
+
+        fun build(): LrcLines {
+            if (count == 0) return LrcLines.EMPTY
+            val offset = metadata.offsetMs
+
+            val sortedTimestamps = timestamps.copyOf(count)
+            val sortedRefs = lineRefs.copyOf(count)
+
+            if (!isSorted) {
+                // 时间戳与原始行号打包后做原始类型排序，相同时间戳保持原有顺序
+                val keys = LongArray(count) { (timestamps[it] shl INDEX_BITS) or it.toLong() }
+                keys.sort()
+                for (i in 0 until count) {
+                    val entry = (keys[i] and INDEX_MASK).toInt()
+                    sortedTimestamps[i] = keys[i] ushr INDEX_BITS
+                    sortedRefs[i] = lineRefs[entry]
+                }
+            }
+
+            // 翻译轨道的时间戳没有应用原文的 [offset]，先按文件中的原始时间对齐
+            val translationLines = translation?.build()
+            val translationRefs = translationLines?.let { alignTranslation(sortedTimestamps, it.timestamps) }
+
+            // [offset] 只在解析时应用一次，正值表示歌词提前显示
+            if (offset != 0L) {
+                for (i in 0 until count) {
+                    sortedTimestamps[i] = (sortedTimestamps[i] - offset).coerceAtLeast(0)
+                }
+            }
+
+            return LrcLines(
+                baseTimestamps = sortedTimestamps,
+                lineRefs = sortedRefs,
+                source = source,
+                textStarts = textStarts.copyOf(recordCount),
+                textEnds = textEnds.copyOf(recordCount),
+                metadata = metadata,
+                texts = strippedTexts.copyOf(recordCount),
+                words = buildWordTiming(),
+                translation = translationLines.takeIf { translationRefs != null },
+                translationRefs = translationRefs
+            )
+        }
+
+        /**
+         * 原文与翻译的时间戳都已升序，双指针归并一次完成对齐。
+         * 返回原文每行对应的翻译行下标（-1 表示无翻译），没有任何匹配时返回 null
+         */
+        private fun alignTranslation(lineTimestamps: LongArray, translationTimestamps: LongArray): IntArray? {
+            val refs = IntArray(lineTimestamps.size)
+            var j = 0
+            var matched = 0
+
+            for (i in lineTimestamps.indices) {
+                val timestamp = lineTimestamps[i]
+                while (j < translationTimestamps.size &&
+                    translationTimestamps[j] < timestamp - TRANSLATION_TOLERANCE_MS
+                ) {
+                    j++
+                }
+                if (j < translationTimestamps.size &&
+                    translationTimestamps[j] <= timestamp + TRANSLATION_TOLERANCE_MS
+                ) {
+                    refs[i] = j++
+                    matched++
+                } else {
+                    refs[i] = -1
+                }
+            }
+
+            return if (matched > 0) refs else null
+        }
+
+        private fun buildWordTiming(): LrcLines.WordTiming? {
+            if (wordCount == 0) return null
+            wordOffsets[recordCount] = wordCount
+            return LrcLines.WordTiming(
+                offsets = wordOffsets.copyOf(recordCount + 1),
+                startRel = wordStartRel.copyOf(wordCount),
+                durations = wordDurations.copyOf(wordCount),
+                charStarts = wordCharStarts.copyOf(wordCount),
+                charEnds = wordCharEnds.copyOf(wordCount)
+            )
+        }
     }
 }
@@ -0,0 +1,74 @@
+package com.miaudioplay.data
+
+/**
+ * 歌词时间轴查找
+ *
+ * 基于升序排列的时间戳数组。正常播放时位置只会向前推进，游标从上次结果
+ * 向后移动几步即可（均摊 O(1)）；跳转或后退时改用二分查找（O(log n)）。
+ * 非线程安全，每个计时协程持有自己的实例。
+ */
+class LyricTimeline(private val timestamps: LongArray) {
+
+    companion object {
+        // 第一行歌词开始之前
+        const val BEFORE_FIRST = -1
+
+        // 已是最后一行，没有下一个时间点
+        const val NO_BOUNDARY = Long.MAX_VALUE
+
+        // 游标向前移动超过此步数时改用二分查找
+        private const val MAX_LINEAR_STEPS = 8
+    }
+
+    private var cursor = BEFORE_FIRST
+
+    /**
+     * 返回 positionMs 时的当前行（最后一个时间戳 <= positionMs 的行），
+     * 第一行开始前返回 BEFORE_FIRST
+     */
+    fun indexAt(positionMs: Long): Int {
+        val ts = timestamps
+        if (ts.isEmpty() || positionMs < ts[0]) {
+            cursor = BEFORE_FIRST
+            return cursor
+        }
+
+        var index = cursor
+        if (index >= 0 && ts[index] <= positionMs) {
+            var steps = 0
+            while (index + 1 < ts.size && ts[index + 1] <= positionMs) {
+                if (++steps > MAX_LINEAR_STEPS) {
+                    index = search(positionMs)
+                    break
+                }
+                index++
+            }
+        } else {
+            index = search(positionMs)
+        }
+
+        cursor = index
+        return index
+    }
+
+    /**
+     * 第 index 行之后的下一个时间点（下一行开始时间），没有时返回 NO_BOUNDARY
+     */
+    fun nextBoundary(index: Int): Long {
+        val next = index + 1
+        return if (next < timestamps.size) timestamps[next] else NO_BOUNDARY
+    }
+
+    /**
+     * 二分查找第一个大于 positionMs 的时间戳，返回其前一行
+     */
+    private fun search(positionMs: Long): Int {
+        var low = 0
+        var high = timestamps.size
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (timestamps[mid] <= positionMs) low = mid + 1 else high = mid
+        }
+        return low - 1
+    }
+}
@@ -2,6 +2,8 @@ package com.miaudioplay.data
 
 import android.content.Context
 import android.util.Log
+import com.miaudioplay.data.models.LyricsDocument
+import com.miaudioplay.data.models.LyricsSource
 import java.io.File
 
 object LyricsCache {
@@ -20,23 +22,28 @@ object LyricsCache {
     }
     
     /**
-     * 生成缓存文件名
-     * 格式: {artist} - {title}.lrc
+     * 生成缓存文件名（不含扩展名）
+     * 格式: {artist} - {title}
      * 移除特殊字符以确保文件名合法
      */
-    private fun generateCacheFileName(artist: String, title: String): String {
+    private fun generateCacheBaseName(artist: String, title: String): String {
         val sanitizedArtist = artist.replace(Regex("[^a-zA-Z0-9\\u4e00-\\u9fa5\\s-]"), "").trim()
         val sanitizedTitle = title.replace(Regex("[^a-zA-Z0-9\\u4e00-\\u9fa5\\s-]"), "").trim()
-        return "$sanitizedArtist - $sanitizedTitle.lrc"
+        return "$sanitizedArtist - $sanitizedTitle"
     }
     
     /**
      * 保存歌词到缓存
+     * 同步歌词保存为 .lrc，非同步歌词保存为 .txt 纯文本
      */
-    fun saveLyrics(context: Context, artist: String, title: String, lrcContent: String): Boolean {
+    fun saveLyrics(context: Context, artist: String, title: String, document: LyricsDocument): Boolean {
+        if (document.content.isBlank()) return false
         return try {
-            val cacheFile = File(getCacheDir(context), generateCacheFileName(artist, title))
-            cacheFile.writeText(lrcContent, Charsets.UTF_8)
+            val baseName = generateCacheBaseName(artist, title)
+            val dir = getCacheDir(context)
+            val cacheFile = File(dir, baseName + if (document.isSynced) ".lrc" else ".txt")
+            File(dir, baseName + if (document.isSynced) ".txt" else ".lrc").delete()
+            cacheFile.writeText(document.content, Charsets.UTF_8)
             Log.d(TAG, "Lyrics cached: ${cacheFile.name}")
             true
         } catch (e: Exception) {
@@ -48,14 +55,22 @@ object LyricsCache {
     /**
      * 从缓存加载歌词
      */
-    fun loadLyrics(context: Context, artist: String, title: String): String? {
+    fun loadLyrics(context: Context, artist: String, title: String): LyricsDocument? {
         return try {
-            val cacheFile = File(getCacheDir(context), generateCacheFileName(artist, title))
-            if (cacheFile.exists() && cacheFile.canRead()) {
-                Log.d(TAG, "Lyrics loaded from cache: ${cacheFile.name}")
-                cacheFile.readText(Charsets.UTF_8)
-            } else {
-                null
+            val baseName = generateCacheBaseName(artist, title)
+            val dir = getCacheDir(context)
+            val lrcFile = File(dir, "$baseName.lrc")
+            val txtFile = File(dir, "$baseName.txt")
+            when {
+                lrcFile.canRead() -> {
+                    Log.d(TAG, "Lyrics loaded from cache: ${lrcFile.name}")
+                    LrcParser.parseDocument(lrcFile.readText(Charsets.UTF_8), LyricsSource.CACHE)
+                }
+                txtFile.canRead() -> {
+                    Log.d(TAG, "Lyrics loaded from cache: ${txtFile.name}")
+                    LrcParser.plainDocument(txtFile.readText(Charsets.UTF_8), LyricsSource.CACHE)
+                }
+                else -> null
             }
         } catch (e: Exception) {
             Log.e(TAG, "Failed to load cached lyrics", e)
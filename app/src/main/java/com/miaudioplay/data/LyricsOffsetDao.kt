@@ -0,0 +1,19 @@
+package com.miaudioplay.data
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import com.miaudioplay.data.models.LyricsOffset
+
+@Dao
+interface LyricsOffsetDao {
+    @Query("SELECT offsetMs FROM lyrics_offsets WHERE songId = :songId")
+    suspend fun getOffset(songId: Long): Long?
+    
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun setOffset(offset: LyricsOffset)
+    
+    @Query("DELETE FROM lyrics_offsets WHERE songId = :songId")
+    suspend fun clearOffset(songId: Long)
+}
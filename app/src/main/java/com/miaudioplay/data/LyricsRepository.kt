@@ -10,7 +10,7 @@ import com.miaudioplay.data.api.LyricsOvhApi
 import com.miaudioplay.data.api.NeteaseApi
 import com.miaudioplay.data.api.QQMusicApi
 import com.miaudioplay.data.api.SimpleLyricsApi
-import com.miaudioplay.data.models.LyricsSearchResult
+import com.miaudioplay.data.models.LyricsDocument
 import com.miaudioplay.utils.NetworkUtils
 import com.miaudioplay.data.models.LyricsSource
 import com.miaudioplay.utils.LrcFileWriter
@@ -29,8 +29,9 @@ class LyricsRepository(private val context: Context) {
      * 
      * 优先级：
      * 1. 本地LRC文件
-     * 2. 缓存
-     * 3. 在线搜索（LRCLIB -> QQ音乐 -> NetEase -> Lyrics.ovh -> ChartLyrics -> Happi -> SimpleLyrics -> Canarado）
+     * 2. 音频文件内嵌歌词
+     * 3. 缓存
+     * 4. 在线搜索（LRCLIB -> QQ音乐 -> NetEase -> Lyrics.ovh -> ChartLyrics -> Happi -> SimpleLyrics -> Canarado）
      * 
      * 在线歌词来源优先级：
      * 1. LRCLIB (免费，开源，无限制，支持同步歌词)
@@ -48,7 +49,7 @@ class LyricsRepository(private val context: Context) {
         artist: String,
         album: String = "",
         duration: Long = 0
-    ): LyricsSearchResult? = withContext(Dispatchers.IO) {
+    ): LyricsDocument? = withContext(Dispatchers.IO) {
         try {
             Log.d(TAG, "========================================")
             Log.d(TAG, "Getting lyrics for: $artist - $title")
@@ -56,28 +57,49 @@ class LyricsRepository(private val context: Context) {
             
             // 1. 尝试本地LRC文件
             val localLrc = LrcParser.findLrcFile(audioPath)
-            if (localLrc != null && localLrc.exists()) {
-                Log.d(TAG, "✓ Found local LRC file: ${localLrc.absolutePath}")
-                val content = localLrc.readText(Charsets.UTF_8)
-                return@withContext LyricsSearchResult(
-                    content = content,
-                    source = LyricsSource.LOCAL_FILE,
-                    cached = false
-                )
+            if (localLrc != null) {
+                try {
+                    // 流式解析，自动识别 UTF-8/UTF-16/GBK 编码，不把整个文件读成字符串
+                    val parsed = LrcParser.parseFromFile(localLrc)
+                    if (parsed.isNotEmpty()) {
+                        Log.d(TAG, "✓ Found local LRC file: ${localLrc.absolutePath}")
+                        // 在线下载时写出的LRC文件不含翻译，带翻译的版本在缓存中
+                        if (!parsed.hasTranslation) {
+                            val cached = LyricsCache.loadLyrics(context, artist, title)
+                            if (cached != null && cached.isSynced && cached.lines.hasTranslation) {
+                                Log.d(TAG, "✓ Using cached translation for local LRC")
+                                return@withContext cached
+                            }
+                        }
+                        return@withContext LyricsDocument(
+                            lines = parsed,
+                            isSynced = parsed.isSynced,
+                            source = LyricsSource.LOCAL_FILE
+                        )
+                    }
+                    Log.w(TAG, "Local LRC file has no timed lines: ${localLrc.absolutePath}")
+                } catch (e: java.io.IOException) {
+                    // 索引已过期（文件被删除或移动），刷新该目录后继续其他来源
+                    Log.w(TAG, "Indexed LRC file unreadable: ${localLrc.absolutePath}", e)
+                    localLrc.parentFile?.let { LrcIndex.invalidate(it) }
+                }
+            }
+            
+            // 2. 尝试音频文件内嵌歌词（ID3 USLT/SYLT、FLAC LYRICS）
+            val embedded = EmbeddedLyricsReader.readLyrics(audioPath)
+            if (embedded != null) {
+                Log.d(TAG, "✓ Found embedded lyrics (${embedded.lines.size} lines, synced=${embedded.isSynced})")
+                return@withContext embedded
             }
             
-            // 2. 尝试缓存
+            // 3. 尝试缓存
             val cachedLyrics = LyricsCache.loadLyrics(context, artist, title)
             if (cachedLyrics != null) {
-                Log.d(TAG, "✓ Found cached lyrics (${cachedLyrics.length} chars)")
-                return@withContext LyricsSearchResult(
-                    content = cachedLyrics,
-                    source = LyricsSource.CACHE,
-                    cached = true
-                )
+                Log.d(TAG, "✓ Found cached lyrics (${cachedLyrics.lines.size} lines, synced=${cachedLyrics.isSynced})")
+                return@withContext cachedLyrics
             }
             
-            // 3. 检查网络连接
+            // 4. 检查网络连接
             val networkStatus = NetworkUtils.getNetworkStatusDescription(context)
             Log.d(TAG, "Network status: $networkStatus")
             
@@ -86,26 +108,26 @@ class LyricsRepository(private val context: Context) {
                 return@withContext null
             }
             
-            // 4. 在线搜索
+            // 5. 在线搜索
             Log.d(TAG, "Searching online APIs...")
             val onlineResult = searchOnline(title, artist, album, duration)
             if (onlineResult != null) {
                 // 缓存下载的歌词到应用私有目录
-                LyricsCache.saveLyrics(context, artist, title, onlineResult.lyrics)
+                LyricsCache.saveLyrics(context, artist, title, onlineResult)
                 
-                // 尝试保存为LRC文件到音乐文件同目录
-                val lrcSaved = LrcFileWriter.saveLrcFile(audioPath, onlineResult.lyrics)
-                if (lrcSaved) {
-                    Log.d(TAG, "✓ LRC file created in music directory")
-                } else {
-                    Log.d(TAG, "✗ Could not create LRC file (permission or directory issue)")
+                // 只有同步歌词才保存为LRC文件到音乐文件同目录
+                if (onlineResult.isSynced) {
+                    // 翻译只保存在应用缓存中，音乐目录的LRC文件保持标准格式
+                    val lrcContent = LrcParser.stripTranslation(onlineResult.content)
+                    val lrcSaved = LrcFileWriter.saveLrcFile(audioPath, lrcContent)
+                    if (lrcSaved) {
+                        Log.d(TAG, "✓ LRC file created in music directory")
+                    } else {
+                        Log.d(TAG, "✗ Could not create LRC file (permission or directory issue)")
+                    }
                 }
                 
-                return@withContext LyricsSearchResult(
-                    content = onlineResult.lyrics,
-                    source = onlineResult.source,
-                    cached = false
-                )
+                return@withContext onlineResult
             }
             
             Log.d(TAG, "No lyrics found")
@@ -124,8 +146,8 @@ class LyricsRepository(private val context: Context) {
         artist: String,
         album: String,
         duration: Long
-    ): OnlineSearchResult? {
-        var lyrics: String?
+    ): LyricsDocument? {
+        var lyrics: LyricsDocument?
         
         // 1. 优先尝试 LRCLIB（免费、稳定、无需密钥、支持同步歌词）
         try {
@@ -138,9 +160,9 @@ class LyricsRepository(private val context: Context) {
                 duration = durationSeconds
             )
             
-            if (!lyrics.isNullOrBlank()) {
+            if (lyrics != null) {
                 Log.d(TAG, "✓ Found lyrics from LRCLIB")
-                return OnlineSearchResult(lyrics, LyricsSource.LRCLIB)
+                return lyrics
             }
         } catch (e: Exception) {
             Log.e(TAG, "LRCLIB search error", e)
@@ -152,7 +174,7 @@ class LyricsRepository(private val context: Context) {
             lyrics = QQMusicApi.searchAndGetLyrics(title, artist)
             if (lyrics != null) {
                 Log.d(TAG, "✓ Found lyrics from QQ Music")
-                return OnlineSearchResult(lyrics, LyricsSource.QQMUSIC)
+                return lyrics
             }
         } catch (e: Exception) {
             Log.e(TAG, "QQ Music search error", e)
@@ -164,7 +186,7 @@ class LyricsRepository(private val context: Context) {
             lyrics = NeteaseApi.searchAndGetLyrics(title, artist)
             if (lyrics != null) {
                 Log.d(TAG, "✓ Found lyrics from NetEase")
-                return OnlineSearchResult(lyrics, LyricsSource.NETEASE)
+                return lyrics
             }
         } catch (e: Exception) {
             Log.e(TAG, "NetEase search error", e)
@@ -174,9 +196,9 @@ class LyricsRepository(private val context: Context) {
         try {
             Log.d(TAG, "Trying Lyrics.ovh API...")
             lyrics = LyricsOvhApi.getLyrics(artist, title)
-            if (!lyrics.isNullOrBlank()) {
+            if (lyrics != null) {
                 Log.d(TAG, "✓ Found lyrics from Lyrics.ovh")
-                return OnlineSearchResult(lyrics, LyricsSource.LYRICS_OVH)
+                return lyrics
             }
         } catch (e: Exception) {
             Log.e(TAG, "Lyrics.ovh search error", e)
@@ -186,9 +208,9 @@ class LyricsRepository(private val context: Context) {
         try {
             Log.d(TAG, "Trying ChartLyrics API...")
             lyrics = ChartLyricsApi.searchLyrics(artist, title)
-            if (!lyrics.isNullOrBlank()) {
+            if (lyrics != null) {
                 Log.d(TAG, "✓ Found lyrics from ChartLyrics")
-                return OnlineSearchResult(lyrics, LyricsSource.CHARTLYRICS)
+                return lyrics
             }
         } catch (e: Exception) {
             Log.e(TAG, "ChartLyrics search error", e)
@@ -198,9 +220,9 @@ class LyricsRepository(private val context: Context) {
         try {
             Log.d(TAG, "Trying Happi API...")
             lyrics = HappiApi.searchLyrics(artist, title)
-            if (!lyrics.isNullOrBlank()) {
+            if (lyrics != null) {
                 Log.d(TAG, "✓ Found lyrics from Happi")
-                return OnlineSearchResult(lyrics, LyricsSource.HAPPI)
+                return lyrics
             }
         } catch (e: Exception) {
             Log.e(TAG, "Happi search error", e)
@@ -210,9 +232,9 @@ class LyricsRepository(private val context: Context) {
         try {
             Log.d(TAG, "Trying SimpleLyrics (scraper)...")
             lyrics = SimpleLyricsApi.searchLyrics(artist, title)
-            if (!lyrics.isNullOrBlank()) {
+            if (lyrics != null) {
                 Log.d(TAG, "✓ Found lyrics from SimpleLyrics")
-                return OnlineSearchResult(lyrics, LyricsSource.SIMPLE_LYRICS)
+                return lyrics
             }
         } catch (e: Exception) {
             Log.e(TAG, "SimpleLyrics search error", e)
@@ -222,9 +244,9 @@ class LyricsRepository(private val context: Context) {
         try {
             Log.d(TAG, "Trying Canarado API...")
             lyrics = CanaradoApi.searchLyrics(title, artist)
-            if (!lyrics.isNullOrBlank()) {
+            if (lyrics != null) {
                 Log.d(TAG, "✓ Found lyrics from Canarado")
-                return OnlineSearchResult(lyrics, LyricsSource.CANARADO)
+                return lyrics
             }
         } catch (e: Exception) {
             Log.e(TAG, "Canarado search error", e)
@@ -234,14 +256,6 @@ class LyricsRepository(private val context: Context) {
         return null
     }
     
-    /**
-     * 在线搜索结果
-     */
-    private data class OnlineSearchResult(
-        val lyrics: String,
-        val source: LyricsSource
-    )
-    
     /**
      * 清除歌词缓存
      */
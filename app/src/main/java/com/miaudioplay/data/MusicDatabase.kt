@@ -4,29 +4,131 @@ import android.content.Context
 import androidx.room.Database
 import androidx.room.Room
 import androidx.room.RoomDatabase
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
+import com.miaudioplay.data.models.LibrarySong
+import com.miaudioplay.data.models.LyricsOffset
 import com.miaudioplay.data.models.Playlist
 import com.miaudioplay.data.models.PlaylistSong
+import com.miaudioplay.data.models.SongStats
 
 @Database(
-    entities = [Playlist::class, PlaylistSong::class],
-    version = 1,
+    entities = [Playlist::class, PlaylistSong::class, LyricsOffset::class, LibrarySong::class, SongStats::class],
+    version = 7,
     exportSchema = false
 )
 abstract class MusicDatabase : RoomDatabase() {
     abstract fun playlistDao(): PlaylistDao
     abstract fun playlistSongDao(): PlaylistSongDao
+    abstract fun lyricsOffsetDao(): LyricsOffsetDao
+    abstract fun songDao(): SongDao
+    abstract fun songStatsDao(): SongStatsDao
     
     companion object {
         @Volatile
         private var INSTANCE: MusicDatabase? = null
         
+        // v2: 每首歌曲的歌词偏移
+        private val MIGRATION_1_2 = object : Migration(1, 2) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                db.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `lyrics_offsets` (" +
+                        "`songId` INTEGER NOT NULL, `offsetMs` INTEGER NOT NULL, PRIMARY KEY(`songId`))"
+                )
+            }
+        }
+        
+        // v3: 本地持久化的媒体库
+        private val MIGRATION_2_3 = object : Migration(2, 3) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                db.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `songs` (" +
+                        "`id` INTEGER NOT NULL, `title` TEXT NOT NULL, `artist` TEXT NOT NULL, " +
+                        "`album` TEXT NOT NULL, `albumId` INTEGER NOT NULL, `duration` INTEGER NOT NULL, " +
+                        "`path` TEXT NOT NULL, `dateModified` INTEGER NOT NULL, PRIMARY KEY(`id`))"
+                )
+            }
+        }
+        
+        // v4: 歌单条目记录歌曲信息，用于修复失效条目
+        private val MIGRATION_3_4 = object : Migration(3, 4) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                db.execSQL("ALTER TABLE `playlist_songs` ADD COLUMN `title` TEXT NOT NULL DEFAULT ''")
+                db.execSQL("ALTER TABLE `playlist_songs` ADD COLUMN `artist` TEXT NOT NULL DEFAULT ''")
+                db.execSQL("ALTER TABLE `playlist_songs` ADD COLUMN `path` TEXT NOT NULL DEFAULT ''")
+                // 已有条目从媒体库补全
+                db.execSQL(
+                    "UPDATE `playlist_songs` SET " +
+                        "`title` = IFNULL((SELECT `title` FROM `songs` WHERE `songs`.`id` = `playlist_songs`.`songId`), ''), " +
+                        "`artist` = IFNULL((SELECT `artist` FROM `songs` WHERE `songs`.`id` = `playlist_songs`.`songId`), ''), " +
+                        "`path` = IFNULL((SELECT `path` FROM `songs` WHERE `songs`.`id` = `playlist_songs`.`songId`), '')"
+                )
+            }
+        }
+        
+        // v5: 歌单条目的排序键，按原来的加入时间初始化
+        private val MIGRATION_4_5 = object : Migration(4, 5) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                db.execSQL("ALTER TABLE `playlist_songs` ADD COLUMN `position` INTEGER NOT NULL DEFAULT 0")
+                db.execSQL(
+                    "UPDATE `playlist_songs` SET `position` = ${PlaylistSongDao.POSITION_GAP} * (1 + (" +
+                        "SELECT COUNT(*) FROM `playlist_songs` AS `p` " +
+                        "WHERE `p`.`playlistId` = `playlist_songs`.`playlistId` AND " +
+                        "(`p`.`addedAt` < `playlist_songs`.`addedAt` OR " +
+                        "(`p`.`addedAt` = `playlist_songs`.`addedAt` AND `p`.`id` < `playlist_songs`.`id`))))"
+                )
+                db.execSQL(
+                    "CREATE INDEX IF NOT EXISTS `index_playlist_songs_playlistId_position` " +
+                        "ON `playlist_songs` (`playlistId`, `position`)"
+                )
+            }
+        }
+        
+        // v6: 同一首歌在歌单中唯一，批量添加使用 INSERT OR IGNORE
+        private val MIGRATION_5_6 = object : Migration(5, 6) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                // 去掉已有的重复条目，保留最早加入的一条
+                db.execSQL(
+                    "DELETE FROM `playlist_songs` WHERE `id` NOT IN " +
+                        "(SELECT MIN(`id`) FROM `playlist_songs` GROUP BY `playlistId`, `songId`)"
+                )
+                db.execSQL(
+                    "CREATE UNIQUE INDEX IF NOT EXISTS `index_playlist_songs_playlistId_songId` " +
+                        "ON `playlist_songs` (`playlistId`, `songId`)"
+                )
+                // 已被上面的复合索引覆盖
+                db.execSQL("DROP INDEX IF EXISTS `index_playlist_songs_playlistId`")
+            }
+        }
+        
+        // v7: 智能歌单（规则）、歌曲加入时间与播放统计
+        private val MIGRATION_6_7 = object : Migration(6, 7) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                db.execSQL("ALTER TABLE `playlists` ADD COLUMN `rules` TEXT")
+                db.execSQL("ALTER TABLE `songs` ADD COLUMN `dateAdded` INTEGER NOT NULL DEFAULT 0")
+                // 已有歌曲先用修改时间代替；LibrarySync 的 LIBRARY_SCHEMA 随之递增，
+                // 下次同步时全量扫描一次，写入真实的添加时间
+                db.execSQL("UPDATE `songs` SET `dateAdded` = `dateModified`")
+                db.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `song_stats` (" +
+                        "`songId` INTEGER NOT NULL, `playCount` INTEGER NOT NULL, " +
+                        "`lastPlayedAt` INTEGER NOT NULL, `hasLyrics` INTEGER, PRIMARY KEY(`songId`))"
+                )
+            }
+        }
+        
         fun getDatabase(context: Context): MusicDatabase {
             return INSTANCE ?: synchronized(this) {
                 val instance = Room.databaseBuilder(
                     context.applicationContext,
                     MusicDatabase::class.java,
                     "music_database"
-                ).build()
+                )
+                    .addMigrations(
+                        MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4,
+                        MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7
+                    )
+                    .build()
                 INSTANCE = instance
                 instance
             }
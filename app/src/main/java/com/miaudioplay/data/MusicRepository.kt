@@ -1,98 +1,108 @@
 package com.miaudioplay.data
 
-import android.content.ContentResolver
-import android.content.ContentUris
 import android.content.Context
 import android.net.Uri
-import android.provider.MediaStore
+import androidx.paging.Pager
+import androidx.paging.PagingConfig
+import androidx.paging.PagingData
+import androidx.paging.map
+import com.miaudioplay.data.models.LyricsOffset
 import com.miaudioplay.data.models.Playlist
 import com.miaudioplay.data.models.PlaylistSong
+import com.miaudioplay.data.models.PlaylistSummary
+import com.miaudioplay.data.models.SmartRule
 import com.miaudioplay.data.models.Song
+import com.miaudioplay.data.models.toPlaylistSong
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
-import kotlinx.coroutines.withContext
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.map
 
 class MusicRepository(context: Context) {
-    private val contentResolver: ContentResolver = context.contentResolver
+    companion object {
+        private const val PAGE_SIZE = 60
+    }
+    
     private val database = MusicDatabase.getDatabase(context)
     private val playlistDao = database.playlistDao()
     private val playlistSongDao = database.playlistSongDao()
+    private val lyricsOffsetDao = database.lyricsOffsetDao()
+    private val songDao = database.songDao()
+    private val songStatsDao = database.songStatsDao()
+    private val librarySync = LibrarySync(context, database)
+    private val playlistTransfer = PlaylistTransfer(context, database)
     
-    suspend fun loadSongs(): List<Song> = withContext(Dispatchers.IO) {
-        val songs = mutableListOf<Song>()
-        
-        val projection = arrayOf(
-            MediaStore.Audio.Media._ID,
-            MediaStore.Audio.Media.TITLE,
-            MediaStore.Audio.Media.ARTIST,
-            MediaStore.Audio.Media.ALBUM,
-            MediaStore.Audio.Media.ALBUM_ID,
-            MediaStore.Audio.Media.DURATION,
-            MediaStore.Audio.Media.DATA
-        )
-        
-        val selection = "${MediaStore.Audio.Media.IS_MUSIC} != 0"
-        val sortOrder = "${MediaStore.Audio.Media.TITLE} ASC"
-        
-        contentResolver.query(
-            MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
-            projection,
-            selection,
-            null,
-            sortOrder
-        )?.use { cursor ->
-            val idColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID)
-            val titleColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.TITLE)
-            val artistColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ARTIST)
-            val albumColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ALBUM)
-            val albumIdColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ALBUM_ID)
-            val durationColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DURATION)
-            val dataColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATA)
-            
-            while (cursor.moveToNext()) {
-                val id = cursor.getLong(idColumn)
-                val title = cursor.getString(titleColumn) ?: "Unknown"
-                val artist = cursor.getString(artistColumn) ?: "Unknown Artist"
-                val album = cursor.getString(albumColumn) ?: "Unknown Album"
-                val albumId = cursor.getLong(albumIdColumn)
-                val duration = cursor.getLong(durationColumn)
-                val path = cursor.getString(dataColumn) ?: ""
-                
-                val contentUri = ContentUris.withAppendedId(
-                    MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
-                    id
-                )
-                
-                val albumArtUri = ContentUris.withAppendedId(
-                    Uri.parse("content://media/external/audio/albumart"),
-                    albumId
-                )
-                
-                songs.add(
-                    Song(
-                        id = id,
-                        title = title,
-                        artist = artist,
-                        album = album,
-                        duration = duration,
-                        uri = contentUri,
-                        albumArtUri = albumArtUri,
-                        path = path
-                    )
-                )
-            }
-        }
-        
-        songs
+    /**
+     * 本地媒体库，启动时直接从数据库读取，不等待 MediaStore 扫描
+     *
+     * 数据库每次变化都会重新生成按列保存的快照，实体对象只是临时的；
+     * 同步期间的逐批写入不触发读取，同步结束后只重新生成一次
+     */
+    fun observeSongs(): Flow<LibraryStore> = songDao.getAllSongs()
+        .pausedWhileSyncing(librarySync.isSyncing)
+        .map { rows -> LibraryStore.from(rows) }
+        .flowOn(Dispatchers.Default)
+    
+    /**
+     * 分页的媒体库：内存中只保留可见位置附近的若干页，支持直接跳到任意位置
+     */
+    fun pagedSongs(): Flow<PagingData<Song>> = Pager(
+        config = PagingConfig(
+            pageSize = PAGE_SIZE,
+            enablePlaceholders = true,
+            maxSize = PAGE_SIZE * 5,
+            jumpThreshold = PAGE_SIZE * 3
+        ),
+        pagingSourceFactory = { songDao.pagingSource() }
+    ).flow.map { page -> page.map { it.toSong() } }
+    
+    fun observeSongCount(): Flow<Int> = songDao.observeCount()
+    
+    /**
+     * 歌曲在分页列表中的位置，不在媒体库中时返回null
+     */
+    suspend fun getSongPosition(songId: Long): Int? {
+        return if (songDao.containsSong(songId)) songDao.getPosition(songId) else null
     }
     
+    /**
+     * 在后台把 MediaStore 的变化同步到本地媒体库
+     */
+    suspend fun syncLibrary(): LibraryDiff = librarySync.sync()
+    
+    /**
+     * 只同步指定ID的歌曲
+     */
+    suspend fun syncSongs(ids: Set<Long>): LibraryDiff = librarySync.syncSongs(ids)
+    
+    /**
+     * MediaStore 变化通知（已合并），null 表示需要增量同步
+     */
+    fun libraryChanges(): Flow<Set<Long>?> = librarySync.changes()
+    
     // Playlist operations
     fun getAllPlaylists(): Flow<List<Playlist>> = playlistDao.getAllPlaylists()
     
+    fun getPlaylistSummaries(): Flow<List<PlaylistSummary>> = playlistDao.getPlaylistSummaries()
+    
     suspend fun createPlaylist(name: String): Long {
         return playlistDao.insertPlaylist(Playlist(name = name))
     }
     
+    /**
+     * 智能歌单只保存规则，歌曲由 getSmartPlaylistSongIds 实时查询
+     * 规则无法编译时不创建，返回 null
+     */
+    suspend fun createSmartPlaylist(name: String, rule: SmartRule): Long? {
+        if (SmartPlaylistQuery.compile(rule) == null) return null
+        return playlistDao.insertPlaylist(Playlist(name = name, rules = rule.toJson()))
+    }
+    
+    fun observePlaylist(playlistId: Long): Flow<Playlist?> = playlistDao.observePlaylist(playlistId)
+    
+    suspend fun getPlaylist(playlistId: Long): Playlist? = playlistDao.getPlaylistById(playlistId)
+    
     suspend fun deletePlaylist(playlistId: Long) {
         playlistDao.deletePlaylistById(playlistId)
     }
@@ -115,15 +125,61 @@ class MusicRepository(context: Context) {
     }
     
     suspend fun addSongToPlaylist(playlistId: Long, song: Song) {
-        if (!playlistSongDao.isSongInPlaylist(playlistId, song.id)) {
-            playlistSongDao.insertPlaylistSong(
-                PlaylistSong(
-                    playlistId = playlistId,
+        addSongsToPlaylist(playlistId, listOf(song))
+    }
+    
+    /**
+     * 批量添加到歌单末尾，已在歌单中的歌曲被忽略；返回实际添加的数量
+     */
+    suspend fun addSongsToPlaylist(playlistId: Long, songs: List<Song>): Int {
+        return playlistSongDao.appendSongs(playlistId, songs.map { it.toPlaylistSong(playlistId) })
+    }
+    
+    suspend fun getPlaylistSongs(playlistId: Long): List<PlaylistSong> {
+        return playlistSongDao.getPlaylistSongs(playlistId)
+    }
+    
+    /**
+     * 把失效的歌单条目指向重新匹配到的歌曲
+     */
+    suspend fun repairPlaylistSongs(repairs: Map<PlaylistSong, Song>) {
+        if (repairs.isEmpty()) return
+        playlistSongDao.updatePlaylistSongs(
+            repairs.map { (entry, song) ->
+                entry.copy(
                     songId = song.id,
-                    songUri = song.uri.toString()
+                    songUri = song.uri.toString(),
+                    title = song.title,
+                    artist = song.artist,
+                    path = song.path
                 )
-            )
-        }
+            }
+        )
+    }
+    
+    suspend fun removePlaylistSongs(entries: List<PlaylistSong>) {
+        playlistSongDao.removeSongs(entries.map { it.id })
+    }
+    
+    /**
+     * 把歌单条目移动到第 toIndex 项
+     */
+    suspend fun movePlaylistSong(playlistId: Long, entryId: Long, toIndex: Int) {
+        playlistSongDao.moveSong(playlistId, entryId, toIndex)
+    }
+    
+    /**
+     * 在歌单第 index 项之前插入多首歌曲
+     */
+    suspend fun insertSongsIntoPlaylist(playlistId: Long, songs: List<Song>, index: Int) {
+        playlistSongDao.insertSongsAt(playlistId, songs.map { it.toPlaylistSong(playlistId) }, index)
+    }
+    
+    /**
+     * 批量从歌单移除，在同一事务中完成
+     */
+    suspend fun removeSongsFromPlaylist(playlistId: Long, songIds: Collection<Long>) {
+        playlistSongDao.removeSongsFromPlaylist(playlistId, songIds)
     }
     
     suspend fun removeSongFromPlaylist(playlistId: Long, songId: Long) {
@@ -133,4 +189,56 @@ class MusicRepository(context: Context) {
     suspend fun getPlaylistSongCount(playlistId: Long): Int {
         return playlistSongDao.getSongCount(playlistId)
     }
+    
+    // Playlist file operations
+    /**
+     * 从 M3U/M3U8/PLS 文件导入为新歌单，失败时返回 null
+     */
+    suspend fun importPlaylist(
+        uri: Uri,
+        library: LibraryStore,
+        onProgress: (ImportProgress) -> Unit
+    ): ImportResult? = playlistTransfer.import(uri, library, onProgress)
+    
+    suspend fun exportPlaylist(playlistId: Long, uri: Uri): Int? = playlistTransfer.export(playlistId, uri)
+    
+    // Smart playlist operations
+    /**
+     * 智能歌单中的歌曲 id，媒体库同步或播放统计变化时重新查询
+     * 规则无效时为空列表
+     */
+    fun observeSmartPlaylistSongIds(rules: String): Flow<List<Long>> {
+        val query = SmartRule.fromJson(rules)?.let { SmartPlaylistQuery.compile(it) } ?: return flowOf(emptyList())
+        return songDao.observeSongIds(query)
+    }
+    
+    suspend fun getSmartPlaylistSongIds(rules: String): List<Long> {
+        val query = SmartRule.fromJson(rules)?.let { SmartPlaylistQuery.compile(it) } ?: return emptyList()
+        return songDao.getSongIds(query)
+    }
+    
+    // Song stats operations
+    suspend fun recordPlay(songId: Long) {
+        songStatsDao.recordPlay(songId, System.currentTimeMillis())
+    }
+    
+    /**
+     * 记录歌曲找到过歌词；没找到不记录，离线或接口失败时无法区分是否真的没有歌词
+     */
+    suspend fun markHasLyrics(songId: Long) {
+        songStatsDao.setHasLyrics(songId, true)
+    }
+    
+    // Lyrics offset operations
+    suspend fun getLyricsOffset(songId: Long): Long {
+        return lyricsOffsetDao.getOffset(songId) ?: 0L
+    }
+    
+    suspend fun setLyricsOffset(songId: Long, offsetMs: Long) {
+        if (offsetMs == 0L) {
+            lyricsOffsetDao.clearOffset(songId)
+        } else {
+            lyricsOffsetDao.setOffset(LyricsOffset(songId, offsetMs))
+        }
+    }
 }
@@ -0,0 +1,29 @@
+package com.miaudioplay.data
+
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.emptyFlow
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.onEach
+import kotlinx.coroutines.flow.take
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * 同步期间暂停读取：同步中除了首次读取（启动时需要尽快显示已有数据）外不再订阅上游，
+ * 同步结束后重新订阅读取一次，批量写入的多次提交不会逐次触发整表读取
+ */
+@OptIn(ExperimentalCoroutinesApi::class)
+internal fun <T> Flow<T>.pausedWhileSyncing(isSyncing: Flow<Boolean>): Flow<T> = flow {
+    val loaded = AtomicBoolean(false)
+    emitAll(
+        isSyncing.flatMapLatest { syncing ->
+            when {
+                !syncing -> this@pausedWhileSyncing
+                loaded.get() -> emptyFlow()
+                else -> this@pausedWhileSyncing.take(1)
+            }
+        }.onEach { loaded.set(true) }
+    )
+}
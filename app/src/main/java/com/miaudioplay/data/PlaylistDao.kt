@@ -2,7 +2,9 @@ package com.miaudioplay.data
 
 import androidx.room.*
 import com.miaudioplay.data.models.Playlist
+import com.miaudioplay.data.models.PlaylistExportRow
 import com.miaudioplay.data.models.PlaylistSong
+import com.miaudioplay.data.models.PlaylistSummary
 import kotlinx.coroutines.flow.Flow
 
 @Dao
@@ -10,9 +12,30 @@ interface PlaylistDao {
     @Query("SELECT * FROM playlists ORDER BY createdAt DESC")
     fun getAllPlaylists(): Flow<List<Playlist>>
     
+    /**
+     * 所有歌单及其歌曲数、总时长和封面，一次查询完成
+     * 涉及的三张表任一变化时重新查询
+     */
+    @Query(
+        "SELECT playlists.*, COUNT(songs.id) AS songCount, " +
+            "IFNULL(SUM(songs.duration), 0) AS totalDuration, " +
+            "(SELECT cover.albumId FROM playlist_songs AS entry " +
+            "INNER JOIN songs AS cover ON cover.id = entry.songId " +
+            "WHERE entry.playlistId = playlists.id ORDER BY entry.position, entry.id LIMIT 1) AS coverAlbumId " +
+            "FROM playlists " +
+            "LEFT JOIN playlist_songs ON playlist_songs.playlistId = playlists.id " +
+            "LEFT JOIN songs ON songs.id = playlist_songs.songId " +
+            "GROUP BY playlists.id " +
+            "ORDER BY playlists.createdAt DESC"
+    )
+    fun getPlaylistSummaries(): Flow<List<PlaylistSummary>>
+    
     @Query("SELECT * FROM playlists WHERE id = :id")
     suspend fun getPlaylistById(id: Long): Playlist?
     
+    @Query("SELECT * FROM playlists WHERE id = :id")
+    fun observePlaylist(id: Long): Flow<Playlist?>
+    
     @Insert
     suspend fun insertPlaylist(playlist: Playlist): Long
     
@@ -26,16 +49,41 @@ interface PlaylistDao {
     suspend fun deletePlaylistById(id: Long)
 }
 
+/**
+ * 歌单条目按 position 排序
+ *
+ * 相邻条目的 position 之间留有 POSITION_GAP 的间隔：移动或插入时取前后两项的中间值，
+ * 只写入被移动/插入的行；间隔用尽时才对整个歌单重新编号。
+ */
 @Dao
 interface PlaylistSongDao {
-    @Query("SELECT * FROM playlist_songs WHERE playlistId = :playlistId ORDER BY addedAt")
+    companion object {
+        const val POSITION_GAP = 65_536L
+        
+        // 受 SQLite 变量个数限制（旧版本为 999），IN 列表分批绑定
+        const val DELETE_CHUNK_SIZE = 500
+    }
+    
+    @Query("SELECT * FROM playlist_songs WHERE playlistId = :playlistId ORDER BY position, id")
     fun getSongsForPlaylist(playlistId: Long): Flow<List<PlaylistSong>>
     
-    @Query("SELECT songUri FROM playlist_songs WHERE playlistId = :playlistId ORDER BY addedAt")
+    @Query("SELECT songUri FROM playlist_songs WHERE playlistId = :playlistId ORDER BY position, id")
     suspend fun getSongUrisForPlaylist(playlistId: Long): List<String>
     
-    @Insert
-    suspend fun insertPlaylistSong(playlistSong: PlaylistSong)
+    @Query("SELECT * FROM playlist_songs WHERE playlistId = :playlistId ORDER BY position, id")
+    suspend fun getPlaylistSongs(playlistId: Long): List<PlaylistSong>
+    
+    /**
+     * 已在歌单中的歌曲被唯一索引忽略，返回值中对应位置为 -1
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    suspend fun insertPlaylistSongs(playlistSongs: List<PlaylistSong>): List<Long>
+    
+    @Update
+    suspend fun updatePlaylistSongs(playlistSongs: List<PlaylistSong>)
+    
+    @Query("DELETE FROM playlist_songs WHERE id IN (:ids)")
+    suspend fun deletePlaylistSongs(ids: List<Long>)
     
     @Delete
     suspend fun deletePlaylistSong(playlistSong: PlaylistSong)
@@ -43,9 +91,136 @@ interface PlaylistSongDao {
     @Query("DELETE FROM playlist_songs WHERE playlistId = :playlistId AND songId = :songId")
     suspend fun removeSongFromPlaylist(playlistId: Long, songId: Long)
     
-    @Query("SELECT EXISTS(SELECT 1 FROM playlist_songs WHERE playlistId = :playlistId AND songId = :songId)")
-    suspend fun isSongInPlaylist(playlistId: Long, songId: Long): Boolean
+    @Query("DELETE FROM playlist_songs WHERE playlistId = :playlistId AND songId IN (:songIds)")
+    suspend fun deleteSongsFromPlaylist(playlistId: Long, songIds: List<Long>)
 
     @Query("SELECT COUNT(*) FROM playlist_songs WHERE playlistId = :playlistId")
     suspend fun getSongCount(playlistId: Long): Int
+    
+    @Query("SELECT MAX(position) FROM playlist_songs WHERE playlistId = :playlistId")
+    suspend fun getMaxPosition(playlistId: Long): Long?
+    
+    /**
+     * 从第 offset 项开始的若干个排序键（排除 excludeId 对应的条目）
+     */
+    @Query(
+        "SELECT position FROM playlist_songs WHERE playlistId = :playlistId AND id != :excludeId " +
+            "ORDER BY position, id LIMIT :limit OFFSET :offset"
+    )
+    suspend fun getPositions(playlistId: Long, offset: Int, limit: Int, excludeId: Long = 0): List<Long>
+    
+    @Query("SELECT id FROM playlist_songs WHERE playlistId = :playlistId ORDER BY position, id")
+    suspend fun getEntryIds(playlistId: Long): List<Long>
+    
+    @Query("UPDATE playlist_songs SET position = :position WHERE id = :entryId")
+    suspend fun updatePosition(entryId: Long, position: Long)
+    
+    /**
+     * 从 (afterPosition, afterId) 之后按顺序读取最多 limit 个条目（键集分页），
+     * 导出时逐页写出，不需要一次加载整个歌单
+     */
+    @Query(
+        "SELECT playlist_songs.*, songs.duration AS duration FROM playlist_songs " +
+            "LEFT JOIN songs ON songs.id = playlist_songs.songId " +
+            "WHERE playlistId = :playlistId AND (position > :afterPosition OR " +
+            "(position = :afterPosition AND playlist_songs.id > :afterId)) " +
+            "ORDER BY position, playlist_songs.id LIMIT :limit"
+    )
+    suspend fun getExportPage(
+        playlistId: Long,
+        afterPosition: Long,
+        afterId: Long,
+        limit: Int
+    ): List<PlaylistExportRow>
+    
+    /**
+     * 批量追加到歌单末尾，已在歌单中的歌曲被忽略
+     *
+     * 整批在同一事务中写入，歌单的 Flow 只失效一次；返回实际添加的数量
+     */
+    @Transaction
+    suspend fun appendSongs(playlistId: Long, songs: List<PlaylistSong>): Int {
+        if (songs.isEmpty()) return 0
+        val last = getMaxPosition(playlistId) ?: 0L
+        val rowIds = insertPlaylistSongs(
+            songs.mapIndexed { i, song ->
+                song.copy(playlistId = playlistId, position = last + (i + 1) * POSITION_GAP)
+            }
+        )
+        return rowIds.count { it != -1L }
+    }
+    
+    /**
+     * 把条目移动到第 toIndex 项（按移除该条目后的列表计算），只修改这一行
+     */
+    @Transaction
+    suspend fun moveSong(playlistId: Long, entryId: Long, toIndex: Int) {
+        val position = positionsBetween(playlistId, toIndex, 1, entryId)
+            ?: run {
+                rebalance(playlistId)
+                positionsBetween(playlistId, toIndex, 1, entryId)
+            }
+            ?: return
+        updatePosition(entryId, position[0])
+    }
+    
+    /**
+     * 在第 index 项之前批量插入
+     */
+    @Transaction
+    suspend fun insertSongsAt(playlistId: Long, songs: List<PlaylistSong>, index: Int) {
+        if (songs.isEmpty()) return
+        val positions = positionsBetween(playlistId, index, songs.size)
+            ?: run {
+                rebalance(playlistId)
+                positionsBetween(playlistId, index, songs.size)
+            }
+            ?: return
+        insertPlaylistSongs(songs.mapIndexed { i, song -> song.copy(playlistId = playlistId, position = positions[i]) })
+    }
+    
+    /**
+     * 批量移除；删除不影响其余条目的顺序，无需重新编号
+     */
+    @Transaction
+    suspend fun removeSongs(entryIds: List<Long>) {
+        entryIds.chunked(DELETE_CHUNK_SIZE).forEach { deletePlaylistSongs(it) }
+    }
+    
+    /**
+     * 按歌曲 id 从歌单中批量移除，直接在数据库中删除，不需要先读出整个歌单
+     */
+    @Transaction
+    suspend fun removeSongsFromPlaylist(playlistId: Long, songIds: Collection<Long>) {
+        songIds.toList().chunked(DELETE_CHUNK_SIZE).forEach { deleteSongsFromPlaylist(playlistId, it) }
+    }
+    
+    /**
+     * 重新以 POSITION_GAP 为间隔编号，只在间隔用尽时调用
+     */
+    @Transaction
+    suspend fun rebalance(playlistId: Long) {
+        getEntryIds(playlistId).forEachIndexed { i, entryId ->
+            updatePosition(entryId, (i + 1) * POSITION_GAP)
+        }
+    }
+    
+    /**
+     * 计算插入到第 index 项之前的 count 个排序键；间隔不足时返回 null
+     */
+    private suspend fun positionsBetween(playlistId: Long, index: Int, count: Int, excludeId: Long = 0): LongArray? {
+        val neighbours = if (index <= 0) {
+            listOf<Long?>(null) + getPositions(playlistId, 0, 1, excludeId)
+        } else {
+            getPositions(playlistId, index - 1, 2, excludeId)
+        }
+        val before = neighbours.getOrNull(0)
+        val after = neighbours.getOrNull(1)
+        
+        val low = before ?: ((after ?: 0L) - (count + 1) * POSITION_GAP)
+        val high = after ?: (low + (count + 1) * POSITION_GAP)
+        val step = (high - low) / (count + 1)
+        if (step < 1) return null
+        return LongArray(count) { low + step * (it + 1) }
+    }
 }
@@ -0,0 +1,134 @@
+package com.miaudioplay.data
+
+import android.net.Uri
+import java.io.BufferedReader
+
+/**
+ * 歌单文件中的一个条目
+ *
+ * @param location 文件中的原始位置：绝对路径、相对路径或 file:// URI
+ * @param title/artist 来自 #EXTINF 或 PLS 的 TitleN，可能为空
+ */
+data class PlaylistFileEntry(
+    val location: String,
+    val title: String? = null,
+    val artist: String? = null,
+    val durationSeconds: Long? = null
+)
+
+/**
+ * 逐行解析 M3U/M3U8 与 PLS 歌单，每解析出一个条目就回调一次，不在内存中保留整个文件
+ *
+ * 格式按内容判断：第一行非空内容为 "[playlist]" 时按 PLS 解析，否则按 M3U 解析。
+ */
+object PlaylistFileParser {
+    private val PLS_KEY = Regex("""^(File|Title|Length)(\d+)$""", RegexOption.IGNORE_CASE)
+
+    suspend fun parse(reader: BufferedReader, onEntry: suspend (PlaylistFileEntry) -> Unit) {
+        var line = reader.readLine() ?: return
+        // UTF-8 BOM
+        line = line.removePrefix("\uFEFF")
+        while (line.isBlank()) {
+            line = reader.readLine() ?: return
+        }
+        if (line.trim().equals("[playlist]", ignoreCase = true)) {
+            parsePls(reader, onEntry)
+        } else {
+            parseM3u(line, reader, onEntry)
+        }
+    }
+
+    private suspend fun parseM3u(
+        firstLine: String,
+        reader: BufferedReader,
+        onEntry: suspend (PlaylistFileEntry) -> Unit
+    ) {
+        // 紧接在条目前的 #EXTINF 信息
+        var info: PlaylistFileEntry? = null
+        var line: String? = firstLine
+        while (line != null) {
+            val trimmed = line.trim()
+            when {
+                trimmed.isEmpty() -> Unit
+                trimmed.startsWith("#EXTINF:", ignoreCase = true) -> info = parseExtInf(trimmed)
+                trimmed.startsWith("#") -> Unit
+                else -> {
+                    onEntry(info?.copy(location = trimmed) ?: PlaylistFileEntry(trimmed))
+                    info = null
+                }
+            }
+            line = reader.readLine()
+        }
+    }
+
+    /**
+     * "#EXTINF:123,Artist - Title"，没有 " - " 时整段作为标题
+     */
+    private fun parseExtInf(line: String): PlaylistFileEntry {
+        val body = line.substring("#EXTINF:".length)
+        val comma = body.indexOf(',')
+        val duration = (if (comma >= 0) body.substring(0, comma) else body)
+            .trim()
+            .substringBefore(' ')  // 扩展属性，如 tvg-id="..."
+            .toLongOrNull()
+            ?.takeIf { it >= 0 }
+        val display = if (comma >= 0) body.substring(comma + 1).trim() else ""
+        val separator = display.indexOf(" - ")
+        return if (separator > 0) {
+            PlaylistFileEntry(
+                location = "",
+                title = display.substring(separator + 3).trim(),
+                artist = display.substring(0, separator).trim(),
+                durationSeconds = duration
+            )
+        } else {
+            PlaylistFileEntry(location = "", title = display.ifEmpty { null }, durationSeconds = duration)
+        }
+    }
+
+    /**
+     * PLS 中同一条目的 FileN/TitleN/LengthN 通常连续出现，编号变化时输出上一个条目
+     */
+    private suspend fun parsePls(reader: BufferedReader, onEntry: suspend (PlaylistFileEntry) -> Unit) {
+        var currentNumber = -1
+        var current: PlaylistFileEntry? = null
+
+        suspend fun flush() {
+            current?.takeIf { it.location.isNotEmpty() }?.let { onEntry(it) }
+            current = null
+        }
+
+        while (true) {
+            val line = reader.readLine() ?: break
+            val equals = line.indexOf('=')
+            if (equals <= 0) continue
+            val match = PLS_KEY.matchEntire(line.substring(0, equals).trim()) ?: continue
+            val number = match.groupValues[2].toIntOrNull() ?: continue
+            val value = line.substring(equals + 1).trim()
+            if (number != currentNumber) {
+                flush()
+                currentNumber = number
+            }
+            val entry = current ?: PlaylistFileEntry(location = "")
+            current = when (match.groupValues[1].lowercase()) {
+                "file" -> entry.copy(location = value)
+                "title" -> entry.copy(title = value.ifEmpty { null })
+                else -> entry.copy(durationSeconds = value.toLongOrNull()?.takeIf { it >= 0 })
+            }
+        }
+        flush()
+    }
+
+    /**
+     * 把条目位置规范为文件路径：去掉 file:// 前缀并解码，统一使用 '/'
+     * 网络地址等无法对应本地文件的返回 null
+     */
+    fun toPath(location: String): String? {
+        val normalized = location.replace('\\', '/')
+        return when {
+            normalized.startsWith("file://", ignoreCase = true) -> Uri.parse(normalized).path
+            normalized.contains("://") -> null
+            else -> normalized
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.miaudioplay.data
+
+import com.miaudioplay.data.models.PlaylistSong
+import com.miaudioplay.data.models.Song
+
+/**
+ * 歌单解析结果
+ *
+ * @param songs 按歌单顺序排列的歌曲
+ * @param orphans 在媒体库中找不到的条目（歌曲已删除或 MediaStore 重建后 id 变化）
+ */
+data class ResolvedPlaylist(
+    val songs: List<Song>,
+    val orphans: List<PlaylistSong>
+) {
+    companion object {
+        val EMPTY = ResolvedPlaylist(emptyList(), emptyList())
+    }
+}
+
+/**
+ * 把歌单条目与媒体库按 id 连接
+ *
+ * 一次遍历歌单条目，通过 LibraryStore 的 id 索引查找，保持歌单顺序。
+ * 每次条目列表或媒体库变化都会得到新对象，缓存几乎不会命中，因此不做缓存。
+ * 失效条目与导入的歌单文件条目则按路径、标题与艺术家重新匹配。
+ */
+object PlaylistResolver {
+    fun resolve(rows: List<PlaylistSong>, library: LibraryStore): ResolvedPlaylist {
+        val songs = ArrayList<Song>(rows.size)
+        val orphans = ArrayList<PlaylistSong>()
+        for (row in rows) {
+            val song = library.findById(row.songId)
+            if (song != null) songs.add(song) else orphans.add(row)
+        }
+        return ResolvedPlaylist(songs, orphans)
+    }
+
+    /**
+     * 为失效条目寻找替代歌曲：先按文件路径，再按标题+艺术家匹配
+     * 已在歌单中的歌曲（existingIds）不会被重复匹配
+     */
+    fun findReplacements(
+        orphans: List<PlaylistSong>,
+        library: LibraryStore,
+        existingIds: Set<Long>
+    ): Map<PlaylistSong, Song> {
+        val replacements = LinkedHashMap<PlaylistSong, Song>()
+        val usedIds = HashSet(existingIds)
+        for (orphan in orphans) {
+            val song = orphan.path.takeIf { it.isNotEmpty() }?.let { library.findByPath(it) }
+                ?: orphan.title.takeIf { it.isNotEmpty() }?.let { library.findByTitleAndArtist(it, orphan.artist) }
+            if (song != null && usedIds.add(song.id)) replacements[orphan] = song
+        }
+        return replacements
+    }
+
+    /**
+     * 把歌单文件中的条目匹配到媒体库中的歌曲，匹配不到返回 null
+     */
+    fun match(entry: PlaylistFileEntry, library: LibraryStore): Song? {
+        val path = PlaylistFileParser.toPath(entry.location)
+        if (path != null) {
+            if (path.startsWith("/")) {
+                library.findByPath(path)?.let { return it }
+            }
+            // 相对路径，或来自其他设备的绝对路径（如 "C:/Music/..."）：
+            // 从完整路径开始逐级去掉开头的目录，按后缀匹配；
+            // 后缀对应多首歌曲（如只剩 "01.mp3"）时无法确定，改用标题与艺术家匹配
+            var suffix: String = path
+            while (true) {
+                val normalized = suffix.removePrefix("./").removePrefix("../")
+                if (normalized != suffix) {
+                    suffix = normalized
+                    continue
+                }
+                val index = library.indexOfPathSuffix(suffix)
+                if (index >= 0) return library[index]
+                if (index == LibraryStore.AMBIGUOUS) break
+                val slash = suffix.indexOf('/')
+                if (slash < 0) break
+                suffix = suffix.substring(slash + 1)
+            }
+        }
+
+        val title = entry.title
+        if (title != null) {
+            if (entry.artist != null) {
+                library.findByTitleAndArtist(title, entry.artist)?.let { return it }
+            }
+            // PLS 的标题和部分 M3U 只有 "艺术家 - 标题" 一段文本
+            splitArtistTitle(title)?.let { (artist, songTitle) ->
+                library.findByTitleAndArtist(songTitle, artist)?.let { return it }
+            }
+        }
+
+        // 常见的 "艺术家 - 标题.mp3" 文件名
+        val stem = path?.substringAfterLast('/')?.substringBeforeLast('.') ?: return null
+        return splitArtistTitle(stem)?.let { (artist, songTitle) ->
+            library.findByTitleAndArtist(songTitle, artist)
+        }
+    }
+
+    private fun splitArtistTitle(text: String): Pair<String, String>? {
+        val separator = text.indexOf(" - ")
+        if (separator <= 0) return null
+        return text.substring(0, separator).trim() to text.substring(separator + 3).trim()
+    }
+}
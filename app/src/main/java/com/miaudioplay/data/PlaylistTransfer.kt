@@ -0,0 +1,145 @@
+package com.miaudioplay.data
+
+import android.content.Context
+import android.net.Uri
+import android.provider.OpenableColumns
+import android.util.Log
+import com.miaudioplay.data.models.Playlist
+import com.miaudioplay.data.models.PlaylistSong
+import com.miaudioplay.data.models.toPlaylistSong
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.withContext
+
+data class ImportProgress(
+    val read: Int,     // 已读取的条目数
+    val matched: Int   // 其中在媒体库中找到的
+)
+
+data class ImportResult(
+    val playlistId: Long,
+    val total: Int,
+    val added: Int,      // 实际加入歌单的数量（重复条目只保留一次）
+    val unmatched: Int
+)
+
+/**
+ * 歌单文件的导入与导出（通过 SAF 选择的 Uri）
+ *
+ * - 导入：自动检测编码（UTF-8/UTF-16/GBK，见 TextEncoding），逐行解析 M3U/M3U8/PLS，
+ *   条目依次按绝对路径、唯一的相对路径后缀、#EXTINF/PLS 中的“艺术家 - 标题”与文件名
+ *   匹配媒体库，每 BATCH_SIZE 条在一个事务中写入
+ * - 导出：按键集分页读取歌单条目，逐页写出为 M3U8，不把整个歌单加载到内存
+ */
+class PlaylistTransfer(context: Context, database: MusicDatabase) {
+    companion object {
+        private const val TAG = "PlaylistTransfer"
+
+        private const val BATCH_SIZE = 500
+        private const val EXPORT_PAGE_SIZE = 500
+
+        private const val DEFAULT_NAME = "导入的歌单"
+    }
+
+    private val contentResolver = context.applicationContext.contentResolver
+    private val playlistDao = database.playlistDao()
+    private val playlistSongDao = database.playlistSongDao()
+
+    /**
+     * 导入为一个新歌单，歌单名取文件名；失败时已写入的部分会被删除，返回 null
+     */
+    suspend fun import(
+        uri: Uri,
+        library: LibraryStore,
+        onProgress: (ImportProgress) -> Unit
+    ): ImportResult? = withContext(Dispatchers.IO) {
+        var playlistId = 0L
+        try {
+            val name = displayName(uri)?.substringBeforeLast('.')?.takeIf { it.isNotBlank() } ?: DEFAULT_NAME
+            val input = contentResolver.openInputStream(uri) ?: return@withContext null
+            playlistId = playlistDao.insertPlaylist(Playlist(name = name))
+
+            var read = 0
+            var matched = 0
+            var added = 0
+            val batch = ArrayList<PlaylistSong>(BATCH_SIZE)
+
+            TextEncoding.reader(input).buffered().use { reader ->
+                PlaylistFileParser.parse(reader) { entry ->
+                    read++
+                    PlaylistResolver.match(entry, library)?.let { song ->
+                        matched++
+                        batch.add(song.toPlaylistSong(playlistId))
+                    }
+                    if (batch.size >= BATCH_SIZE) {
+                        added += playlistSongDao.appendSongs(playlistId, batch)
+                        batch.clear()
+                        onProgress(ImportProgress(read, matched))
+                    }
+                }
+            }
+            added += playlistSongDao.appendSongs(playlistId, batch)
+            onProgress(ImportProgress(read, matched))
+
+            Log.d(TAG, "Imported $name: $added added, ${read - matched}/$read unmatched")
+            ImportResult(playlistId, read, added, read - matched)
+        } catch (e: Exception) {
+            if (playlistId != 0L) {
+                // 取消导入时也要清理
+                withContext(NonCancellable) { playlistDao.deletePlaylistById(playlistId) }
+            }
+            if (e is CancellationException) throw e
+            Log.e(TAG, "Error importing playlist $uri", e)
+            null
+        }
+    }
+
+    /**
+     * 导出为 M3U8（UTF-8），返回写出的条目数，失败时返回 null
+     */
+    suspend fun export(playlistId: Long, uri: Uri): Int? = withContext(Dispatchers.IO) {
+        try {
+            val output = contentResolver.openOutputStream(uri, "wt") ?: return@withContext null
+            var written = 0
+            output.bufferedWriter().use { writer ->
+                writer.write("#EXTM3U\n")
+                var afterPosition = Long.MIN_VALUE
+                var afterId = 0L
+                while (true) {
+                    val page = playlistSongDao.getExportPage(playlistId, afterPosition, afterId, EXPORT_PAGE_SIZE)
+                    for (row in page) {
+                        val entry = row.entry
+                        if (entry.path.isEmpty()) continue
+                        val seconds = row.duration?.let { it / 1000 } ?: -1
+                        val display = if (entry.artist.isNotEmpty()) "${entry.artist} - ${entry.title}" else entry.title
+                        writer.write("#EXTINF:$seconds,$display\n")
+                        writer.write(entry.path)
+                        writer.write("\n")
+                        written++
+                    }
+                    if (page.size < EXPORT_PAGE_SIZE) break
+                    afterPosition = page.last().entry.position
+                    afterId = page.last().entry.id
+                }
+            }
+            Log.d(TAG, "Exported playlist $playlistId: $written entries")
+            written
+        } catch (e: Exception) {
+            if (e is CancellationException) throw e
+            Log.e(TAG, "Error exporting playlist $playlistId", e)
+            null
+        }
+    }
+
+    private fun displayName(uri: Uri): String? {
+        return try {
+            contentResolver.query(uri, arrayOf(OpenableColumns.DISPLAY_NAME), null, null, null)?.use { cursor ->
+                if (cursor.moveToFirst()) cursor.getString(0) else null
+            }
+        } catch (e: Exception) {
+            Log.w(TAG, "Cannot read display name of $uri", e)
+            null
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.miaudioplay.data
+
+import android.util.Log
+import androidx.sqlite.db.SimpleSQLiteQuery
+import com.miaudioplay.data.models.SmartRule
+import com.miaudioplay.data.models.SmartRule.Field
+import com.miaudioplay.data.models.SmartRule.Operator
+
+/**
+ * 把智能歌单的规则树编译为参数化的 SQL 查询
+ *
+ * 查询只返回 songs 中满足规则的歌曲 id（按标题排序），用户输入全部作为绑定参数。
+ * 通过 @RawQuery 观察 songs 和 song_stats 两张表，媒体库同步或播放统计变化时
+ * 由 Room 在数据库中重新求值，不需要在内存中遍历媒体库。
+ */
+object SmartPlaylistQuery {
+    private const val TAG = "SmartPlaylistQuery"
+
+    private const val SECONDS_PER_DAY = 86_400L
+
+    /**
+     * 规则不合法（例如对时长使用 CONTAINS）时返回 null
+     */
+    fun compile(rule: SmartRule): SimpleSQLiteQuery? {
+        return try {
+            val args = ArrayList<Any>()
+            val where = compileRule(rule, args)
+            SimpleSQLiteQuery(
+                "SELECT songs.id FROM songs " +
+                    "LEFT JOIN song_stats ON song_stats.songId = songs.id " +
+                    "WHERE $where " +
+                    "ORDER BY songs.title COLLATE NOCASE, songs.id",
+                args.toArray()
+            )
+        } catch (e: Exception) {
+            Log.e(TAG, "Cannot compile smart playlist rule: $rule", e)
+            null
+        }
+    }
+
+    private fun compileRule(rule: SmartRule, args: MutableList<Any>): String {
+        if (rule.isGroup) {
+            val separator = when (rule.operator) {
+                Operator.ALL -> " AND "
+                Operator.ANY -> " OR "
+                else -> throw IllegalArgumentException("Group operator must be ALL or ANY: ${rule.operator}")
+            }
+            if (rule.rules.isEmpty()) {
+                // 空组：ALL 匹配全部，ANY 不匹配任何歌曲
+                return if (rule.operator == Operator.ALL) "1" else "0"
+            }
+            return rule.rules.joinToString(separator, prefix = "(", postfix = ")") { compileRule(it, args) }
+        }
+
+        return when (rule.field!!) {
+            Field.ARTIST -> compileText("songs.artist", rule, args)
+            Field.ALBUM -> compileText("songs.album", rule, args)
+            Field.DURATION -> compileNumber("songs.duration", rule, args)
+            Field.PLAY_COUNT -> compileNumber("IFNULL(song_stats.playCount, 0)", rule, args)
+            Field.DATE_ADDED -> {
+                require(rule.operator == Operator.WITHIN_DAYS) { "DATE_ADDED only supports WITHIN_DAYS" }
+                // 相对当前时间在 SQLite 中计算，规则不需要随日期重新编译
+                args += rule.value.trim().toLong() * SECONDS_PER_DAY
+                "songs.dateAdded >= CAST(strftime('%s', 'now') AS INTEGER) - ?"
+            }
+            Field.HAS_LYRICS -> {
+                require(rule.operator == Operator.IS) { "HAS_LYRICS only supports IS" }
+                args += if (rule.value.toBooleanStrict()) 1 else 0
+                // 只记录找到过歌词的歌曲，其余（未查找、离线或查找失败）都按没有歌词处理
+                "IFNULL(song_stats.hasLyrics, 0) = ?"
+            }
+            Field.FOLDER -> compileFolder(rule, args)
+        }
+    }
+
+    private fun compileText(column: String, rule: SmartRule, args: MutableList<Any>): String {
+        return when (rule.operator) {
+            Operator.IS -> {
+                args += rule.value
+                "$column = ? COLLATE NOCASE"
+            }
+            Operator.IS_NOT -> {
+                args += rule.value
+                "$column <> ? COLLATE NOCASE"
+            }
+            Operator.CONTAINS -> {
+                args += "%${escapeLike(rule.value)}%"
+                "$column LIKE ? ESCAPE '\\'"
+            }
+            Operator.STARTS_WITH -> {
+                args += "${escapeLike(rule.value)}%"
+                "$column LIKE ? ESCAPE '\\'"
+            }
+            else -> throw IllegalArgumentException("Unsupported text operator: ${rule.operator}")
+        }
+    }
+
+    private fun compileNumber(column: String, rule: SmartRule, args: MutableList<Any>): String {
+        val op = when (rule.operator) {
+            Operator.IS -> "="
+            Operator.IS_NOT -> "<>"
+            Operator.LESS_THAN -> "<"
+            Operator.GREATER_THAN -> ">"
+            else -> throw IllegalArgumentException("Unsupported number operator: ${rule.operator}")
+        }
+        args += rule.value.trim().toLong()
+        return "$column $op ?"
+    }
+
+    /**
+     * IS 只匹配目录下的文件，STARTS_WITH 同时包含子目录
+     */
+    private fun compileFolder(rule: SmartRule, args: MutableList<Any>): String {
+        val prefix = escapeLike(rule.value.trimEnd('/')) + "/"
+        return when (rule.operator) {
+            Operator.STARTS_WITH -> {
+                args += "$prefix%"
+                "songs.path LIKE ? ESCAPE '\\'"
+            }
+            Operator.IS -> {
+                args += "$prefix%"
+                args += "$prefix%/%"
+                "(songs.path LIKE ? ESCAPE '\\' AND songs.path NOT LIKE ? ESCAPE '\\')"
+            }
+            else -> throw IllegalArgumentException("Unsupported folder operator: ${rule.operator}")
+        }
+    }
+
+    private fun escapeLike(value: String): String {
+        return value
+            .replace("\\", "\\\\")
+            .replace("%", "\\%")
+            .replace("_", "\\_")
+    }
+}
@@ -0,0 +1,65 @@
+package com.miaudioplay.data
+
+import androidx.paging.PagingSource
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.RawQuery
+import androidx.sqlite.db.SupportSQLiteQuery
+import com.miaudioplay.data.models.LibrarySong
+import com.miaudioplay.data.models.SongStats
+import kotlinx.coroutines.flow.Flow
+
+@Dao
+interface SongDao {
+    @Query("SELECT * FROM songs ORDER BY title COLLATE NOCASE ASC, id ASC")
+    fun getAllSongs(): Flow<List<LibrarySong>>
+    
+    /**
+     * 分页读取媒体库，排序与 getAllSongs 一致
+     */
+    @Query("SELECT * FROM songs ORDER BY title COLLATE NOCASE ASC, id ASC")
+    fun pagingSource(): PagingSource<Int, LibrarySong>
+    
+    @Query("SELECT COUNT(*) FROM songs")
+    fun observeCount(): Flow<Int>
+    
+    @Query("SELECT EXISTS(SELECT 1 FROM songs WHERE id = :songId)")
+    suspend fun containsSong(songId: Long): Boolean
+    
+    /**
+     * 歌曲在排序后列表中的位置：排在它前面的行数
+     */
+    @Query(
+        "SELECT COUNT(*) FROM songs, (SELECT title AS targetTitle FROM songs WHERE id = :songId) " +
+            "WHERE songs.title COLLATE NOCASE < targetTitle " +
+            "OR (songs.title COLLATE NOCASE = targetTitle AND songs.id < :songId)"
+    )
+    suspend fun getPosition(songId: Long): Int
+    
+    @Query("SELECT id FROM songs")
+    suspend fun getAllIds(): List<Long>
+    
+    @Query("SELECT id FROM songs WHERE id IN (:ids)")
+    suspend fun getExistingIds(ids: List<Long>): List<Long>
+    
+    @Query("SELECT COUNT(*) FROM songs")
+    suspend fun getCount(): Int
+    
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun upsertSongs(songs: List<LibrarySong>)
+    
+    @Query("DELETE FROM songs WHERE id IN (:ids)")
+    suspend fun deleteSongs(ids: List<Long>)
+    
+    /**
+     * 智能歌单：执行 SmartPlaylistQuery 编译出的查询，返回歌曲 id
+     * 媒体库或播放统计变化时重新查询
+     */
+    @RawQuery(observedEntities = [LibrarySong::class, SongStats::class])
+    fun observeSongIds(query: SupportSQLiteQuery): Flow<List<Long>>
+    
+    @RawQuery
+    suspend fun getSongIds(query: SupportSQLiteQuery): List<Long>
+}
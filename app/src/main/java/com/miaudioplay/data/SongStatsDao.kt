@@ -0,0 +1,30 @@
+package com.miaudioplay.data
+
+import androidx.room.Dao
+import androidx.room.Query
+import androidx.room.Transaction
+
+@Dao
+interface SongStatsDao {
+    @Query("INSERT OR IGNORE INTO song_stats (songId, playCount, lastPlayedAt) VALUES (:songId, 0, 0)")
+    suspend fun ensureStats(songId: Long)
+    
+    @Query("UPDATE song_stats SET playCount = playCount + 1, lastPlayedAt = :playedAt WHERE songId = :songId")
+    suspend fun incrementPlayCount(songId: Long, playedAt: Long)
+    
+    // 值未变化时不写入，避免每次切歌都让观察 song_stats 的智能歌单重新查询
+    @Query("UPDATE song_stats SET hasLyrics = :hasLyrics WHERE songId = :songId AND hasLyrics IS NOT :hasLyrics")
+    suspend fun updateHasLyrics(songId: Long, hasLyrics: Boolean)
+    
+    @Transaction
+    suspend fun recordPlay(songId: Long, playedAt: Long) {
+        ensureStats(songId)
+        incrementPlayCount(songId, playedAt)
+    }
+    
+    @Transaction
+    suspend fun setHasLyrics(songId: Long, hasLyrics: Boolean) {
+        ensureStats(songId)
+        updateHasLyrics(songId, hasLyrics)
+    }
+}
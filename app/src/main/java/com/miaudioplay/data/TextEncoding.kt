@@ -0,0 +1,98 @@
+package com.miaudioplay.data
+
+import java.io.BufferedInputStream
+import java.io.InputStream
+import java.io.InputStreamReader
+import java.io.Reader
+import java.nio.charset.Charset
+
+/**
+ * 本地文本文件（LRC 歌词、M3U/PLS 歌单）的编码检测
+ *
+ * 这类文件常见 UTF-8、带 BOM 的 UTF-16 以及旧的 GBK 编码，且没有编码声明，
+ * 只能根据开头的字节判断。
+ */
+internal object TextEncoding {
+    // 编码检测时采样的字节数
+    private const val DETECT_BYTES = 8 * 1024
+
+    private val GB18030: Charset = Charset.forName("GB18030")
+
+    /**
+     * 检测编码并返回跳过了BOM的 Reader
+     */
+    fun reader(input: InputStream): Reader {
+        val buffered = BufferedInputStream(input, DETECT_BYTES)
+        return InputStreamReader(buffered, detectCharset(buffered))
+    }
+
+    /**
+     * 检测编码并跳过BOM
+     *
+     * 顺序：UTF-8 BOM -> UTF-16 BOM -> 无BOM的UTF-16（零字节分布） ->
+     * 采样字节是合法UTF-8则为UTF-8，否则按 GB18030（兼容GBK）处理。
+     */
+    fun detectCharset(input: BufferedInputStream): Charset {
+        val sample = ByteArray(DETECT_BYTES)
+        input.mark(DETECT_BYTES)
+        var length = 0
+        while (length < sample.size) {
+            val read = input.read(sample, length, sample.size - length)
+            if (read < 0) break
+            length += read
+        }
+        input.reset()
+
+        fun byteAt(i: Int) = sample[i].toInt() and 0xFF
+
+        if (length >= 3 && byteAt(0) == 0xEF && byteAt(1) == 0xBB && byteAt(2) == 0xBF) {
+            input.skip(3)
+            return Charsets.UTF_8
+        }
+        if (length >= 2 && byteAt(0) == 0xFF && byteAt(1) == 0xFE) {
+            input.skip(2)
+            return Charsets.UTF_16LE
+        }
+        if (length >= 2 && byteAt(0) == 0xFE && byteAt(1) == 0xFF) {
+            input.skip(2)
+            return Charsets.UTF_16BE
+        }
+
+        // 无BOM的UTF-16：ASCII字符的高位字节为0
+        var evenZeros = 0
+        var oddZeros = 0
+        for (i in 0 until length) {
+            if (sample[i].toInt() == 0) {
+                if (i % 2 == 0) evenZeros++ else oddZeros++
+            }
+        }
+        val pairs = length / 2
+        if (pairs > 0) {
+            if (oddZeros > pairs / 4 && evenZeros == 0) return Charsets.UTF_16LE
+            if (evenZeros > pairs / 4 && oddZeros == 0) return Charsets.UTF_16BE
+        }
+
+        return if (isValidUtf8(sample, length)) Charsets.UTF_8 else GB18030
+    }
+
+    private fun isValidUtf8(data: ByteArray, length: Int): Boolean {
+        var i = 0
+        while (i < length) {
+            val b = data[i].toInt() and 0xFF
+            val extra = when {
+                b < 0x80 -> 0
+                b in 0xC2..0xDF -> 1
+                b in 0xE0..0xEF -> 2
+                b in 0xF0..0xF4 -> 3
+                else -> return false
+            }
+            // 采样窗口末尾被截断的多字节字符不算错误
+            if (i + extra >= length) return true
+            for (k in 1..extra) {
+                if (data[i + k].toInt() and 0xC0 != 0x80) return false
+            }
+            i += extra + 1
+        }
+        return true
+    }
+}
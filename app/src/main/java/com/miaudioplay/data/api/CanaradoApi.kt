@@ -1,6 +1,9 @@
 package com.miaudioplay.data.api
 
 import android.util.Log
+import com.miaudioplay.data.LrcParser
+import com.miaudioplay.data.models.LyricsDocument
+import com.miaudioplay.data.models.LyricsSource
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
 import okhttp3.OkHttpClient
@@ -24,9 +27,9 @@ object CanaradoApi {
      * 搜索歌词
      * @param title 歌曲名
      * @param artist 歌手名
-     * @return 歌词内容（纯文本）
+     * @return 非同步歌词文档
      */
-    suspend fun searchLyrics(title: String, artist: String): String? = withContext(Dispatchers.IO) {
+    suspend fun searchLyrics(title: String, artist: String): LyricsDocument? = withContext(Dispatchers.IO) {
         try {
             val query = "$artist $title"
             val encodedQuery = URLEncoder.encode(query, "UTF-8")
@@ -50,20 +53,10 @@ object CanaradoApi {
             }
             
             Log.d(TAG, "Lyrics found")
-            // Convert to LRC format
-            convertPlainToLrc(lyrics)
+            LrcParser.plainDocument(lyrics, LyricsSource.CANARADO)
         } catch (e: Exception) {
             Log.e(TAG, "Search error", e)
             null
         }
     }
-    
-    /**
-     * 将普通歌词转换为LRC格式
-     */
-    private fun convertPlainToLrc(plainLyrics: String): String {
-        return plainLyrics.lines()
-            .filter { it.isNotBlank() }
-            .joinToString("\n") { "[00:00.00]$it" }
-    }
 }
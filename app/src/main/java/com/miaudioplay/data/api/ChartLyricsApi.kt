@@ -1,6 +1,9 @@
 package com.miaudioplay.data.api
 
 import android.util.Log
+import com.miaudioplay.data.LrcParser
+import com.miaudioplay.data.models.LyricsDocument
+import com.miaudioplay.data.models.LyricsSource
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
 import okhttp3.OkHttpClient
@@ -27,7 +30,7 @@ object ChartLyricsApi {
     /**
      * 搜索歌词
      */
-    suspend fun searchLyrics(artist: String, title: String): String? = withContext(Dispatchers.IO) {
+    suspend fun searchLyrics(artist: String, title: String): LyricsDocument? = withContext(Dispatchers.IO) {
         try {
             // First search for the song
             val searchUrl = "$BASE_URL/SearchLyricDirect?artist=${urlEncode(artist)}&song=${urlEncode(title)}"
@@ -57,7 +60,7 @@ object ChartLyricsApi {
             }
             
             Log.d(TAG, "Lyrics found (${lyrics.length} chars)")
-            convertPlainToLrc(lyrics)
+            LrcParser.plainDocument(lyrics, LyricsSource.CHARTLYRICS)
         } catch (e: Exception) {
             Log.e(TAG, "Search error", e)
             null
@@ -85,10 +88,4 @@ object ChartLyricsApi {
     private fun urlEncode(str: String): String {
         return java.net.URLEncoder.encode(str, "UTF-8")
     }
-    
-    private fun convertPlainToLrc(plainLyrics: String): String {
-        return plainLyrics.lines()
-            .filter { it.isNotBlank() }
-            .joinToString("\n") { "[00:00.00]$it" }
-    }
 }
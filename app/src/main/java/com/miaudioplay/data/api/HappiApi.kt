@@ -1,6 +1,9 @@
 package com.miaudioplay.data.api
 
 import android.util.Log
+import com.miaudioplay.data.LrcParser
+import com.miaudioplay.data.models.LyricsDocument
+import com.miaudioplay.data.models.LyricsSource
 import com.google.gson.Gson
 import com.google.gson.JsonArray
 import kotlinx.coroutines.Dispatchers
@@ -29,7 +32,7 @@ object HappiApi {
     /**
      * 搜索歌词
      */
-    suspend fun searchLyrics(artist: String, title: String): String? = withContext(Dispatchers.IO) {
+    suspend fun searchLyrics(artist: String, title: String): LyricsDocument? = withContext(Dispatchers.IO) {
         try {
             val query = "$artist $title"
             val encodedQuery = URLEncoder.encode(query, "UTF-8")
@@ -60,7 +63,7 @@ object HappiApi {
             }
             
             Log.d(TAG, "Lyrics found")
-            convertPlainToLrc(lyrics)
+            LrcParser.plainDocument(lyrics, LyricsSource.HAPPI)
         } catch (e: Exception) {
             Log.e(TAG, "Search error", e)
             null
@@ -82,10 +85,4 @@ object HappiApi {
             null
         }
     }
-    
-    private fun convertPlainToLrc(plainLyrics: String): String {
-        return plainLyrics.lines()
-            .filter { it.isNotBlank() }
-            .joinToString("\n") { "[00:00.00]$it" }
-    }
 }
@@ -1,6 +1,9 @@
 package com.miaudioplay.data.api
 
 import android.util.Log
+import com.miaudioplay.data.LrcParser
+import com.miaudioplay.data.models.LyricsDocument
+import com.miaudioplay.data.models.LyricsSource
 import com.google.gson.Gson
 import com.google.gson.annotations.SerializedName
 import kotlinx.coroutines.Dispatchers
@@ -31,14 +34,14 @@ object LrcLibApi {
      * @param artistName 歌手名
      * @param albumName 专辑名（可选）
      * @param duration 时长（秒，可选）
-     * @return 歌词内容
+     * @return 歌词文档，优先同步歌词
      */
     suspend fun searchLyrics(
         trackName: String,
         artistName: String,
         albumName: String? = null,
         duration: Int? = null
-    ): String? = withContext(Dispatchers.IO) {
+    ): LyricsDocument? = withContext(Dispatchers.IO) {
         try {
             val encodedTrack = URLEncoder.encode(trackName, "UTF-8")
             val encodedArtist = URLEncoder.encode(artistName, "UTF-8")
@@ -84,11 +87,10 @@ object LrcLibApi {
             // Prefer synced lyrics, fallback to plain lyrics
             val lyrics = if (!firstResult.syncedLyrics.isNullOrBlank()) {
                 Log.d(TAG, "Found synced lyrics")
-                firstResult.syncedLyrics
+                LrcParser.parseDocument(firstResult.syncedLyrics, LyricsSource.LRCLIB)
             } else if (!firstResult.plainLyrics.isNullOrBlank()) {
-                Log.d(TAG, "Found plain lyrics (converting to LRC format)")
-                // Convert plain lyrics to LRC format
-                convertPlainToLrc(firstResult.plainLyrics)
+                Log.d(TAG, "Found plain lyrics")
+                LrcParser.plainDocument(firstResult.plainLyrics, LyricsSource.LRCLIB)
             } else {
                 Log.d(TAG, "No lyrics in result")
                 null
@@ -101,15 +103,6 @@ object LrcLibApi {
         }
     }
     
-    /**
-     * 将普通歌词转换为LRC格式（无时间轴）
-     */
-    private fun convertPlainToLrc(plainLyrics: String): String {
-        return plainLyrics.lines()
-            .filter { it.isNotBlank() }
-            .joinToString("\n") { "[00:00.00]$it" }
-    }
-    
     /**
      * LRCLIB API 响应数据类
      */
@@ -1,6 +1,9 @@
 package com.miaudioplay.data.api
 
 import android.util.Log
+import com.miaudioplay.data.LrcParser
+import com.miaudioplay.data.models.LyricsDocument
+import com.miaudioplay.data.models.LyricsSource
 import com.google.gson.Gson
 import com.google.gson.JsonObject
 import kotlinx.coroutines.Dispatchers
@@ -29,9 +32,9 @@ object LyricsOvhApi {
      * 获取歌词
      * @param artist 歌手名
      * @param title 歌曲名
-     * @return 歌词内容（纯文本）
+     * @return 非同步歌词文档
      */
-    suspend fun getLyrics(artist: String, title: String): String? = withContext(Dispatchers.IO) {
+    suspend fun getLyrics(artist: String, title: String): LyricsDocument? = withContext(Dispatchers.IO) {
         try {
             val encodedArtist = URLEncoder.encode(artist, "UTF-8")
             val encodedTitle = URLEncoder.encode(title, "UTF-8")
@@ -63,20 +66,10 @@ object LyricsOvhApi {
             }
             
             Log.d(TAG, "Lyrics fetched successfully")
-            // Convert plain text to LRC format
-            convertPlainToLrc(lyrics)
+            LrcParser.plainDocument(lyrics, LyricsSource.LYRICS_OVH)
         } catch (e: Exception) {
             Log.e(TAG, "Fetch error", e)
             null
         }
     }
-    
-    /**
-     * 将普通歌词转换为LRC格式（无时间轴）
-     */
-    private fun convertPlainToLrc(plainLyrics: String): String {
-        return plainLyrics.lines()
-            .filter { it.isNotBlank() }
-            .joinToString("\n") { "[00:00.00]$it" }
-    }
 }
@@ -3,6 +3,9 @@ package com.miaudioplay.data.api
 import android.util.Log
 import com.google.gson.Gson
 import com.google.gson.JsonObject
+import com.miaudioplay.data.LrcParser
+import com.miaudioplay.data.models.LyricsDocument
+import com.miaudioplay.data.models.LyricsSource
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
 import okhttp3.OkHttpClient
@@ -88,11 +91,103 @@ object NeteaseApi {
         }
     }
     
+    private val YRC_LINE_PATTERN = Regex("^\\[(\\d+),(\\d+)](.*)$")
+    private val YRC_WORD_PATTERN = Regex("\\((\\d+),(\\d+),\\d+\\)")
+    
     /**
      * 获取歌词
+     * 优先获取逐字歌词（yrc），转换为增强LRC格式；没有时返回普通LRC
+     * 有翻译（tlyric）时附加在原文之后
      */
     suspend fun getLyrics(songId: Long): String? = withContext(Dispatchers.IO) {
-        try {
+        getWordLyrics(songId) ?: getLineLyrics(songId)
+    }
+    
+    /**
+     * 获取逐字歌词（/lyric/new 接口的 yrc 字段）
+     */
+    private fun getWordLyrics(songId: Long): String? {
+        return try {
+            val url = "$BASE_URL/lyric/new?id=$songId"
+            
+            Log.d(TAG, "Fetching word-level lyrics: $url")
+            
+            val request = Request.Builder()
+                .url(url)
+                .get()
+                .build()
+            
+            val response = client.newCall(request).execute()
+            val responseBody = response.body?.string()
+            
+            if (!response.isSuccessful || responseBody == null) {
+                Log.d(TAG, "Word-level lyrics unavailable: ${response.code}")
+                return null
+            }
+            
+            val jsonObject = gson.fromJson(responseBody, JsonObject::class.java)
+            val yrc = jsonObject.getAsJsonObject("yrc")?.get("lyric")?.asString
+            
+            if (yrc.isNullOrBlank()) {
+                Log.d(TAG, "No yrc lyrics for song: $songId")
+                return null
+            }
+            
+            convertYrcToEnhancedLrc(yrc)?.let { lrc ->
+                LrcParser.appendTranslation(lrc, getTranslation(jsonObject))
+            }
+        } catch (e: Exception) {
+            Log.e(TAG, "Word-level lyrics fetch error", e)
+            null
+        }
+    }
+    
+    /**
+     * 将 yrc 格式转换为增强LRC
+     * yrc: [行开始,行时长](字开始,字时长,0)字(字开始,字时长,0)字...
+     * 增强LRC: [mm:ss.xx]<mm:ss.xx>字<mm:ss.xx>字<结束时间>
+     */
+    private fun convertYrcToEnhancedLrc(yrc: String): String? {
+        val lrc = StringBuilder()
+        
+        for (line in yrc.lines()) {
+            // 以 { 开头的行为JSON格式的制作信息
+            val lineMatch = YRC_LINE_PATTERN.find(line.trim()) ?: continue
+            val lineStart = lineMatch.groupValues[1].toLongOrNull() ?: continue
+            val body = lineMatch.groupValues[3]
+            
+            val words = YRC_WORD_PATTERN.findAll(body).toList()
+            if (words.isEmpty()) continue
+            
+            lrc.append('[').append(LrcParser.formatTimestamp(lineStart)).append(']')
+            var lineEnd = lineStart
+            for ((i, word) in words.withIndex()) {
+                val wordStart = word.groupValues[1].toLong()
+                val wordDuration = word.groupValues[2].toLong()
+                val textEnd = if (i + 1 < words.size) words[i + 1].range.first else body.length
+                lrc.append('<').append(LrcParser.formatTimestamp(wordStart)).append('>')
+                lrc.append(body, word.range.last + 1, textEnd)
+                lineEnd = wordStart + wordDuration
+            }
+            lrc.append('<').append(LrcParser.formatTimestamp(lineEnd)).append(">\n")
+        }
+        
+        return lrc.takeIf { it.isNotEmpty() }?.toString()
+    }
+    
+    /**
+     * 读取响应中的翻译歌词（tlyric）
+     */
+    private fun getTranslation(jsonObject: JsonObject): String? {
+        val tlyric = jsonObject.getAsJsonObject("tlyric")?.get("lyric")
+        return if (tlyric != null && !tlyric.isJsonNull) tlyric.asString.takeIf { it.isNotBlank() } else null
+    }
+    
+    /**
+     * 获取普通逐行歌词
+     */
+    private fun getLineLyrics(songId: Long): String? {
+        return try {
             val url = "$BASE_URL/lyric?id=$songId"
             
             Log.d(TAG, "Fetching lyrics: $url")
@@ -107,7 +202,7 @@ object NeteaseApi {
             
             if (!response.isSuccessful || responseBody == null) {
                 Log.e(TAG, "Lyrics fetch failed: ${response.code}")
-                return@withContext null
+                return null
             }
             
             val jsonObject = gson.fromJson(responseBody, JsonObject::class.java)
@@ -117,11 +212,11 @@ object NeteaseApi {
             
             if (lrc.isNullOrBlank()) {
                 Log.d(TAG, "No lyrics available for song: $songId")
-                return@withContext null
+                return null
             }
             
             Log.d(TAG, "Lyrics fetched successfully")
-            lrc
+            LrcParser.appendTranslation(lrc, getTranslation(jsonObject))
         } catch (e: Exception) {
             Log.e(TAG, "Lyrics fetch error", e)
             null
@@ -131,7 +226,7 @@ object NeteaseApi {
     /**
      * 搜索并获取歌词（组合方法）
      */
-    suspend fun searchAndGetLyrics(title: String, artist: String? = null): String? {
+    suspend fun searchAndGetLyrics(title: String, artist: String? = null): LyricsDocument? {
         val searchResults = searchSong(title, artist)
         
         if (searchResults.isEmpty()) {
@@ -142,7 +237,7 @@ object NeteaseApi {
         for (result in searchResults) {
             val lyrics = getLyrics(result.id)
             if (!lyrics.isNullOrBlank()) {
-                return lyrics
+                return LrcParser.parseDocument(lyrics, LyricsSource.NETEASE)
             }
         }
         
@@ -3,6 +3,9 @@ package com.miaudioplay.data.api
 import android.util.Log
 import com.google.gson.Gson
 import com.google.gson.annotations.SerializedName
+import com.miaudioplay.data.LrcParser
+import com.miaudioplay.data.models.LyricsDocument
+import com.miaudioplay.data.models.LyricsSource
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
 import okhttp3.OkHttpClient
@@ -33,7 +36,7 @@ object QQMusicApi {
     suspend fun searchAndGetLyrics(
         songName: String,
         artistName: String
-    ): String? = withContext(Dispatchers.IO) {
+    ): LyricsDocument? = withContext(Dispatchers.IO) {
         try {
             // Step 1: 搜索歌曲
             Log.d(TAG, "Searching song: $artistName - $songName")
@@ -55,7 +58,7 @@ object QQMusicApi {
                 Log.d(TAG, "No lyrics available for this song")
             }
             
-            lyrics
+            lyrics?.let { LrcParser.parseDocument(it, LyricsSource.QQMUSIC) }
         } catch (e: Exception) {
             Log.e(TAG, "Error fetching lyrics", e)
             null
@@ -113,7 +116,7 @@ object QQMusicApi {
     }
     
     /**
-     * 获取歌词
+     * 获取歌词，有翻译时附加在原文之后
      */
     private suspend fun getLyrics(songMid: String): String? = withContext(Dispatchers.IO) {
         try {
@@ -155,7 +158,12 @@ object QQMusicApi {
                 return@withContext null
             }
             
-            decodedLyrics
+            // 翻译同样为Base64编码，与原文一起返回以便一起缓存
+            val translation = lyricsResult.trans
+                ?.takeIf { it.isNotBlank() }
+                ?.let { String(android.util.Base64.decode(it, android.util.Base64.DEFAULT)) }
+            
+            LrcParser.appendTranslation(decodedLyrics, translation)
             
         } catch (e: Exception) {
             Log.e(TAG, "Lyrics fetch error", e)
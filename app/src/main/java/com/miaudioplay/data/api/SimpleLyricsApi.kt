@@ -1,6 +1,9 @@
 package com.miaudioplay.data.api
 
 import android.util.Log
+import com.miaudioplay.data.LrcParser
+import com.miaudioplay.data.models.LyricsDocument
+import com.miaudioplay.data.models.LyricsSource
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
 import okhttp3.OkHttpClient
@@ -24,7 +27,12 @@ object SimpleLyricsApi {
     /**
      * 尝试从多个网站抓取歌词
      */
-    suspend fun searchLyrics(artist: String, title: String): String? = withContext(Dispatchers.IO) {
+    suspend fun searchLyrics(artist: String, title: String): LyricsDocument? {
+        val lyrics = scrapeLyrics(artist, title) ?: return null
+        return LrcParser.plainDocument(lyrics, LyricsSource.SIMPLE_LYRICS)
+    }
+    
+    private suspend fun scrapeLyrics(artist: String, title: String): String? = withContext(Dispatchers.IO) {
         // 按优先级依次尝试不同的网站
         
         // 1. AZLyrics
@@ -98,7 +106,7 @@ object SimpleLyricsApi {
                 val lyrics = extractAZLyrics(html)
                 if (!lyrics.isNullOrBlank()) {
                     Log.d(TAG, "✓ Found lyrics from AZLyrics")
-                    return convertPlainToLrc(lyrics)
+                    return lyrics
                 }
             }
             null
@@ -160,7 +168,7 @@ object SimpleLyricsApi {
                 val lyrics = extractLyricsCom(html)
                 if (!lyrics.isNullOrBlank()) {
                     Log.d(TAG, "✓ Found lyrics from Lyrics.com")
-                    return convertPlainToLrc(lyrics)
+                    return lyrics
                 }
             }
             null
@@ -221,7 +229,7 @@ object SimpleLyricsApi {
                 val lyrics = extractSongLyrics(html)
                 if (!lyrics.isNullOrBlank()) {
                     Log.d(TAG, "✓ Found lyrics from SongLyrics")
-                    return convertPlainToLrc(lyrics)
+                    return lyrics
                 }
             }
             null
@@ -284,7 +292,7 @@ object SimpleLyricsApi {
                 val lyrics = extractGenius(html)
                 if (!lyrics.isNullOrBlank()) {
                     Log.d(TAG, "✓ Found lyrics from Genius")
-                    return convertPlainToLrc(lyrics)
+                    return lyrics
                 }
             }
             null
@@ -344,7 +352,7 @@ object SimpleLyricsApi {
                 val lyrics = extractMetroLyrics(html)
                 if (!lyrics.isNullOrBlank()) {
                     Log.d(TAG, "✓ Found lyrics from MetroLyrics")
-                    return convertPlainToLrc(lyrics)
+                    return lyrics
                 }
             }
             null
@@ -385,13 +393,4 @@ object SimpleLyricsApi {
             null
         }
     }
-    
-    /**
-     * 将纯文本歌词转换为LRC格式
-     */
-    private fun convertPlainToLrc(plainLyrics: String): String {
-        return plainLyrics.lines()
-            .filter { it.isNotBlank() }
-            .joinToString("\n") { "[00:00.00]$it" }
-    }
 }
@@ -0,0 +1,35 @@
+package com.miaudioplay.data.models
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+
+/**
+ * 本地持久化的媒体库歌曲，与 MediaStore 中的一行对应
+ *
+ * 启动时直接从数据库读取并显示，MediaStore 的变化在后台增量同步。
+ */
+@Entity(tableName = "songs")
+data class LibrarySong(
+    @PrimaryKey
+    val id: Long,           // MediaStore._ID
+    val title: String,
+    val artist: String,
+    val album: String,
+    val albumId: Long,
+    val duration: Long,
+    val path: String,
+    val dateModified: Long, // MediaStore.DATE_MODIFIED（秒）
+    @ColumnInfo(defaultValue = "0")
+    val dateAdded: Long = 0 // MediaStore.DATE_ADDED（秒）
+) {
+    fun toSong(): Song = Song(
+        id = id,
+        title = title,
+        artist = artist,
+        album = album,
+        duration = duration,
+        albumId = albumId,
+        path = path
+    )
+}
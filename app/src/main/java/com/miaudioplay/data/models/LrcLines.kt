@@ -0,0 +1,150 @@
+package com.miaudioplay.data.models
+
+/**
+ * 解析后的LRC歌词
+ *
+ * 时间戳保存在按升序排列的 LongArray 中；歌词文本以偏移量引用原始内容，
+ * 只在首次访问时生成字符串。重复时间标签（如 [00:10.00][01:20.00]副歌）
+ * 共享同一条文本记录。
+ *
+ * [offset] 标签在解析时一次性应用到时间戳上；用户偏移同样作用于整个
+ * 时间戳数组，播放进度比较时无需再做额外计算。
+ *
+ * 增强LRC的 <mm:ss.xx> 行内标签被解析为逐字时间，文本中不再包含这些标签。
+ * 翻译作为独立的歌词轨道保存，translationRefs 记录原文每行对齐到的翻译行。
+ */
+class LrcLines internal constructor(
+    private val baseTimestamps: LongArray,
+    private val lineRefs: IntArray,
+    private val source: CharSequence,
+    private val textStarts: IntArray,
+    private val textEnds: IntArray,
+    val metadata: LrcMetadata = LrcMetadata.EMPTY,
+    val userOffsetMs: Long = 0,
+    private val texts: Array<String?> = arrayOfNulls(textStarts.size),
+    private val words: WordTiming? = null,
+    private val translation: LrcLines? = null,
+    private val translationRefs: IntArray? = null
+) : AbstractList<LyricLine>() {
+
+    /**
+     * 逐字时间（增强LRC / A2），所有行的字放在同一组扁平数组中
+     *
+     * 第 r 条文本记录的字为 [offsets][r] until [offsets][r + 1]；
+     * 字的开始时间相对所在行的时间戳，因此偏移调整会自动作用到每个字上。
+     */
+    internal class WordTiming(
+        val offsets: IntArray,
+        val startRel: IntArray,
+        val durations: IntArray,   // -1 表示持续到下一行开始
+        val charStarts: IntArray,
+        val charEnds: IntArray
+    )
+
+    /**
+     * 已应用 [offset] 标签与用户偏移的时间戳
+     */
+    val timestamps: LongArray = if (userOffsetMs == 0L) {
+        baseTimestamps
+    } else {
+        LongArray(baseTimestamps.size) { (baseTimestamps[it] - userOffsetMs).coerceAtLeast(0) }
+    }
+
+    override val size: Int
+        get() = timestamps.size
+
+    /**
+     * 是否带有时间轴；纯文本歌词（时间戳全为 0）为 false
+     */
+    val isSynced: Boolean
+        get() = baseTimestamps.isNotEmpty() && baseTimestamps[baseTimestamps.size - 1] > 0
+
+    /**
+     * 第 index 行的歌词文本
+     */
+    fun text(index: Int): String {
+        val record = lineRefs[index]
+        return texts[record] ?: source.subSequence(textStarts[record], textEnds[record]).toString().also {
+            texts[record] = it
+        }
+    }
+
+    override fun get(index: Int): LyricLine = LyricLine(timestamps[index], text(index), translation(index))
+
+    /**
+     * 是否带有翻译
+     */
+    val hasTranslation: Boolean
+        get() = translation != null
+
+    /**
+     * 第 index 行的翻译，没有时返回 null
+     */
+    fun translation(index: Int): String? {
+        val refs = translationRefs ?: return null
+        val ref = refs[index]
+        return if (ref >= 0) translation?.text(ref) else null
+    }
+
+    /**
+     * 第 index 行是否带有逐字时间
+     */
+    fun hasWordTiming(index: Int): Boolean {
+        val w = words ?: return false
+        val record = lineRefs[index]
+        return w.offsets[record] < w.offsets[record + 1]
+    }
+
+    /**
+     * 在 positionMs 时第 index 行已唱到的字符数（可为小数，用于平滑扫过效果）
+     * 没有逐字时间时返回 -1
+     */
+    fun sungCharCount(index: Int, positionMs: Long): Float {
+        val w = words ?: return -1f
+        val record = lineRefs[index]
+        val from = w.offsets[record]
+        val to = w.offsets[record + 1]
+        if (from == to) return -1f
+
+        val elapsed = positionMs - timestamps[index]
+        if (elapsed < w.startRel[from]) return 0f
+
+        var word = from
+        while (word + 1 < to && w.startRel[word + 1] <= elapsed) word++
+
+        val duration = if (w.durations[word] >= 0) {
+            w.durations[word].toLong()
+        } else {
+            val nextLine = if (index + 1 < size) timestamps[index + 1] else timestamps[index] + w.startRel[word] + 1000
+            nextLine - timestamps[index] - w.startRel[word]
+        }
+        val fraction = if (duration <= 0) {
+            1f
+        } else {
+            ((elapsed - w.startRel[word]).toFloat() / duration).coerceIn(0f, 1f)
+        }
+        return w.charStarts[word] + (w.charEnds[word] - w.charStarts[word]) * fraction
+    }
+
+    /**
+     * 不随用户偏移变化的文本标识：同一份歌词的各个偏移版本返回同一个对象，
+     * 可作为按行缓存文本布局等数据的键（列表相等性包含时间戳，每次调整偏移都会改变）
+     */
+    val textIdentity: Any
+        get() = texts
+
+    /**
+     * 以新的用户偏移生成歌词，共享文本数据，无需重新解析
+     */
+    fun withUserOffset(offsetMs: Long): LrcLines {
+        if (offsetMs == userOffsetMs) return this
+        return LrcLines(
+            baseTimestamps, lineRefs, source, textStarts, textEnds, metadata, offsetMs, texts, words,
+            translation, translationRefs
+        )
+    }
+
+    companion object {
+        val EMPTY = LrcLines(LongArray(0), IntArray(0), "", IntArray(0), IntArray(0))
+    }
+}
@@ -0,0 +1,17 @@
+package com.miaudioplay.data.models
+
+/**
+ * LRC文件头部标签
+ */
+data class LrcMetadata(
+    val title: String? = null,      // [ti:]
+    val artist: String? = null,     // [ar:]
+    val album: String? = null,      // [al:]
+    val author: String? = null,     // [by:]
+    val offsetMs: Long = 0,         // [offset:]，正值表示歌词提前
+    val lengthMs: Long = 0          // [length:]
+) {
+    companion object {
+        val EMPTY = LrcMetadata()
+    }
+}
@@ -2,5 +2,6 @@ package com.miaudioplay.data.models
 
 data class LyricLine(
     val timestamp: Long,  // in milliseconds
-    val text: String
+    val text: String,
+    val translation: String? = null
 )
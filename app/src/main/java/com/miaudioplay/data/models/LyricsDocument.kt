@@ -0,0 +1,15 @@
+package com.miaudioplay.data.models
+
+/**
+ * 歌词文档
+ *
+ * 同步歌词（LRC）与非同步歌词（纯文本）统一用 LrcLines 表示，非同步歌词的
+ * 时间戳全部为 0，不参与播放进度跟踪。content 为原始文本，用于缓存与写入LRC文件；
+ * 本地文件流式解析时为空。
+ */
+data class LyricsDocument(
+    val lines: LrcLines,
+    val isSynced: Boolean,
+    val source: LyricsSource,
+    val content: String = ""
+)
@@ -0,0 +1,14 @@
+package com.miaudioplay.data.models
+
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+
+/**
+ * 用户为单首歌曲设置的歌词时间偏移
+ */
+@Entity(tableName = "lyrics_offsets")
+data class LyricsOffset(
+    @PrimaryKey
+    val songId: Long,
+    val offsetMs: Long  // 正值表示歌词提前，与LRC [offset] 标签一致
+)
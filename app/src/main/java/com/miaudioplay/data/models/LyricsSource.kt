@@ -2,6 +2,7 @@ package com.miaudioplay.data.models
 
 enum class LyricsSource {
     LOCAL_FILE,      // 本地LRC文件
+    EMBEDDED,        // 音频文件内嵌歌词标签
     CACHE,           // 缓存
     LRCLIB,          // LRCLIB API
     NETEASE,         // 网易云音乐
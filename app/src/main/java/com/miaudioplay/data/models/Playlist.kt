@@ -8,5 +8,9 @@ data class Playlist(
     @PrimaryKey(autoGenerate = true)
     val id: Long = 0,
     val name: String,
-    val createdAt: Long = System.currentTimeMillis()
-)
+    val createdAt: Long = System.currentTimeMillis(),
+    val rules: String? = null  // 智能歌单的规则（JSON），普通歌单为 null
+) {
+    val isSmart: Boolean
+        get() = rules != null
+}
@@ -0,0 +1,12 @@
+package com.miaudioplay.data.models
+
+import androidx.room.Embedded
+
+/**
+ * 导出歌单时读取的一行：条目本身及媒体库中的时长（歌曲已不在媒体库时为 null）
+ */
+data class PlaylistExportRow(
+    @Embedded
+    val entry: PlaylistSong,
+    val duration: Long?
+)
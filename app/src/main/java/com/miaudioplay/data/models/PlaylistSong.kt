@@ -1,5 +1,6 @@
 package com.miaudioplay.data.models
 
+import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.ForeignKey
 import androidx.room.Index
@@ -15,7 +16,10 @@ import androidx.room.PrimaryKey
             onDelete = ForeignKey.CASCADE
         )
     ],
-    indices = [Index("playlistId")]
+    indices = [
+        Index(value = ["playlistId", "songId"], unique = true),
+        Index("playlistId", "position")
+    ]
 )
 data class PlaylistSong(
     @PrimaryKey(autoGenerate = true)
@@ -23,5 +27,27 @@ data class PlaylistSong(
     val playlistId: Long,
     val songId: Long,
     val songUri: String,
-    val addedAt: Long = System.currentTimeMillis()
+    val addedAt: Long = System.currentTimeMillis(),
+    // 加入时的歌曲信息，MediaStore 重建导致 id 变化后用于重新匹配
+    @ColumnInfo(defaultValue = "")
+    val title: String = "",
+    @ColumnInfo(defaultValue = "")
+    val artist: String = "",
+    @ColumnInfo(defaultValue = "")
+    val path: String = "",
+    // 歌单内的排序键，相邻条目之间留有间隔，移动时只需修改一行
+    @ColumnInfo(defaultValue = "0")
+    val position: Long = 0
+)
+
+/**
+ * 新的歌单条目，同时记录歌曲信息用于之后重新匹配
+ */
+fun Song.toPlaylistSong(playlistId: Long) = PlaylistSong(
+    playlistId = playlistId,
+    songId = id,
+    songUri = uri.toString(),
+    title = title,
+    artist = artist,
+    path = path
 )
@@ -0,0 +1,20 @@
+package com.miaudioplay.data.models
+
+import android.net.Uri
+import androidx.room.Embedded
+
+/**
+ * 歌单列表中显示的汇总信息，由一条聚合查询得到
+ *
+ * 歌曲数与总时长只统计媒体库中仍存在的歌曲；封面取歌单第一首歌的专辑封面。
+ */
+data class PlaylistSummary(
+    @Embedded
+    val playlist: Playlist,
+    val songCount: Int,
+    val totalDuration: Long,
+    val coverAlbumId: Long?
+) {
+    val coverArtUri: Uri?
+        get() = coverAlbumId?.let { Song.albumArtUri(it) }
+}
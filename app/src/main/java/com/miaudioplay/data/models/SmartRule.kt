@@ -0,0 +1,61 @@
+package com.miaudioplay.data.models
+
+import android.util.Log
+import com.google.gson.Gson
+
+/**
+ * 智能歌单的规则树
+ *
+ * field 为 null 时是规则组，ALL/ANY 组合 rules 中的子规则；否则是单条规则，
+ * 按 operator 比较 field 与 value。以 JSON 保存在 playlists.rules 中。
+ */
+data class SmartRule(
+    val field: Field? = null,
+    val operator: Operator,
+    val value: String = "",
+    val rules: List<SmartRule> = emptyList()
+) {
+    enum class Field {
+        ARTIST,      // 文本
+        ALBUM,       // 文本
+        DURATION,    // 毫秒
+        DATE_ADDED,  // 天数，只支持 WITHIN_DAYS
+        PLAY_COUNT,  // 次数
+        HAS_LYRICS,  // "true" / "false"
+        FOLDER       // 目录的绝对路径
+    }
+
+    enum class Operator {
+        ALL,          // 规则组：全部满足
+        ANY,          // 规则组：任意一条满足
+        IS,
+        IS_NOT,
+        CONTAINS,
+        STARTS_WITH,  // 用于 FOLDER 时包含子目录
+        LESS_THAN,
+        GREATER_THAN,
+        WITHIN_DAYS
+    }
+
+    val isGroup: Boolean
+        get() = this.field == null
+
+    fun toJson(): String = gson.toJson(this)
+
+    companion object {
+        private val gson = Gson()
+
+        fun all(vararg rules: SmartRule) = SmartRule(operator = Operator.ALL, rules = rules.toList())
+
+        fun any(vararg rules: SmartRule) = SmartRule(operator = Operator.ANY, rules = rules.toList())
+
+        fun fromJson(json: String): SmartRule? {
+            return try {
+                gson.fromJson(json, SmartRule::class.java)
+            } catch (e: Exception) {
+                Log.e("SmartRule", "Invalid smart playlist rules: $json", e)
+                null
+            }
+        }
+    }
+}
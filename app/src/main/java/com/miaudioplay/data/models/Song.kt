@@ -1,14 +1,36 @@
 package com.miaudioplay.data.models
 
+import android.content.ContentUris
 import android.net.Uri
+import android.provider.MediaStore
 
+/**
+ * 歌曲视图
+ *
+ * 只保存基本字段，Uri 在访问时生成。媒体库中的 Song 由 LibraryStore 按需创建，
+ * artist/album 引用字符串池中的共享实例。
+ */
 data class Song(
     val id: Long,
     val title: String,
     val artist: String,
     val album: String,
     val duration: Long,
-    val uri: Uri,
-    val albumArtUri: Uri? = null,
+    val albumId: Long = 0,
     val path: String = ""
-)
+) {
+    val uri: Uri
+        get() = ContentUris.withAppendedId(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, id)
+
+    val albumArtUri: Uri?
+        get() = albumArtUri(albumId)
+
+    companion object {
+        // 延迟初始化，JVM 单元测试创建 Song 时不访问 android.net.Uri
+        private val ALBUM_ART_URI: Uri by lazy { Uri.parse("content://media/external/audio/albumart") }
+
+        fun albumArtUri(albumId: Long): Uri? {
+            return if (albumId > 0) ContentUris.withAppendedId(ALBUM_ART_URI, albumId) else null
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.miaudioplay.data.models
+
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+
+/**
+ * 单首歌曲的播放统计，供智能歌单的规则查询使用
+ */
+@Entity(tableName = "song_stats")
+data class SongStats(
+    @PrimaryKey
+    val songId: Long,
+    val playCount: Int = 0,
+    val lastPlayedAt: Long = 0,
+    val hasLyrics: Boolean? = null  // null 表示还没有找到过歌词（未查找或查找失败）
+)
@@ -5,17 +5,22 @@ import androidx.compose.material.icons.Icons
 import androidx.compose.material.icons.filled.*
 import androidx.compose.material3.*
 import androidx.compose.runtime.Composable
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.runtime.remember
+import androidx.compose.runtime.setValue
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.unit.dp
 import androidx.media3.common.Player
+import com.miaudioplay.viewmodel.PositionTicker
 
 @Composable
 fun PlaybackControls(
     isPlaying: Boolean,
     shuffleMode: Boolean,
     repeatMode: Int,
-    currentPosition: Long,
+    positionTicker: PositionTicker,
     duration: Long,
     onPlayPauseClick: () -> Unit,
     onPreviousClick: () -> Unit,
@@ -29,6 +34,12 @@ fun PlaybackControls(
         modifier = modifier.fillMaxWidth(),
         horizontalAlignment = Alignment.CenterHorizontally
     ) {
+        val sliderPosition by positionTicker.collectPositionAsState(SEEK_BAR_INTERVAL_MS)
+        val textPosition by positionTicker.collectPositionAsState(TIME_TEXT_INTERVAL_MS)
+        
+        // 拖动中只更新本地状态，松手后再跳转
+        var dragFraction by remember { mutableStateOf<Float?>(null) }
+        
         // Progress slider
         Column(
             modifier = Modifier
@@ -36,8 +47,12 @@ fun PlaybackControls(
                 .padding(horizontal = 24.dp)
         ) {
             Slider(
-                value = if (duration > 0) currentPosition.toFloat() / duration else 0f,
-                onValueChange = { onSeek((it * duration).toLong()) },
+                value = dragFraction ?: if (duration > 0) sliderPosition.toFloat() / duration else 0f,
+                onValueChange = { dragFraction = it },
+                onValueChangeFinished = {
+                    dragFraction?.let { onSeek((it * duration).toLong()) }
+                    dragFraction = null
+                },
                 colors = SliderDefaults.colors(
                     thumbColor = MaterialTheme.colorScheme.primary,
                     activeTrackColor = MaterialTheme.colorScheme.primary,
@@ -50,7 +65,7 @@ fun PlaybackControls(
                 horizontalArrangement = Arrangement.SpaceBetween
             ) {
                 Text(
-                    text = formatDuration(currentPosition),
+                    text = formatDuration(dragFraction?.let { (it * duration).toLong() } ?: textPosition),
                     style = MaterialTheme.typography.labelSmall,
                     color = MaterialTheme.colorScheme.onSurfaceVariant
                 )
@@ -0,0 +1,50 @@
+package com.miaudioplay.ui.components
+
+import androidx.compose.foundation.layout.Column
+import androidx.compose.foundation.layout.fillMaxWidth
+import androidx.compose.material3.AlertDialog
+import androidx.compose.material3.Text
+import androidx.compose.material3.TextButton
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.remember
+import androidx.compose.ui.Modifier
+import com.miaudioplay.data.models.Playlist
+
+/**
+ * 选择目标歌单
+ */
+@Composable
+fun PlaylistPickerDialog(
+    playlists: List<Playlist>,
+    onDismiss: () -> Unit,
+    onPlaylistSelected: (Playlist) -> Unit
+) {
+    // 智能歌单的歌曲由规则决定，不能手动添加
+    val editable = remember(playlists) { playlists.filterNot { it.isSmart } }
+    
+    AlertDialog(
+        onDismissRequest = onDismiss,
+        title = { Text("选择歌单") },
+        text = {
+            Column {
+                if (editable.isEmpty()) {
+                    Text("暂无歌单，请先创建歌单")
+                } else {
+                    editable.forEach { playlist ->
+                        TextButton(
+                            onClick = { onPlaylistSelected(playlist) },
+                            modifier = Modifier.fillMaxWidth()
+                        ) {
+                            Text(playlist.name)
+                        }
+                    }
+                }
+            }
+        },
+        confirmButton = {
+            TextButton(onClick = onDismiss) {
+                Text("取消")
+            }
+        }
+    )
+}
@@ -0,0 +1,25 @@
+package com.miaudioplay.ui.components
+
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.State
+import androidx.compose.runtime.remember
+import androidx.lifecycle.compose.collectAsStateWithLifecycle
+import com.miaudioplay.viewmodel.PositionTicker
+
+// 拖动进度条以外的进度条刷新间隔
+const val SEEK_BAR_INTERVAL_MS = 250L
+
+// 时间文字只显示到秒
+const val TIME_TEXT_INTERVAL_MS = 1_000L
+
+// 逐字歌词扫过效果的刷新间隔（约 30 帧每秒）
+const val KARAOKE_INTERVAL_MS = 33L
+
+/**
+ * 按指定间隔收集播放位置；界面进入后台（低于 STARTED）时自动取消订阅
+ */
+@Composable
+fun PositionTicker.collectPositionAsState(intervalMs: Long): State<Long> {
+    val updates = remember(this, intervalMs) { positionUpdates(intervalMs) }
+    return updates.collectAsStateWithLifecycle(initialValue = remember(this) { currentPosition() })
+}
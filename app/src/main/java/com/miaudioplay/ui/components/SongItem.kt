@@ -1,7 +1,8 @@
 package com.miaudioplay.ui.components
 
 import androidx.compose.foundation.background
-import androidx.compose.foundation.clickable
+import androidx.compose.foundation.ExperimentalFoundationApi
+import androidx.compose.foundation.combinedClickable
 import androidx.compose.foundation.layout.*
 import androidx.compose.foundation.shape.RoundedCornerShape
 import androidx.compose.material.icons.Icons
@@ -19,6 +20,7 @@ import coil.compose.AsyncImage
 import com.miaudioplay.data.models.Playlist
 import com.miaudioplay.data.models.Song
 
+@OptIn(ExperimentalFoundationApi::class)
 @Composable
 fun SongItem(
     song: Song,
@@ -27,6 +29,10 @@ fun SongItem(
     onAddToPlaylist: (Playlist) -> Unit,
     playlists: List<Playlist>,
     onRemoveClick: (() -> Unit)? = null,
+    onMoveUp: (() -> Unit)? = null,
+    onMoveDown: (() -> Unit)? = null,
+    isSelected: Boolean = false,
+    onLongClick: (() -> Unit)? = null,
     modifier: Modifier = Modifier
 ) {
     var showMenu by remember { mutableStateOf(false) }
@@ -35,8 +41,10 @@ fun SongItem(
     Surface(
         modifier = modifier
             .fillMaxWidth()
-            .clickable { onClick() },
-        color = if (isPlaying) {
+            .combinedClickable(onClick = onClick, onLongClick = onLongClick),
+        color = if (isSelected) {
+            MaterialTheme.colorScheme.secondaryContainer
+        } else if (isPlaying) {
             MaterialTheme.colorScheme.primary.copy(alpha = 0.1f)
         } else {
             MaterialTheme.colorScheme.surface
@@ -121,6 +129,26 @@ fun SongItem(
                         }
                     )
                     
+                    if (onMoveUp != null) {
+                        DropdownMenuItem(
+                            text = { Text("上移") },
+                            onClick = {
+                                showMenu = false
+                                onMoveUp()
+                            }
+                        )
+                    }
+                    
+                    if (onMoveDown != null) {
+                        DropdownMenuItem(
+                            text = { Text("下移") },
+                            onClick = {
+                                showMenu = false
+                                onMoveDown()
+                            }
+                        )
+                    }
+                    
                     if (onRemoveClick != null) {
                         DropdownMenuItem(
                             text = { Text("从歌单中移除") },
@@ -140,32 +168,12 @@ fun SongItem(
     
     // Playlist picker dialog
     if (showPlaylistPicker) {
-        AlertDialog(
-            onDismissRequest = { showPlaylistPicker = false },
-            title = { Text("选择歌单") },
-            text = {
-                Column {
-                    if (playlists.isEmpty()) {
-                        Text("暂无歌单，请先创建歌单")
-                    } else {
-                        playlists.forEach { playlist ->
-                            TextButton(
-                                onClick = {
-                                    onAddToPlaylist(playlist)
-                                    showPlaylistPicker = false
-                                },
-                                modifier = Modifier.fillMaxWidth()
-                            ) {
-                                Text(playlist.name)
-                            }
-                        }
-                    }
-                }
-            },
-            confirmButton = {
-                TextButton(onClick = { showPlaylistPicker = false }) {
-                    Text("取消")
-                }
+        PlaylistPickerDialog(
+            playlists = playlists,
+            onDismiss = { showPlaylistPicker = false },
+            onPlaylistSelected = { playlist ->
+                onAddToPlaylist(playlist)
+                showPlaylistPicker = false
             }
         )
     }
@@ -1,6 +1,7 @@
 package com.miaudioplay.ui.screens
 
-import androidx.compose.animation.animateColorAsState
+import androidx.compose.animation.core.Animatable
+import androidx.compose.animation.core.tween
 import androidx.compose.foundation.background
 import androidx.compose.foundation.layout.*
 import androidx.compose.foundation.lazy.LazyColumn
@@ -15,34 +16,71 @@ import androidx.compose.runtime.*
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.draw.clip
+import androidx.compose.ui.draw.drawBehind
+import androidx.compose.ui.geometry.Offset
+import androidx.compose.ui.geometry.Size
+import androidx.compose.ui.graphics.BlendMode
 import androidx.compose.ui.graphics.Brush
+import androidx.compose.ui.graphics.Color
+import androidx.compose.ui.graphics.CompositingStrategy
+import androidx.compose.ui.graphics.drawscope.DrawScope
+import androidx.compose.ui.graphics.graphicsLayer
+import androidx.compose.ui.graphics.lerp
 import androidx.compose.ui.layout.ContentScale
+import androidx.compose.ui.platform.LocalDensity
+import androidx.compose.ui.semantics.semantics
+import androidx.compose.ui.semantics.text
+import androidx.compose.ui.text.AnnotatedString
+import androidx.compose.ui.text.ExperimentalTextApi
+import androidx.compose.ui.text.TextLayoutResult
+import androidx.compose.ui.text.TextStyle
+import androidx.compose.ui.text.drawText
+import androidx.compose.ui.text.rememberTextMeasurer
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.text.style.TextAlign
 import androidx.compose.ui.text.style.TextOverflow
+import androidx.compose.ui.unit.Constraints
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
 import coil.compose.AsyncImage
-import com.miaudioplay.data.models.LyricLine
+import com.miaudioplay.data.models.LrcLines
 import com.miaudioplay.data.models.LyricsSource
 import com.miaudioplay.data.models.Song
+import com.miaudioplay.ui.components.KARAOKE_INTERVAL_MS
 import com.miaudioplay.ui.components.PlaybackControls
+import com.miaudioplay.ui.components.collectPositionAsState
 import com.miaudioplay.ui.theme.Primary
+import com.miaudioplay.viewmodel.PositionTicker
 import kotlinx.coroutines.launch
 
-@OptIn(ExperimentalMaterial3Api::class)
+private const val LYRICS_OFFSET_STEP_MS = 500L
+
+private val LYRICS_HORIZONTAL_PADDING = 24.dp
+private val TRANSLATION_SPACING = 2.dp
+
+// 非当前行相对当前行的缩放与透明度
+private const val LYRIC_INACTIVE_SCALE = 16f / 18f
+private const val LYRIC_INACTIVE_ALPHA = 0.6f
+private const val LYRIC_HIGHLIGHT_DURATION_MS = 300
+
+@OptIn(ExperimentalMaterial3Api::class, ExperimentalTextApi::class)
 @Composable
 fun NowPlayingScreen(
     currentSong: Song?,
     isPlaying: Boolean,
     shuffleMode: Boolean,
     repeatMode: Int,
-    currentPosition: Long,
+    positionTicker: PositionTicker,
     duration: Long,
-    lyrics: List<LyricLine>,
-    currentLyricIndex: Int,
+    lyrics: LrcLines,
+    currentLyricIndex: () -> Int,
     lyricsLoading: Boolean,
     lyricsSource: LyricsSource?,
+    lyricsOffset: Long,
+    onLyricsOffsetChange: (Long) -> Unit,
+    onLyricsOffsetReset: () -> Unit,
+    showTranslation: Boolean,
+    onToggleTranslation: () -> Unit,
     onPlayPauseClick: () -> Unit,
     onPreviousClick: () -> Unit,
     onNextClick: () -> Unit,
@@ -55,14 +93,16 @@ fun NowPlayingScreen(
     val lazyListState = rememberLazyListState()
     val coroutineScope = rememberCoroutineScope()
     
-    // Auto-scroll lyrics
-    LaunchedEffect(currentLyricIndex) {
-        if (currentLyricIndex >= 0 && lyrics.isNotEmpty()) {
-            coroutineScope.launch {
-                lazyListState.animateScrollToItem(
-                    index = currentLyricIndex.coerceIn(0, lyrics.lastIndex),
-                    scrollOffset = -200
-                )
+    // Auto-scroll lyrics（在协程中观察当前行，不触发整个页面重组）
+    LaunchedEffect(lyrics) {
+        snapshotFlow { currentLyricIndex() }.collect { index ->
+            if (index >= 0 && lyrics.isNotEmpty()) {
+                coroutineScope.launch {
+                    lazyListState.animateScrollToItem(
+                        index = index.coerceIn(0, lyrics.lastIndex),
+                        scrollOffset = -200
+                    )
+                }
             }
         }
     }
@@ -190,67 +230,135 @@ fun NowPlayingScreen(
                         }
                     }
                 } else if (lyrics.isNotEmpty()) {
-                    Box(
+                    BoxWithConstraints(
                         modifier = Modifier
                             .weight(1f)
                             .fillMaxWidth()
                             .padding(vertical = 16.dp)
                     ) {
+                        val textMeasurer = rememberTextMeasurer()
+                        val density = LocalDensity.current
+                        val lineWidthPx = (constraints.maxWidth -
+                            with(density) { (LYRICS_HORIZONTAL_PADDING * 2).roundToPx() }).coerceAtLeast(0)
+                        val lineStyle = MaterialTheme.typography.bodyLarge.copy(
+                            fontSize = 18.sp,
+                            fontWeight = FontWeight.Bold,
+                            textAlign = TextAlign.Center
+                        )
+                        val translationStyle = MaterialTheme.typography.bodyMedium.copy(textAlign = TextAlign.Center)
+                        val highlightColor = MaterialTheme.colorScheme.primary
+                        val dimColor = MaterialTheme.colorScheme.onSurfaceVariant
+                        
+                        // 每行只测量一次；滚动离开再回来、切换当前行或翻译、调整偏移都不会重新测量
+                        val layoutCache = rememberLyricLayoutCache(
+                            lyrics = lyrics,
+                            lineWidthPx = lineWidthPx,
+                            lineStyle = lineStyle,
+                            translationStyle = translationStyle
+                        ) { text, style, constraints ->
+                            textMeasurer.measure(text = text, style = style, constraints = constraints)
+                        }
+                        
                         LazyColumn(
                             state = lazyListState,
                             modifier = Modifier.fillMaxSize(),
                             horizontalAlignment = Alignment.CenterHorizontally,
-                            contentPadding = PaddingValues(horizontal = 24.dp, vertical = 48.dp)
+                            contentPadding = PaddingValues(horizontal = LYRICS_HORIZONTAL_PADDING, vertical = 48.dp)
                         ) {
                             itemsIndexed(lyrics) { index, lyric ->
-                                val isCurrentLine = index == currentLyricIndex
-                                val textColor by animateColorAsState(
-                                    targetValue = if (isCurrentLine) {
-                                        MaterialTheme.colorScheme.primary
-                                    } else {
-                                        MaterialTheme.colorScheme.onSurfaceVariant.copy(alpha = 0.6f)
-                                    },
-                                    label = "lyric_color"
-                                )
+                                val isCurrentLine by rememberIsCurrentLine(index, currentLyricIndex)
+                                val isKaraokeLine = isCurrentLine && lyrics.hasWordTiming(index)
+                                
+                                // 只有当前逐字歌词行订阅高频进度
+                                val karaokePosition = if (isKaraokeLine) {
+                                    positionTicker.collectPositionAsState(KARAOKE_INTERVAL_MS)
+                                } else {
+                                    null
+                                }
+                                
+                                val lineLayout = layoutCache.line(index, lyric.text)
+                                
+                                val translation = lyric.translation
+                                val translationLayout = if (showTranslation && translation != null) {
+                                    layoutCache.translation(index, translation)
+                                } else {
+                                    null
+                                }
                                 
-                                Text(
-                                    text = lyric.text,
-                                    style = MaterialTheme.typography.bodyLarge,
-                                    fontSize = if (isCurrentLine) 18.sp else 16.sp,
-                                    fontWeight = if (isCurrentLine) FontWeight.Bold else FontWeight.Normal,
-                                    color = textColor,
-                                    textAlign = TextAlign.Center,
-                                    modifier = Modifier
-                                        .fillMaxWidth()
-                                        .padding(vertical = 8.dp)
+                                LyricRow(
+                                    lineLayout = lineLayout,
+                                    translationLayout = translationLayout,
+                                    isCurrentLine = isCurrentLine,
+                                    sungChars = karaokePosition?.let { position ->
+                                        { lyrics.sungCharCount(index, position.value) }
+                                    },
+                                    highlightColor = highlightColor,
+                                    dimColor = dimColor
                                 )
                             }
                             
                             // Source badge at bottom
                             item {
-                                Spacer(modifier = Modifier.height(16.dp))
-                                lyricsSource?.let { source ->
-                                    Surface(
-                                        shape = RoundedCornerShape(12.dp),
-                                        color = MaterialTheme.colorScheme.surfaceVariant.copy(alpha = 0.5f)
-                                    ) {
-                                        Text(
-                                            text = when(source) {
-                                                LyricsSource.LOCAL_FILE -> "本地本地"
-                                                LyricsSource.CACHE -> "缓存"
-                                                LyricsSource.LRCLIB -> "LRCLIB"
-                                                LyricsSource.NETEASE -> "网易云音乐"
-                                                LyricsSource.QQMUSIC -> "QQ音乐"
-                                                LyricsSource.LYRICS_OVH -> "Lyrics.ovh"
-                                                LyricsSource.CHARTLYRICS -> "ChartLyrics"
-                                                LyricsSource.HAPPI -> "Happi.dev"
-                                                LyricsSource.SIMPLE_LYRICS -> "网页爬虫"
-                                                LyricsSource.CANARADO -> "Canarado"
-                                            },
-                                            style = MaterialTheme.typography.labelSmall,
-                                            color = MaterialTheme.colorScheme.onSurfaceVariant,
-                                            modifier = Modifier.padding(horizontal = 12.dp, vertical = 6.dp)
-                                        )
+                                Column(horizontalAlignment = Alignment.CenterHorizontally) {
+                                    Spacer(modifier = Modifier.height(16.dp))
+                                    lyricsSource?.let { source ->
+                                        Surface(
+                                            shape = RoundedCornerShape(12.dp),
+                                            color = MaterialTheme.colorScheme.surfaceVariant.copy(alpha = 0.5f)
+                                        ) {
+                                            Text(
+                                                text = when(source) {
+                                                    LyricsSource.LOCAL_FILE -> "本地本地"
+                                                    LyricsSource.EMBEDDED -> "内嵌歌词"
+                                                    LyricsSource.CACHE -> "缓存"
+                                                    LyricsSource.LRCLIB -> "LRCLIB"
+                                                    LyricsSource.NETEASE -> "网易云音乐"
+                                                    LyricsSource.QQMUSIC -> "QQ音乐"
+                                                    LyricsSource.LYRICS_OVH -> "Lyrics.ovh"
+                                                    LyricsSource.CHARTLYRICS -> "ChartLyrics"
+                                                    LyricsSource.HAPPI -> "Happi.dev"
+                                                    LyricsSource.SIMPLE_LYRICS -> "网页爬虫"
+                                                    LyricsSource.CANARADO -> "Canarado"
+                                                },
+                                                style = MaterialTheme.typography.labelSmall,
+                                                color = MaterialTheme.colorScheme.onSurfaceVariant,
+                                                modifier = Modifier.padding(horizontal = 12.dp, vertical = 6.dp)
+                                            )
+                                        }
+                                    }
+                                
+                                    // Lyrics offset adjustment (synced lyrics only)
+                                    if (lyrics.isSynced) {
+                                        Row(
+                                            verticalAlignment = Alignment.CenterVertically,
+                                            modifier = Modifier.padding(top = 8.dp)
+                                        ) {
+                                            TextButton(onClick = { onLyricsOffsetChange(-LYRICS_OFFSET_STEP_MS) }) {
+                                                Text("延后 0.5s")
+                                            }
+                                            TextButton(
+                                                onClick = onLyricsOffsetReset,
+                                                enabled = lyricsOffset != 0L
+                                            ) {
+                                                Text(
+                                                    text = if (lyricsOffset == 0L) {
+                                                        "偏移 0s"
+                                                    } else {
+                                                        "偏移 %+.1fs".format(lyricsOffset / 1000f)
+                                                    },
+                                                    style = MaterialTheme.typography.labelSmall
+                                                )
+                                            }
+                                            TextButton(onClick = { onLyricsOffsetChange(LYRICS_OFFSET_STEP_MS) }) {
+                                                Text("提前 0.5s")
+                                            }
+                                        }
+                                    }
+                                
+                                    if (lyrics.hasTranslation) {
+                                        TextButton(onClick = onToggleTranslation) {
+                                            Text(if (showTranslation) "隐藏翻译" else "显示翻译")
+                                        }
                                     }
                                 }
                             }
@@ -276,7 +384,7 @@ fun NowPlayingScreen(
                     isPlaying = isPlaying,
                     shuffleMode = shuffleMode,
                     repeatMode = repeatMode,
-                    currentPosition = currentPosition,
+                    positionTicker = positionTicker,
                     duration = duration,
                     onPlayPauseClick = onPlayPauseClick,
                     onPreviousClick = onPreviousClick,
@@ -302,3 +410,173 @@ fun NowPlayingScreen(
         }
     }
 }
+
+/**
+ * 已测量的歌词文本布局，按行号缓存
+ */
+internal class LyricLayoutCache(
+    size: Int,
+    private val lineStyle: TextStyle,
+    private val translationStyle: TextStyle,
+    private val lineConstraints: Constraints,
+    private val measure: (text: AnnotatedString, style: TextStyle, constraints: Constraints) -> TextLayoutResult
+) {
+    private val lines = arrayOfNulls<TextLayoutResult>(size)
+    private val translations = arrayOfNulls<TextLayoutResult>(size)
+    
+    fun line(index: Int, text: String): TextLayoutResult {
+        return lines[index] ?: measure(AnnotatedString(text), lineStyle, lineConstraints).also { lines[index] = it }
+    }
+    
+    fun translation(index: Int, text: String): TextLayoutResult {
+        return translations[index]
+            ?: measure(AnnotatedString(text), translationStyle, lineConstraints).also { translations[index] = it }
+    }
+}
+
+/**
+ * 当前歌词的文本布局缓存
+ *
+ * 以 [LrcLines.textIdentity] 为键而不是歌词本身：调整偏移只平移时间戳，行号与文本不变，
+ * 已测量的布局可以继续使用。measure 只在创建缓存时读取。
+ */
+@Composable
+internal fun rememberLyricLayoutCache(
+    lyrics: LrcLines,
+    lineWidthPx: Int,
+    lineStyle: TextStyle,
+    translationStyle: TextStyle,
+    measure: (text: AnnotatedString, style: TextStyle, constraints: Constraints) -> TextLayoutResult
+): LyricLayoutCache {
+    val density = LocalDensity.current
+    return remember(lyrics.textIdentity, lyrics.size, lineWidthPx, lineStyle, translationStyle, density) {
+        LyricLayoutCache(lyrics.size, lineStyle, translationStyle, Constraints(maxWidth = lineWidthPx), measure)
+    }
+}
+
+/**
+ * 第 index 行是否为当前行
+ *
+ * 每行只订阅自己的布尔结果：当前行变化时只有前后两行重组，其余行不受影响。
+ */
+@Composable
+internal fun rememberIsCurrentLine(index: Int, currentLyricIndex: () -> Int): State<Boolean> {
+    return remember(index, currentLyricIndex) {
+        derivedStateOf { currentLyricIndex() == index }
+    }
+}
+
+/**
+ * 单行歌词
+ *
+ * 文本布局由调用方预先测量并缓存；高亮颜色、缩放与透明度都由同一个动画进度值驱动，
+ * 只在 graphicsLayer 与绘制阶段读取，切换当前行时不会重新测量或重组文本。
+ */
+@OptIn(ExperimentalTextApi::class)
+@Composable
+private fun LyricRow(
+    lineLayout: TextLayoutResult,
+    translationLayout: TextLayoutResult?,
+    isCurrentLine: Boolean,
+    sungChars: (() -> Float)?,
+    highlightColor: Color,
+    dimColor: Color
+) {
+    val progress = remember { Animatable(if (isCurrentLine) 1f else 0f) }
+    LaunchedEffect(isCurrentLine) {
+        progress.animateTo(
+            targetValue = if (isCurrentLine) 1f else 0f,
+            animationSpec = tween(LYRIC_HIGHLIGHT_DURATION_MS)
+        )
+    }
+    
+    val density = LocalDensity.current
+    val spacingPx = with(density) { TRANSLATION_SPACING.toPx() }
+    val heightPx = lineLayout.size.height +
+        (translationLayout?.let { it.size.height + spacingPx } ?: 0f)
+    
+    Spacer(
+        modifier = Modifier
+            .fillMaxWidth()
+            // 文字直接绘制，没有 Text 节点，需要单独提供给无障碍服务朗读
+            .semantics {
+                text = translationLayout?.let {
+                    lineLayout.layoutInput.text + AnnotatedString("\n") + it.layoutInput.text
+                } ?: lineLayout.layoutInput.text
+            }
+            .padding(vertical = 8.dp)
+            .height(with(density) { heightPx.toDp() })
+            .graphicsLayer {
+                val p = progress.value
+                val scale = LYRIC_INACTIVE_SCALE + (1f - LYRIC_INACTIVE_SCALE) * p
+                scaleX = scale
+                scaleY = scale
+                alpha = LYRIC_INACTIVE_ALPHA + (1f - LYRIC_INACTIVE_ALPHA) * p
+                // 逐字高亮需要离屏合成，SrcAtop 只作用于本行文字
+                compositingStrategy = if (sungChars != null) {
+                    CompositingStrategy.Offscreen
+                } else {
+                    CompositingStrategy.Auto
+                }
+            }
+            .drawBehind {
+                val p = progress.value
+                val lineTopLeft = Offset((size.width - lineLayout.size.width) / 2f, 0f)
+                
+                if (sungChars != null) {
+                    drawText(lineLayout, color = dimColor, topLeft = lineTopLeft)
+                    drawKaraokeSweep(lineLayout, sungChars(), highlightColor, lineTopLeft)
+                } else {
+                    drawText(lineLayout, color = lerp(dimColor, highlightColor, p), topLeft = lineTopLeft)
+                }
+                
+                translationLayout?.let { layout ->
+                    drawText(
+                        layout,
+                        color = lerp(dimColor, highlightColor, p * 0.8f),
+                        topLeft = Offset(
+                            (size.width - layout.size.width) / 2f,
+                            lineLayout.size.height + spacingPx
+                        )
+                    )
+                }
+            }
+    )
+}
+
+/**
+ * 逐字歌词的扫过高亮：用 SrcAtop 混合模式把已唱部分覆盖为高亮颜色
+ */
+private fun DrawScope.drawKaraokeSweep(
+    layout: TextLayoutResult,
+    sungChars: Float,
+    color: Color,
+    topLeft: Offset
+) {
+    if (sungChars <= 0f) return
+    
+    for (line in 0 until layout.lineCount) {
+        val lineStart = layout.getLineStart(line)
+        val lineEnd = layout.getLineEnd(line)
+        if (sungChars <= lineStart) break
+        
+        val left = layout.getLineLeft(line)
+        val right = if (sungChars >= lineEnd) {
+            layout.getLineRight(line)
+        } else {
+            val charIndex = sungChars.toInt()
+            val fraction = sungChars - charIndex
+            val x0 = layout.getHorizontalPosition(charIndex, usePrimaryDirection = true)
+            val x1 = layout.getHorizontalPosition((charIndex + 1).coerceAtMost(lineEnd), usePrimaryDirection = true)
+            x0 + (x1 - x0) * fraction
+        }
+        
+        val top = layout.getLineTop(line)
+        drawRect(
+            color = color,
+            topLeft = Offset(topLeft.x + left, topLeft.y + top),
+            size = Size(right - left, layout.getLineBottom(line) - top),
+            blendMode = BlendMode.SrcAtop
+        )
+    }
+}
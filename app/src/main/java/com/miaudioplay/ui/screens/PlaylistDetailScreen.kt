@@ -1,22 +1,33 @@
 package com.miaudioplay.ui.screens
 
+import androidx.activity.compose.BackHandler
+import androidx.compose.foundation.ExperimentalFoundationApi
 import androidx.compose.foundation.layout.*
 import androidx.compose.foundation.lazy.LazyColumn
-import androidx.compose.foundation.lazy.items
+import androidx.compose.foundation.lazy.itemsIndexed
 import androidx.compose.material.icons.Icons
 import androidx.compose.material.icons.filled.ArrowBack
+import androidx.compose.material.icons.filled.Close
+import androidx.compose.material.icons.filled.Delete
 import androidx.compose.material.icons.filled.PlayArrow
+import androidx.compose.material.icons.filled.PlaylistAdd
 import androidx.compose.material.icons.filled.QueueMusic
+import androidx.compose.material.icons.filled.SelectAll
 import androidx.compose.material3.*
 import androidx.compose.runtime.Composable
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.runtime.remember
+import androidx.compose.runtime.setValue
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.unit.dp
 import com.miaudioplay.data.models.Playlist
 import com.miaudioplay.data.models.Song
+import com.miaudioplay.ui.components.PlaylistPickerDialog
 import com.miaudioplay.ui.components.SongItem
 
-@OptIn(ExperimentalMaterial3Api::class)
+@OptIn(ExperimentalMaterial3Api::class, ExperimentalFoundationApi::class)
 @Composable
 fun PlaylistDetailScreen(
     playlist: Playlist,
@@ -26,42 +37,108 @@ fun PlaylistDetailScreen(
     onSongClick: (Song) -> Unit,
     onPlayAllClick: () -> Unit,
     onRemoveFromPlaylist: (Long) -> Unit,
+    playlists: List<Playlist>,
+    onAddSongsToPlaylist: (Set<Long>, Playlist) -> Unit,
+    onRemoveSongs: (Set<Long>) -> Unit,
+    onMoveSong: (song: Song, up: Boolean) -> Unit,
+    orphanCount: Int,
+    onRepairOrphans: () -> Unit,
+    onRemoveOrphans: () -> Unit,
     modifier: Modifier = Modifier
 ) {
+    // 多选：长按进入，之后点击切换选中状态
+    var selectedIds by remember { mutableStateOf(emptySet<Long>()) }
+    var showPlaylistPicker by remember { mutableStateOf(false) }
+    val isSelecting = selectedIds.isNotEmpty()
+    
+    fun toggleSelection(song: Song) {
+        selectedIds = if (song.id in selectedIds) selectedIds - song.id else selectedIds + song.id
+    }
+    
+    BackHandler(enabled = isSelecting) {
+        selectedIds = emptySet()
+    }
+    
+    if (showPlaylistPicker) {
+        PlaylistPickerDialog(
+            playlists = playlists.filter { it.id != playlist.id },
+            onDismiss = { showPlaylistPicker = false },
+            onPlaylistSelected = { target ->
+                onAddSongsToPlaylist(selectedIds, target)
+                showPlaylistPicker = false
+                selectedIds = emptySet()
+            }
+        )
+    }
+    
     Scaffold(
         topBar = {
-            TopAppBar(
-                title = {
-                    Column {
+            if (isSelecting) {
+                TopAppBar(
+                    title = {
                         Text(
-                            text = playlist.name,
+                            text = "已选择 ${selectedIds.size} 首",
                             style = MaterialTheme.typography.titleLarge
                         )
-                        Text(
-                            text = "${songs.size} 首歌曲",
-                            style = MaterialTheme.typography.bodySmall,
-                            color = MaterialTheme.colorScheme.onSurfaceVariant
-                        )
-                    }
-                },
-                navigationIcon = {
-                    IconButton(onClick = onBackClick) {
-                        Icon(Icons.Default.ArrowBack, contentDescription = "返回")
+                    },
+                    navigationIcon = {
+                        IconButton(onClick = { selectedIds = emptySet() }) {
+                            Icon(Icons.Default.Close, contentDescription = "取消选择")
+                        }
+                    },
+                    actions = {
+                        IconButton(onClick = { selectedIds = songs.mapTo(LinkedHashSet()) { it.id } }) {
+                            Icon(Icons.Default.SelectAll, contentDescription = "全选")
+                        }
+                        IconButton(onClick = { showPlaylistPicker = true }) {
+                            Icon(Icons.Default.PlaylistAdd, contentDescription = "添加到其他歌单")
+                        }
+                        if (!playlist.isSmart) {
+                            IconButton(
+                                onClick = {
+                                    onRemoveSongs(selectedIds)
+                                    selectedIds = emptySet()
+                                }
+                            ) {
+                                Icon(Icons.Default.Delete, contentDescription = "从歌单中移除")
+                            }
+                        }
                     }
-                },
-                actions = {
-                    if (songs.isNotEmpty()) {
-                        Button(
-                            onClick = onPlayAllClick,
-                            contentPadding = PaddingValues(horizontal = 16.dp, vertical = 8.dp)
-                        ) {
-                            Icon(Icons.Default.PlayArrow, contentDescription = null)
-                            Spacer(Modifier.width(8.dp))
-                            Text("播放全部")
+                )
+            } else {
+                TopAppBar(
+                    title = {
+                        Column {
+                            Text(
+                                text = playlist.name,
+                                style = MaterialTheme.typography.titleLarge
+                            )
+                            Text(
+                                text = "${songs.size} 首歌曲",
+                                style = MaterialTheme.typography.bodySmall,
+                                color = MaterialTheme.colorScheme.onSurfaceVariant
+                            )
+                        }
+                    },
+                    navigationIcon = {
+                        IconButton(onClick = onBackClick) {
+                            Icon(Icons.Default.ArrowBack, contentDescription = "返回")
+                        }
+                    },
+                    actions = {
+                        if (songs.isNotEmpty()) {
+                            Button(
+                                onClick = onPlayAllClick,
+                                contentPadding = PaddingValues(horizontal = 16.dp, vertical = 8.dp)
+                            ) {
+                                Icon(Icons.Default.PlayArrow, contentDescription = null)
+                                Spacer(Modifier.width(8.dp))
+                                Text("播放全部")
+                            }
                         }
                     }
-                }
-            )
+                )
+            }
         }
     ) { paddingValues ->
         Box(
@@ -69,7 +146,7 @@ fun PlaylistDetailScreen(
                 .fillMaxSize()
                 .padding(paddingValues)
         ) {
-            if (songs.isEmpty()) {
+            if (songs.isEmpty() && orphanCount == 0) {
                 Column(
                     modifier = Modifier.align(Alignment.Center),
                     horizontalAlignment = Alignment.CenterHorizontally
@@ -92,14 +169,42 @@ fun PlaylistDetailScreen(
                     modifier = Modifier.fillMaxSize(),
                     contentPadding = PaddingValues(bottom = 80.dp)
                 ) {
-                    items(songs, key = { it.id }) { song ->
+                    if (orphanCount > 0) {
+                        item {
+                            OrphanBanner(
+                                orphanCount = orphanCount,
+                                onRepairClick = onRepairOrphans,
+                                onRemoveClick = onRemoveOrphans
+                            )
+                        }
+                    }
+                    
+                    itemsIndexed(songs, key = { _, song -> song.id }) { index, song ->
                         SongItem(
                             song = song,
                             isPlaying = currentSong?.id == song.id,
-                            onClick = { onSongClick(song) },
+                            onClick = { if (isSelecting) toggleSelection(song) else onSongClick(song) },
                             onAddToPlaylist = { /* Already in playlist */ },
                             playlists = emptyList(), // Disable add to playlist menu in detail view
-                            onRemoveClick = { onRemoveFromPlaylist(song.id) }
+                            // 智能歌单的成员与顺序由规则决定
+                            onRemoveClick = if (!playlist.isSmart) {
+                                { onRemoveFromPlaylist(song.id) }
+                            } else {
+                                null
+                            },
+                            onMoveUp = if (!playlist.isSmart && index > 0) {
+                                { onMoveSong(song, true) }
+                            } else {
+                                null
+                            },
+                            onMoveDown = if (!playlist.isSmart && index < songs.lastIndex) {
+                                { onMoveSong(song, false) }
+                            } else {
+                                null
+                            },
+                            isSelected = song.id in selectedIds,
+                            onLongClick = { toggleSelection(song) },
+                            modifier = Modifier.animateItemPlacement()
                         )
                     }
                 }
@@ -107,3 +212,39 @@ fun PlaylistDetailScreen(
         }
     }
 }
+
+/**
+ * 歌单中有歌曲已不在设备上时的提示
+ */
+@Composable
+private fun OrphanBanner(
+    orphanCount: Int,
+    onRepairClick: () -> Unit,
+    onRemoveClick: () -> Unit
+) {
+    Surface(
+        modifier = Modifier
+            .fillMaxWidth()
+            .padding(horizontal = 16.dp, vertical = 8.dp),
+        shape = MaterialTheme.shapes.medium,
+        color = MaterialTheme.colorScheme.errorContainer
+    ) {
+        Row(
+            modifier = Modifier.padding(start = 16.dp, end = 8.dp, top = 4.dp, bottom = 4.dp),
+            verticalAlignment = Alignment.CenterVertically
+        ) {
+            Text(
+                text = "$orphanCount 首歌曲已不在设备上",
+                style = MaterialTheme.typography.bodyMedium,
+                color = MaterialTheme.colorScheme.onErrorContainer,
+                modifier = Modifier.weight(1f)
+            )
+            TextButton(onClick = onRepairClick) {
+                Text("重新匹配")
+            }
+            TextButton(onClick = onRemoveClick) {
+                Text("移除")
+            }
+        }
+    }
+}
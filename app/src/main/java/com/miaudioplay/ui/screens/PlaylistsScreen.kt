@@ -1,5 +1,8 @@
 package com.miaudioplay.ui.screens
 
+import android.net.Uri
+import androidx.activity.compose.rememberLauncherForActivityResult
+import androidx.activity.result.contract.ActivityResultContracts
 import androidx.compose.foundation.background
 import androidx.compose.foundation.clickable
 import androidx.compose.foundation.layout.*
@@ -13,24 +16,57 @@ import androidx.compose.runtime.*
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.draw.clip
+import androidx.compose.ui.layout.ContentScale
 import androidx.compose.ui.unit.dp
+import coil.compose.AsyncImage
+import com.miaudioplay.data.ImportProgress
 import com.miaudioplay.data.models.Playlist
+import com.miaudioplay.data.models.PlaylistSummary
 
 @OptIn(ExperimentalMaterial3Api::class)
 @Composable
 fun PlaylistsScreen(
-    playlists: List<Playlist>,
+    playlists: List<PlaylistSummary>,
     onPlaylistClick: (Playlist) -> Unit,
     onCreatePlaylist: (String) -> Unit,
     onDeletePlaylist: (Long) -> Unit,
     onPlayPlaylist: (Long) -> Unit,
+    importProgress: ImportProgress?,
+    transferMessage: String?,
+    onImportPlaylist: (Uri) -> Unit,
+    onExportPlaylist: (Playlist, Uri) -> Unit,
+    onTransferMessageShown: () -> Unit,
     modifier: Modifier = Modifier
 ) {
     var showCreateDialog by remember { mutableStateOf(false) }
     var newPlaylistName by remember { mutableStateOf("") }
     var playlistToDelete by remember { mutableStateOf<Playlist?>(null) }
+    var playlistToExport by remember { mutableStateOf<Playlist?>(null) }
+    val snackbarHostState = remember { SnackbarHostState() }
+    
+    // 歌单文件的 MIME 类型在各文件管理器中并不统一，不做过滤，由内容判断格式
+    val importLauncher = rememberLauncherForActivityResult(ActivityResultContracts.OpenDocument()) { uri ->
+        uri?.let(onImportPlaylist)
+    }
+    val exportLauncher = rememberLauncherForActivityResult(
+        ActivityResultContracts.CreateDocument("audio/x-mpegurl")
+    ) { uri ->
+        val playlist = playlistToExport
+        if (uri != null && playlist != null) {
+            onExportPlaylist(playlist, uri)
+        }
+        playlistToExport = null
+    }
+    
+    LaunchedEffect(transferMessage) {
+        if (transferMessage != null) {
+            snackbarHostState.showSnackbar(transferMessage)
+            onTransferMessageShown()
+        }
+    }
     
     Scaffold(
+        snackbarHost = { SnackbarHost(snackbarHostState) },
         topBar = {
             TopAppBar(
                 title = {
@@ -40,6 +76,15 @@ fun PlaylistsScreen(
                     )
                 },
                 actions = {
+                    IconButton(
+                        onClick = { importLauncher.launch(arrayOf("*/*")) },
+                        enabled = importProgress == null
+                    ) {
+                        Icon(
+                            imageVector = Icons.Default.FileOpen,
+                            contentDescription = "导入歌单"
+                        )
+                    }
                     IconButton(onClick = { showCreateDialog = true }) {
                         Icon(
                             imageVector = Icons.Default.Add,
@@ -58,6 +103,22 @@ fun PlaylistsScreen(
                 .fillMaxSize()
                 .padding(paddingValues)
         ) {
+            if (importProgress != null) {
+                Column(
+                    modifier = Modifier
+                        .align(Alignment.TopCenter)
+                        .fillMaxWidth()
+                ) {
+                    LinearProgressIndicator(modifier = Modifier.fillMaxWidth())
+                    Text(
+                        text = "正在导入：已读取 ${importProgress.read} 条，匹配 ${importProgress.matched} 首",
+                        style = MaterialTheme.typography.bodySmall,
+                        color = MaterialTheme.colorScheme.onSurfaceVariant,
+                        modifier = Modifier.padding(horizontal = 16.dp, vertical = 4.dp)
+                    )
+                }
+            }
+            
             if (playlists.isEmpty()) {
                 Column(
                     modifier = Modifier.align(Alignment.Center),
@@ -92,12 +153,21 @@ fun PlaylistsScreen(
                     contentPadding = PaddingValues(16.dp),
                     verticalArrangement = Arrangement.spacedBy(12.dp)
                 ) {
-                    items(playlists, key = { it.id }) { playlist ->
+                    items(playlists, key = { it.playlist.id }) { summary ->
                         PlaylistItem(
-                            playlist = playlist,
-                            onClick = { onPlaylistClick(playlist) },
-                            onPlay = { onPlayPlaylist(playlist.id) },
-                            onDelete = { playlistToDelete = playlist }
+                            summary = summary,
+                            onClick = { onPlaylistClick(summary.playlist) },
+                            onPlay = { onPlayPlaylist(summary.playlist.id) },
+                            onDelete = { playlistToDelete = summary.playlist },
+                            // 智能歌单没有条目可导出
+                            onExport = if (!summary.playlist.isSmart) {
+                                {
+                                    playlistToExport = summary.playlist
+                                    exportLauncher.launch("${summary.playlist.name}.m3u8")
+                                }
+                            } else {
+                                null
+                            }
                         )
                     }
                     
@@ -179,10 +249,11 @@ fun PlaylistsScreen(
 
 @Composable
 private fun PlaylistItem(
-    playlist: Playlist,
+    summary: PlaylistSummary,
     onClick: () -> Unit,
     onPlay: () -> Unit,
-    onDelete: () -> Unit
+    onDelete: () -> Unit,
+    onExport: (() -> Unit)? = null
 ) {
     var showMenu by remember { mutableStateOf(false) }
     
@@ -201,7 +272,7 @@ private fun PlaylistItem(
                 .padding(16.dp),
             verticalAlignment = Alignment.CenterVertically
         ) {
-            // Playlist icon
+            // Playlist cover
             Box(
                 modifier = Modifier
                     .size(56.dp)
@@ -215,6 +286,14 @@ private fun PlaylistItem(
                     tint = MaterialTheme.colorScheme.primary,
                     modifier = Modifier.size(28.dp)
                 )
+                summary.coverArtUri?.let { coverUri ->
+                    AsyncImage(
+                        model = coverUri,
+                        contentDescription = null,
+                        modifier = Modifier.fillMaxSize(),
+                        contentScale = ContentScale.Crop
+                    )
+                }
             }
             
             Spacer(modifier = Modifier.width(16.dp))
@@ -224,10 +303,21 @@ private fun PlaylistItem(
                 modifier = Modifier.weight(1f)
             ) {
                 Text(
-                    text = playlist.name,
+                    text = summary.playlist.name,
                     style = MaterialTheme.typography.titleMedium,
                     color = MaterialTheme.colorScheme.onSurface
                 )
+                Spacer(modifier = Modifier.height(2.dp))
+                Text(
+                    // 智能歌单没有条目，歌曲数在打开后按规则查询
+                    text = if (summary.playlist.isSmart) {
+                        "智能歌单"
+                    } else {
+                        "${summary.songCount} 首歌曲 • ${formatTotalDuration(summary.totalDuration)}"
+                    },
+                    style = MaterialTheme.typography.bodySmall,
+                    color = MaterialTheme.colorScheme.onSurfaceVariant
+                )
             }
             
             // Play button
@@ -254,6 +344,21 @@ private fun PlaylistItem(
                     expanded = showMenu,
                     onDismissRequest = { showMenu = false }
                 ) {
+                    if (onExport != null) {
+                        DropdownMenuItem(
+                            text = { Text("导出为 M3U") },
+                            onClick = {
+                                showMenu = false
+                                onExport()
+                            },
+                            leadingIcon = {
+                                Icon(
+                                    imageVector = Icons.Default.FileDownload,
+                                    contentDescription = null
+                                )
+                            }
+                        )
+                    }
                     DropdownMenuItem(
                         text = { Text("删除歌单") },
                         onClick = {
@@ -273,3 +378,10 @@ private fun PlaylistItem(
         }
     }
 }
+
+private fun formatTotalDuration(durationMs: Long): String {
+    val totalMinutes = durationMs / 60_000
+    val hours = totalMinutes / 60
+    val minutes = totalMinutes % 60
+    return if (hours > 0) "$hours 小时 $minutes 分钟" else "$minutes 分钟"
+}
@@ -1,26 +1,42 @@
 package com.miaudioplay.ui.screens
 
+import androidx.activity.compose.BackHandler
+import androidx.compose.foundation.ExperimentalFoundationApi
 import androidx.compose.foundation.layout.*
 import androidx.compose.foundation.lazy.LazyColumn
 import androidx.compose.foundation.lazy.items
+import androidx.compose.foundation.lazy.rememberLazyListState
 import androidx.compose.material.icons.Icons
 import androidx.compose.material.icons.filled.Close
+import androidx.compose.material.icons.filled.MyLocation
+import androidx.compose.material.icons.filled.PlaylistAdd
 import androidx.compose.material.icons.filled.Search
+import androidx.compose.material.icons.filled.SelectAll
 import androidx.compose.material3.*
 import androidx.compose.runtime.Composable
 import androidx.compose.runtime.collectAsState
 import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.runtime.remember
+import androidx.compose.runtime.rememberCoroutineScope
+import androidx.compose.runtime.setValue
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.unit.dp
+import androidx.paging.compose.LazyPagingItems
+import androidx.paging.compose.itemKey
 import com.miaudioplay.data.models.Playlist
 import com.miaudioplay.data.models.Song
+import com.miaudioplay.ui.components.PlaylistPickerDialog
 import com.miaudioplay.ui.components.SongItem
+import kotlinx.coroutines.launch
 
-@OptIn(ExperimentalMaterial3Api::class)
+@OptIn(ExperimentalMaterial3Api::class, ExperimentalFoundationApi::class)
 @Composable
 fun SongsScreen(
     songs: List<Song>,
+    pagedSongs: LazyPagingItems<Song>,
+    songCount: Int,
     currentSong: Song?,
     isLoading: Boolean,
     playlists: List<Playlist>,
@@ -28,22 +44,101 @@ fun SongsScreen(
     onSearchQueryChange: (String) -> Unit,
     onSongClick: (Song) -> Unit,
     onAddToPlaylist: (Song, Playlist) -> Unit,
+    onAddSongsToPlaylist: (Set<Long>, Playlist) -> Unit,
+    onLocateSong: suspend (Song) -> Int?,
     modifier: Modifier = Modifier
 ) {
+    // 没有搜索时显示分页的完整媒体库，搜索结果仍为普通列表
+    val isPaged = searchQuery.isBlank()
+    val listState = rememberLazyListState()
+    val coroutineScope = rememberCoroutineScope()
+    
+    // 多选：长按进入，之后点击切换选中状态
+    var selectedIds by remember { mutableStateOf(emptySet<Long>()) }
+    var showPlaylistPicker by remember { mutableStateOf(false) }
+    val isSelecting = selectedIds.isNotEmpty()
+    
+    fun toggleSelection(song: Song) {
+        selectedIds = if (song.id in selectedIds) selectedIds - song.id else selectedIds + song.id
+    }
+    
+    BackHandler(enabled = isSelecting) {
+        selectedIds = emptySet()
+    }
+    
+    if (showPlaylistPicker) {
+        PlaylistPickerDialog(
+            playlists = playlists,
+            onDismiss = { showPlaylistPicker = false },
+            onPlaylistSelected = { playlist ->
+                onAddSongsToPlaylist(selectedIds, playlist)
+                showPlaylistPicker = false
+                selectedIds = emptySet()
+            }
+        )
+    }
+    
     Scaffold(
         topBar = {
             Column {
-                TopAppBar(
-                    title = {
-                        Text(
-                            text = "音乐库",
-                            style = MaterialTheme.typography.headlineMedium
+                if (isSelecting) {
+                    TopAppBar(
+                        title = {
+                            Text(
+                                text = "已选择 ${selectedIds.size} 首",
+                                style = MaterialTheme.typography.titleLarge
+                            )
+                        },
+                        navigationIcon = {
+                            IconButton(onClick = { selectedIds = emptySet() }) {
+                                Icon(Icons.Default.Close, contentDescription = "取消选择")
+                            }
+                        },
+                        actions = {
+                            // 分页列表不在内存中，只有搜索结果支持全选
+                            if (!isPaged) {
+                                IconButton(onClick = { selectedIds = songs.mapTo(LinkedHashSet()) { it.id } }) {
+                                    Icon(Icons.Default.SelectAll, contentDescription = "全选")
+                                }
+                            }
+                            IconButton(onClick = { showPlaylistPicker = true }) {
+                                Icon(Icons.Default.PlaylistAdd, contentDescription = "添加到歌单")
+                            }
+                        },
+                        colors = TopAppBarDefaults.topAppBarColors(
+                            containerColor = MaterialTheme.colorScheme.background
                         )
-                    },
-                    colors = TopAppBarDefaults.topAppBarColors(
-                        containerColor = MaterialTheme.colorScheme.background
                     )
-                )
+                } else {
+                    TopAppBar(
+                        title = {
+                            Text(
+                                text = "音乐库",
+                                style = MaterialTheme.typography.headlineMedium
+                            )
+                        },
+                        actions = {
+                            if (isPaged && currentSong != null) {
+                                IconButton(
+                                    onClick = {
+                                        coroutineScope.launch {
+                                            // 第一项为歌曲数量标题
+                                            onLocateSong(currentSong)?.let { listState.scrollToItem(it + 1) }
+                                        }
+                                    }
+                                ) {
+                                    Icon(
+                                        imageVector = Icons.Default.MyLocation,
+                                        contentDescription = "定位当前歌曲"
+                                    )
+                                }
+                            }
+                        },
+                        colors = TopAppBarDefaults.topAppBarColors(
+                            containerColor = MaterialTheme.colorScheme.background
+                        )
+                    )
+                }
                 // Search bar
                 OutlinedTextField(
                     value = searchQuery,
@@ -89,7 +184,7 @@ fun SongsScreen(
                         modifier = Modifier.align(Alignment.Center)
                     )
                 }
-                songs.isEmpty() -> {
+                (if (isPaged) songCount == 0 else songs.isEmpty()) -> {
                     Column(
                         modifier = Modifier.align(Alignment.Center),
                         horizontalAlignment = Alignment.CenterHorizontally
@@ -109,26 +204,58 @@ fun SongsScreen(
                 }
                 else -> {
                     LazyColumn(
+                        state = listState,
                         modifier = Modifier.fillMaxSize(),
                         contentPadding = PaddingValues(bottom = 80.dp) // Space for mini player
                     ) {
                         item {
                             Text(
-                                text = "${songs.size} 首歌曲",
+                                text = "${if (isPaged) songCount else songs.size} 首歌曲",
                                 style = MaterialTheme.typography.labelMedium,
                                 color = MaterialTheme.colorScheme.onSurfaceVariant,
                                 modifier = Modifier.padding(16.dp)
                             )
                         }
                         
-                        items(songs, key = { it.id }) { song ->
-                            SongItem(
-                                song = song,
-                                isPlaying = currentSong?.id == song.id,
-                                onClick = { onSongClick(song) },
-                                onAddToPlaylist = { playlist -> onAddToPlaylist(song, playlist) },
-                                playlists = playlists
-                            )
+                        if (isPaged) {
+                            items(
+                                count = pagedSongs.itemCount,
+                                key = pagedSongs.itemKey { it.id }
+                            ) { index ->
+                                val song = pagedSongs[index]
+                                if (song != null) {
+                                    SongItem(
+                                        song = song,
+                                        isPlaying = currentSong?.id == song.id,
+                                        onClick = { if (isSelecting) toggleSelection(song) else onSongClick(song) },
+                                        onAddToPlaylist = { playlist -> onAddToPlaylist(song, playlist) },
+                                        playlists = playlists,
+                                        isSelected = song.id in selectedIds,
+                                        onLongClick = { toggleSelection(song) },
+                                        modifier = Modifier.animateItemPlacement()
+                                    )
+                                } else {
+                                    // 尚未加载的占位，高度与 SongItem 一致，跳转时位置保持准确
+                                    Spacer(
+                                        modifier = Modifier
+                                            .fillMaxWidth()
+                                            .height(72.dp)
+                                    )
+                                }
+                            }
+                        } else {
+                            items(songs, key = { it.id }) { song ->
+                                SongItem(
+                                    song = song,
+                                    isPlaying = currentSong?.id == song.id,
+                                    onClick = { if (isSelecting) toggleSelection(song) else onSongClick(song) },
+                                    onAddToPlaylist = { playlist -> onAddToPlaylist(song, playlist) },
+                                    playlists = playlists,
+                                    isSelected = song.id in selectedIds,
+                                    onLongClick = { toggleSelection(song) },
+                                    modifier = Modifier.animateItemPlacement()
+                                )
+                            }
                         }
                     }
                 }
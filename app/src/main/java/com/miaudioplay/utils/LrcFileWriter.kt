@@ -4,6 +4,7 @@ import android.content.Context
 import android.os.Build
 import android.os.Environment
 import android.util.Log
+import com.miaudioplay.data.LrcIndex
 import java.io.File
 
 /**
@@ -38,18 +39,20 @@ object LrcFileWriter {
                 return false
             }
             
-            // 生成LRC文件名
-            val baseName = audioFile.nameWithoutExtension
-            val lrcFile = File(parentDir, "$baseName.lrc")
-            
             // 如果文件已存在，不覆盖
-            if (lrcFile.exists()) {
-                Log.d(TAG, "LRC file already exists, skipping: ${lrcFile.absolutePath}")
+            val existing = LrcIndex.find(audioPath)
+            if (existing != null) {
+                Log.d(TAG, "LRC file already exists, skipping: ${existing.absolutePath}")
                 return false
             }
             
+            // 生成LRC文件名
+            val baseName = audioFile.nameWithoutExtension
+            val lrcFile = File(parentDir, "$baseName.lrc")
+            
             // 写入文件
             lrcFile.writeText(lrcContent, Charsets.UTF_8)
+            LrcIndex.onLrcFileWritten(lrcFile)
             Log.d(TAG, "✓ LRC file saved successfully: ${lrcFile.absolutePath}")
             
             true
@@ -80,16 +83,7 @@ object LrcFileWriter {
      */
     fun getLrcFilePath(audioPath: String): String? {
         return try {
-            val audioFile = File(audioPath)
-            val baseName = audioFile.nameWithoutExtension
-            val parentDir = audioFile.parentFile ?: return null
-            val lrcFile = File(parentDir, "$baseName.lrc")
-            
-            if (lrcFile.exists()) {
-                lrcFile.absolutePath
-            } else {
-                null
-            }
+            LrcIndex.find(audioPath)?.absolutePath
         } catch (e: Exception) {
             null
         }
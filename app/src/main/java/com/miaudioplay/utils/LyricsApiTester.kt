@@ -82,9 +82,9 @@ object LyricsApiTester {
             
             val duration = System.currentTimeMillis() - startTime
             
-            if (!lyrics.isNullOrBlank()) {
-                Log.d(TAG, "✓ LRCLIB: Success (${duration}ms, ${lyrics.length} chars)")
-                ApiTestResult(true, "成功", duration, lyrics.take(100))
+            if (lyrics != null) {
+                Log.d(TAG, "✓ LRCLIB: Success (${duration}ms, ${lyrics.content.length} chars)")
+                ApiTestResult(true, "成功", duration, lyrics.content.take(100))
             } else {
                 Log.w(TAG, "✗ LRCLIB: No lyrics found")
                 ApiTestResult(false, "未找到歌词", duration, null)
@@ -103,12 +103,12 @@ object LyricsApiTester {
             val duration = System.currentTimeMillis() - startTime
             
             if (lyrics != null) {
-                Log.d(TAG, "✓ QQ Music: Success (${duration}ms, ${lyrics.length} chars)")
+                Log.d(TAG, "✓ QQ Music: Success (${duration}ms, ${lyrics.content.length} chars)")
                 ApiTestResult(
                     success = true,
                     message = "成功",
                     durationMs = duration,
-                    lyricsPreview = lyrics.take(100)
+                    lyricsPreview = lyrics.content.take(100)
                 )
             } else {
                 Log.d(TAG, "✗ QQ Music: No lyrics found")
@@ -140,9 +140,9 @@ object LyricsApiTester {
             
             val duration = System.currentTimeMillis() - startTime
             
-            if (!lyrics.isNullOrBlank()) {
-                Log.d(TAG, "✓ NetEase: Success (${duration}ms, ${lyrics.length} chars)")
-                ApiTestResult(true, "成功", duration, lyrics.take(100))
+            if (lyrics != null) {
+                Log.d(TAG, "✓ NetEase: Success (${duration}ms, ${lyrics.content.length} chars)")
+                ApiTestResult(true, "成功", duration, lyrics.content.take(100))
             } else {
                 Log.w(TAG, "✗ NetEase: No lyrics found")
                 ApiTestResult(false, "未找到歌词", duration, null)
@@ -162,9 +162,9 @@ object LyricsApiTester {
             
             val duration = System.currentTimeMillis() - startTime
             
-            if (!lyrics.isNullOrBlank()) {
-                Log.d(TAG, "✓ Lyrics.ovh: Success (${duration}ms, ${lyrics.length} chars)")
-                ApiTestResult(true, "成功", duration, lyrics.take(100))
+            if (lyrics != null) {
+                Log.d(TAG, "✓ Lyrics.ovh: Success (${duration}ms, ${lyrics.content.length} chars)")
+                ApiTestResult(true, "成功", duration, lyrics.content.take(100))
             } else {
                 Log.w(TAG, "✗ Lyrics.ovh: No lyrics found")
                 ApiTestResult(false, "未找到歌词", duration, null)
@@ -185,9 +185,9 @@ object LyricsApiTester {
             
             val duration = System.currentTimeMillis() - startTime
             
-            if (!lyrics.isNullOrBlank()) {
-                Log.d(TAG, "✓ ChartLyrics: Success (${duration}ms, ${lyrics.length} chars)")
-                ApiTestResult(true, "成功", duration, lyrics.take(100))
+            if (lyrics != null) {
+                Log.d(TAG, "✓ ChartLyrics: Success (${duration}ms, ${lyrics.content.length} chars)")
+                ApiTestResult(true, "成功", duration, lyrics.content.take(100))
             } else {
                 Log.w(TAG, "✗ ChartLyrics: No lyrics found")
                 ApiTestResult(false, "未找到歌词", duration, null)
@@ -207,9 +207,9 @@ object LyricsApiTester {
             
             val duration = System.currentTimeMillis() - startTime
             
-            if (!lyrics.isNullOrBlank()) {
-                Log.d(TAG, "✓ Happi: Success (${duration}ms, ${lyrics.length} chars)")
-                ApiTestResult(true, "成功", duration, lyrics.take(100))
+            if (lyrics != null) {
+                Log.d(TAG, "✓ Happi: Success (${duration}ms, ${lyrics.content.length} chars)")
+                ApiTestResult(true, "成功", duration, lyrics.content.take(100))
             } else {
                 Log.w(TAG, "✗ Happi: No lyrics found")
                 ApiTestResult(false, "未找到歌词", duration, null)
@@ -229,9 +229,9 @@ object LyricsApiTester {
             
             val duration = System.currentTimeMillis() - startTime
             
-            if (!lyrics.isNullOrBlank()) {
-                Log.d(TAG, "✓ SimpleLyrics: Success (${duration}ms, ${lyrics.length} chars)")
-                ApiTestResult(true, "成功", duration, lyrics.take(100))
+            if (lyrics != null) {
+                Log.d(TAG, "✓ SimpleLyrics: Success (${duration}ms, ${lyrics.content.length} chars)")
+                ApiTestResult(true, "成功", duration, lyrics.content.take(100))
             } else {
                 Log.w(TAG, "✗ SimpleLyrics: No lyrics found")
                 ApiTestResult(false, "未找到歌词", duration, null)
@@ -251,9 +251,9 @@ object LyricsApiTester {
             
             val duration = System.currentTimeMillis() - startTime
             
-            if (!lyrics.isNullOrBlank()) {
-                Log.d(TAG, "✓ Canarado: Success (${duration}ms, ${lyrics.length} chars)")
-                ApiTestResult(true, "成功", duration, lyrics.take(100))
+            if (lyrics != null) {
+                Log.d(TAG, "✓ Canarado: Success (${duration}ms, ${lyrics.content.length} chars)")
+                ApiTestResult(true, "成功", duration, lyrics.content.take(100))
             } else {
                 Log.w(TAG, "✗ Canarado: No lyrics found")
                 ApiTestResult(false, "未找到歌词", duration, null)
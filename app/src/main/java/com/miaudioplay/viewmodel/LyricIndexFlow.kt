@@ -0,0 +1,47 @@
+package com.miaudioplay.viewmodel
+
+import com.miaudioplay.data.LyricTimeline
+import com.miaudioplay.data.models.LrcLines
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.transformLatest
+
+/**
+ * 当前歌词行，第一行开始前为 LyricTimeline.BEFORE_FIRST（-1）
+ *
+ * 不轮询播放位置：根据当前位置与倍速计算到下一行开始的时间，挂起到那一刻再更新；
+ * events（跳转、暂停、倍速变化、切歌）或歌词/偏移变化时重新同步。暂停、
+ * 非同步歌词或播放器不可用（readPosition 返回 null）时完全停止。
+ */
+@OptIn(ExperimentalCoroutinesApi::class)
+internal fun lyricIndexFlow(
+    lyrics: Flow<LrcLines>,
+    events: Flow<Unit>,
+    readPosition: () -> Long?,
+    isPlaying: () -> Boolean,
+    playbackSpeed: () -> Float
+): Flow<Int> = combine(lyrics, events) { lines, _ -> lines }
+    .transformLatest { lines ->
+        if (lines.isEmpty() || !lines.isSynced) {
+            emit(LyricTimeline.BEFORE_FIRST)
+            return@transformLatest
+        }
+
+        val timeline = LyricTimeline(lines.timestamps)
+        while (true) {
+            val position = readPosition() ?: break
+            val index = timeline.indexAt(position)
+            emit(index)
+
+            val nextBoundary = timeline.nextBoundary(index)
+            if (!isPlaying() || nextBoundary == LyricTimeline.NO_BOUNDARY) break
+
+            val speed = playbackSpeed().coerceAtLeast(0.1f)
+            val untilNext = ((nextBoundary - position) / speed).toLong()
+            delay(untilNext.coerceAtLeast(1))
+        }
+    }
+    .distinctUntilChanged()
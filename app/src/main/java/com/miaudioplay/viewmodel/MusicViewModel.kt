@@ -8,40 +8,81 @@ import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.viewModelScope
 import androidx.media3.common.MediaItem
 import androidx.media3.common.MediaMetadata
+import androidx.media3.common.PlaybackParameters
 import androidx.media3.common.Player
 import androidx.media3.session.MediaController
 import androidx.media3.session.SessionToken
+import androidx.paging.PagingData
+import androidx.paging.cachedIn
 import com.google.common.util.concurrent.ListenableFuture
 import com.google.common.util.concurrent.MoreExecutors
-import com.miaudioplay.data.LrcParser
+import com.miaudioplay.data.ImportProgress
+import com.miaudioplay.data.LibraryStore
+import com.miaudioplay.data.LrcIndex
 import com.miaudioplay.data.LyricsRepository
 import com.miaudioplay.data.MusicRepository
-import com.miaudioplay.data.models.LyricLine
+import com.miaudioplay.data.PlaylistResolver
+import com.miaudioplay.data.models.LrcLines
 import com.miaudioplay.data.models.LyricsSource
 import com.miaudioplay.data.models.Playlist
+import com.miaudioplay.data.models.PlaylistSong
+import com.miaudioplay.data.models.SmartRule
 import com.miaudioplay.data.models.Song
 import com.miaudioplay.service.MusicService
 import com.miaudioplay.utils.FuzzyMatcher
 import com.miaudioplay.utils.LyricsApiTester
 import com.miaudioplay.utils.NetworkUtils
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.channels.BufferOverflow
 import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableSharedFlow
 import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.stateIn
+import kotlinx.coroutines.isActive
 import kotlinx.coroutines.launch
 
+@OptIn(ExperimentalCoroutinesApi::class)
 class MusicViewModel(application: Application) : AndroidViewModel(application) {
     
+    companion object {
+        // 没有观察者后保持计时的时间（覆盖屏幕旋转等配置变化）
+        private const val STOP_TIMEOUT_MS = 5_000L
+    }
+    
     private val repository = MusicRepository(application)
     private val lyricsRepository = LyricsRepository(application)
     
     // Songs state
-    private val _songs = MutableStateFlow<List<Song>>(emptyList())
-    val songs: StateFlow<List<Song>> = _songs.asStateFlow()
+    // 按引用比较的容器（不是 data class）：StateFlow 更新时不逐行比较新旧媒体库
+    private class LibrarySnapshot(val store: LibraryStore)
+    
+    private val _library = MutableStateFlow(LibrarySnapshot(LibraryStore.EMPTY))
+    val songs: StateFlow<List<Song>> = _library.map { it.store }
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(STOP_TIMEOUT_MS), LibraryStore.EMPTY)
+    
+    private val currentLibrary: LibraryStore
+        get() = _library.value.store
     
     private val _isLoading = MutableStateFlow(true)
     val isLoading: StateFlow<Boolean> = _isLoading.asStateFlow()
     
+    // 媒体库列表分页显示，只保留可见位置附近的数据
+    val pagedSongs: Flow<PagingData<Song>> = repository.pagedSongs().cachedIn(viewModelScope)
+    
+    val songCount: StateFlow<Int> = repository.observeSongCount()
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(STOP_TIMEOUT_MS), 0)
+    
+    // MediaStore 同步与变化监听
+    private var libraryJob: Job? = null
+    private var lyricsJob: Job? = null
+    
     // Search state
     private val _searchQuery = MutableStateFlow("")
     val searchQuery: StateFlow<String> = _searchQuery.asStateFlow()
@@ -49,6 +90,12 @@ class MusicViewModel(application: Application) : AndroidViewModel(application) {
     private val _filteredSongs = MutableStateFlow<List<Song>>(emptyList())
     val filteredSongs: StateFlow<List<Song>> = _filteredSongs.asStateFlow()
     
+    // 播放器事件（播放/暂停、跳转、倍速、切歌、控制器连接），用于重新同步歌词计时
+    private val playerEvents = MutableSharedFlow<Unit>(
+        replay = 1,
+        onBufferOverflow = BufferOverflow.DROP_OLDEST
+    ).apply { tryEmit(Unit) }
+    
     // Current playback state
     private val _currentSong = MutableStateFlow<Song?>(null)
     val currentSong: StateFlow<Song?> = _currentSong.asStateFlow()
@@ -56,8 +103,15 @@ class MusicViewModel(application: Application) : AndroidViewModel(application) {
     private val _isPlaying = MutableStateFlow(false)
     val isPlaying: StateFlow<Boolean> = _isPlaying.asStateFlow()
     
-    private val _currentPosition = MutableStateFlow(0L)
-    val currentPosition: StateFlow<Long> = _currentPosition.asStateFlow()
+    /**
+     * 播放进度：界面按各自需要的间隔订阅，共享同一个上游轮询
+     */
+    val positionTicker = PositionTicker(
+        scope = viewModelScope,
+        events = playerEvents,
+        readPosition = { mediaController?.currentPosition },
+        isPlaying = { mediaController?.isPlaying == true }
+    )
     
     private val _duration = MutableStateFlow(0L)
     val duration: StateFlow<Long> = _duration.asStateFlow()
@@ -69,11 +123,27 @@ class MusicViewModel(application: Application) : AndroidViewModel(application) {
     val repeatMode: StateFlow<Int> = _repeatMode.asStateFlow()
     
     // Lyrics
-    private val _lyrics = MutableStateFlow<List<LyricLine>>(emptyList())
-    val lyrics: StateFlow<List<LyricLine>> = _lyrics.asStateFlow()
+    private val _lyrics = MutableStateFlow(LrcLines.EMPTY)
+    val lyrics: StateFlow<LrcLines> = _lyrics.asStateFlow()
     
-    private val _currentLyricIndex = MutableStateFlow(-1)
-    val currentLyricIndex: StateFlow<Int> = _currentLyricIndex.asStateFlow()
+    // 当前歌曲的用户歌词偏移（毫秒，正值表示歌词提前）
+    private val _lyricsOffset = MutableStateFlow(0L)
+    val lyricsOffset: StateFlow<Long> = _lyricsOffset.asStateFlow()
+    
+    // 是否显示翻译歌词（只影响显示，切换时不重新获取或解析）
+    private val _showTranslation = MutableStateFlow(true)
+    val showTranslation: StateFlow<Boolean> = _showTranslation.asStateFlow()
+    
+    /**
+     * 当前歌词行：挂起到下一行开始时才更新，不轮询播放位置（见 lyricIndexFlow）
+     */
+    val currentLyricIndex: StateFlow<Int> = lyricIndexFlow(
+        lyrics = _lyrics,
+        events = playerEvents,
+        readPosition = { mediaController?.currentPosition },
+        isPlaying = { mediaController?.isPlaying == true },
+        playbackSpeed = { mediaController?.playbackParameters?.speed ?: 1f }
+    ).stateIn(viewModelScope, SharingStarted.WhileSubscribed(STOP_TIMEOUT_MS), -1)
     
     private val _lyricsLoading = MutableStateFlow(false)
     val lyricsLoading: StateFlow<Boolean> = _lyricsLoading.asStateFlow()
@@ -84,8 +154,35 @@ class MusicViewModel(application: Application) : AndroidViewModel(application) {
     // Playlists
     val playlists = repository.getAllPlaylists()
     
-    private val _playlistSongs = MutableStateFlow<List<Song>>(emptyList())
-    val playlistSongs: StateFlow<List<Song>> = _playlistSongs.asStateFlow()
+    // 歌单列表页的汇总信息（歌曲数、总时长、封面）
+    val playlistSummaries = repository.getPlaylistSummaries()
+    
+    private val selectedPlaylistId = MutableStateFlow<Long?>(null)
+    
+    private val selectedPlaylist: StateFlow<PlaylistState> = selectedPlaylistFlow(
+        selectedId = selectedPlaylistId,
+        library = _library.map { it.store },
+        observeRules = { playlistId -> repository.observePlaylist(playlistId).map { it?.rules } },
+        observeRows = repository::getSongsForPlaylist,
+        observeSmartIds = repository::observeSmartPlaylistSongIds
+    ).stateIn(viewModelScope, SharingStarted.WhileSubscribed(STOP_TIMEOUT_MS), PlaylistState.EMPTY)
+    
+    val playlistSongs: StateFlow<List<Song>> = selectedPlaylist
+        .map { it.resolved.songs }
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(STOP_TIMEOUT_MS), emptyList())
+    
+    // 当前歌单中在媒体库里找不到的条目
+    val playlistOrphans: StateFlow<List<PlaylistSong>> = selectedPlaylist
+        .map { it.resolved.orphans }
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(STOP_TIMEOUT_MS), emptyList())
+    
+    // 歌单文件导入进度，未在导入时为 null
+    private val _importProgress = MutableStateFlow<ImportProgress?>(null)
+    val importProgress: StateFlow<ImportProgress?> = _importProgress.asStateFlow()
+    
+    // 导入/导出完成后的提示
+    private val _transferMessage = MutableStateFlow<String?>(null)
+    val transferMessage: StateFlow<String?> = _transferMessage.asStateFlow()
     
     // Queue
     val queue = mutableStateListOf<Song>()
@@ -96,6 +193,7 @@ class MusicViewModel(application: Application) : AndroidViewModel(application) {
     
     init {
         initializeController()
+        observeLibrary()
         observeSearchQuery()
     }
     
@@ -109,7 +207,7 @@ class MusicViewModel(application: Application) : AndroidViewModel(application) {
         controllerFuture?.addListener({
             mediaController = controllerFuture?.get()
             setupPlayerListener()
-            startPositionUpdates()
+            playerEvents.tryEmit(Unit)
         }, MoreExecutors.directExecutor())
     }
     
@@ -117,14 +215,30 @@ class MusicViewModel(application: Application) : AndroidViewModel(application) {
         mediaController?.addListener(object : Player.Listener {
             override fun onIsPlayingChanged(isPlaying: Boolean) {
                 _isPlaying.value = isPlaying
+                playerEvents.tryEmit(Unit)
+            }
+            
+            override fun onPositionDiscontinuity(
+                oldPosition: Player.PositionInfo,
+                newPosition: Player.PositionInfo,
+                reason: Int
+            ) {
+                playerEvents.tryEmit(Unit)
+            }
+            
+            override fun onPlaybackParametersChanged(playbackParameters: PlaybackParameters) {
+                playerEvents.tryEmit(Unit)
             }
             
             override fun onMediaItemTransition(mediaItem: MediaItem?, reason: Int) {
+                lyricsJob?.cancel()
                 mediaItem?.let { item ->
                     val songId = item.mediaId.toLongOrNull() ?: return
-                    _currentSong.value = _songs.value.find { it.id == songId }
+                    _currentSong.value = currentLibrary.findById(songId)
                     loadLyricsForCurrentSong()
+                    viewModelScope.launch { repository.recordPlay(songId) }
                 }
+                playerEvents.tryEmit(Unit)
             }
             
             override fun onPlaybackStateChanged(playbackState: Int) {
@@ -143,79 +257,125 @@ class MusicViewModel(application: Application) : AndroidViewModel(application) {
         })
     }
     
-    private fun startPositionUpdates() {
-        viewModelScope.launch {
-            while (true) {
-                mediaController?.let { controller ->
-                    _currentPosition.value = controller.currentPosition
-                    updateCurrentLyricIndex()
-                }
-                delay(100)
-            }
-        }
-    }
-    
-    private fun updateCurrentLyricIndex() {
-        val currentPos = _currentPosition.value
-        val lyricsList = _lyrics.value
-        
-        if (lyricsList.isEmpty()) {
-            _currentLyricIndex.value = -1
-            return
-        }
-        
-        var index = lyricsList.indexOfLast { it.timestamp <= currentPos }
-        if (index < 0) index = 0
-        _currentLyricIndex.value = index
-    }
-    
     private fun loadLyricsForCurrentSong() {
-        viewModelScope.launch {
-            val song = _currentSong.value ?: return@launch
+        // 快速切歌时上一首的加载可能晚于当前这首完成，先取消，避免覆盖当前歌曲的歌词和偏移
+        lyricsJob?.cancel()
+        val song = _currentSong.value ?: return
+        lyricsJob = viewModelScope.launch {
+            // 被取消或已切到其他歌曲后不再写入任何状态
+            fun isCurrent() = isActive && _currentSong.value?.id == song.id
             
             try {
                 _lyricsLoading.value = true
-                _lyrics.value = emptyList()
+                _lyrics.value = LrcLines.EMPTY
                 _lyricsSource.value = null
+                val offset = repository.getLyricsOffset(song.id)
+                if (!isCurrent()) return@launch
+                _lyricsOffset.value = offset
                 
                 // 尝试获取歌词（本地 -> 缓存 -> 在线）
-                val result = lyricsRepository.getLyrics(
+                val document = lyricsRepository.getLyrics(
                     audioPath = song.path,
                     title = song.title,
                     artist = song.artist,
                     album = song.album,
                     duration = song.duration
                 )
+                if (!isCurrent()) return@launch
                 
-                if (result != null) {
-                    // 解析歌词
-                    _lyrics.value = LrcParser.parse(result.content)
-                    _lyricsSource.value = result.source
-                    Log.d("MusicViewModel", "Lyrics loaded from: ${result.source}")
+                if (document != null) {
+                    _lyrics.value = document.lines.withUserOffset(_lyricsOffset.value)
+                    _lyricsSource.value = document.source
+                    Log.d("MusicViewModel", "Lyrics loaded from: ${document.source}, synced=${document.isSynced}")
                 } else {
-                    _lyrics.value = emptyList()
+                    _lyrics.value = LrcLines.EMPTY
                     _lyricsSource.value = null
                     Log.d("MusicViewModel", "No lyrics found")
                 }
+                // 供智能歌单的“有无歌词”规则使用
+                if (document != null) {
+                    repository.markHasLyrics(song.id)
+                }
             } catch (e: Exception) {
+                if (e is CancellationException) throw e
                 Log.e("MusicViewModel", "Error loading lyrics", e)
-                _lyrics.value = emptyList()
-                _lyricsSource.value = null
+                if (isCurrent()) {
+                    _lyrics.value = LrcLines.EMPTY
+                    _lyricsSource.value = null
+                }
             } finally {
-                _lyricsLoading.value = false
+                // 只由最近一次加载结束加载状态（切到无法识别的条目时取消的任务也算）
+                if (lyricsJob === coroutineContext[Job]) {
+                    _lyricsLoading.value = false
+                }
             }
         }
     }
     
-    fun loadSongs() {
+    /**
+     * 调整当前歌曲的歌词偏移并保存，直接平移已解析的时间戳，无需重新解析或下载
+     */
+    fun adjustLyricsOffset(deltaMs: Long) {
+        val song = _currentSong.value ?: return
+        val offset = _lyricsOffset.value + deltaMs
+        _lyricsOffset.value = offset
+        _lyrics.value = _lyrics.value.withUserOffset(offset)
+        
         viewModelScope.launch {
-            _isLoading.value = true
-            _songs.value = repository.loadSongs()
-            _filteredSongs.value = _songs.value
-            _isLoading.value = false
+            repository.setLyricsOffset(song.id, offset)
+        }
+    }
+    
+    fun resetLyricsOffset() {
+        adjustLyricsOffset(-_lyricsOffset.value)
+    }
+    
+    fun toggleTranslation() {
+        _showTranslation.value = !_showTranslation.value
+    }
+    
+    /**
+     * 显示本地数据库中的媒体库，同步写入后自动刷新
+     */
+    private fun observeLibrary() {
+        viewModelScope.launch {
+            repository.observeSongs().collect { songs ->
+                _library.value = LibrarySnapshot(songs)
+                filterSongs(_searchQuery.value)
+                // 首次启动数据库为空时保持加载状态，直到同步完成
+                if (songs.isNotEmpty()) {
+                    _isLoading.value = false
+                }
+            }
+        }
+    }
+    
+    /**
+     * 在后台与 MediaStore 增量同步，之后持续监听媒体库变化
+     */
+    fun loadSongs() {
+        if (libraryJob?.isActive == true) return
+        libraryJob = viewModelScope.launch {
+            repository.libraryChanges().collect { changedIds ->
+                val diff = if (changedIds == null) {
+                    repository.syncLibrary()
+                } else {
+                    repository.syncSongs(changedIds)
+                }
+                if (!diff.isEmpty) {
+                    // 媒体库有变化时，目录中的LRC文件也可能已变化
+                    LrcIndex.invalidateAll()
+                }
+                _isLoading.value = false
+            }
         }
     }
     
+    /**
+     * 歌曲在分页列表中的位置，用于直接跳转
+     */
+    suspend fun getSongPosition(song: Song): Int? = repository.getSongPosition(song.id)
+    
     /**
      * Updates the search query and filters songs accordingly
      */
@@ -241,13 +401,13 @@ class MusicViewModel(application: Application) : AndroidViewModel(application) {
      */
     private fun filterSongs(query: String) {
         _filteredSongs.value = if (query.isBlank()) {
-            _songs.value
+            currentLibrary
         } else {
-            FuzzyMatcher.filterAndSortByRelevance(_songs.value, query)
+            FuzzyMatcher.filterAndSortByRelevance(currentLibrary, query)
         }
     }
     
-    fun playSong(song: Song, songList: List<Song> = _songs.value) {
+    fun playSong(song: Song, songList: List<Song> = currentLibrary) {
         queue.clear()
         queue.addAll(songList)
         
@@ -271,7 +431,11 @@ class MusicViewModel(application: Application) : AndroidViewModel(application) {
                 .build()
         }
         
-        val startIndex = songList.indexOfFirst { it.id == song.id }.coerceAtLeast(0)
+        val startIndex = if (songList is LibraryStore) {
+            songList.indexOfId(song.id)
+        } else {
+            songList.indexOfFirst { it.id == song.id }
+        }.coerceAtLeast(0)
         
         mediaController?.apply {
             setMediaItems(mediaItems, startIndex, 0)
@@ -341,35 +505,92 @@ class MusicViewModel(application: Application) : AndroidViewModel(application) {
         }
     }
     
+    /**
+     * 批量添加（多选），按媒体库顺序追加，整批一次写入
+     */
+    fun addSongsToPlaylist(playlistId: Long, songIds: Collection<Long>) {
+        viewModelScope.launch {
+            val library = currentLibrary
+            val songs = songIds
+                .map { library.indexOfId(it) }
+                .filter { it >= 0 }
+                .sorted()
+                .map { library[it] }
+            val added = repository.addSongsToPlaylist(playlistId, songs)
+            Log.d("MusicViewModel", "Added $added/${songIds.size} songs to playlist $playlistId")
+        }
+    }
+    
     fun removeSongFromPlaylist(playlistId: Long, songId: Long) {
         viewModelScope.launch {
             repository.removeSongFromPlaylist(playlistId, songId)
         }
     }
+    
+    fun removeSongsFromPlaylist(playlistId: Long, songIds: Collection<Long>) {
+        viewModelScope.launch {
+            repository.removeSongsFromPlaylist(playlistId, songIds)
+        }
+    }
 
     suspend fun getPlaylistSongUris(playlistId: Long): List<String> {
         return repository.getSongUrisForPlaylist(playlistId)
     }
     
     fun loadPlaylistSongs(playlistId: Long) {
+        selectedPlaylistId.value = playlistId
+    }
+    
+    fun closePlaylist() {
+        selectedPlaylistId.value = null
+    }
+    
+    fun createSmartPlaylist(name: String, rule: SmartRule) {
         viewModelScope.launch {
-            repository.getSongsForPlaylist(playlistId).collect { playlistSongsList ->
-                val songUris = playlistSongsList.map { it.songUri }
-                val songsInPlaylist = _songs.value.filter { song ->
-                    songUris.contains(song.uri.toString())
-                }
-                // Order according to playlistSongsList order if necessary. 
-                // Currently just filtering.
-                _playlistSongs.value = songsInPlaylist
+            if (repository.createSmartPlaylist(name, rule) == null) {
+                Log.w("MusicViewModel", "Smart playlist not created, invalid rules: $rule")
+            }
+        }
+    }
+    
+    /**
+     * 导入歌单文件，进度通过 importProgress 提供，结束后在 transferMessage 中给出结果
+     */
+    fun importPlaylist(uri: Uri) {
+        if (_importProgress.value != null) return
+        viewModelScope.launch {
+            _importProgress.value = ImportProgress(0, 0)
+            val result = repository.importPlaylist(uri, currentLibrary) { progress ->
+                _importProgress.value = progress
+            }
+            _importProgress.value = null
+            _transferMessage.value = when {
+                result == null -> "导入失败"
+                result.unmatched > 0 -> "已导入 ${result.added} 首，${result.unmatched} 首未在媒体库中找到"
+                else -> "已导入 ${result.added} 首"
             }
         }
     }
     
+    fun exportPlaylist(playlistId: Long, uri: Uri) {
+        viewModelScope.launch {
+            val written = repository.exportPlaylist(playlistId, uri)
+            _transferMessage.value = if (written == null) "导出失败" else "已导出 $written 首"
+        }
+    }
+    
+    fun clearTransferMessage() {
+        _transferMessage.value = null
+    }
+    
     fun playPlaylist(playlistId: Long) {
         viewModelScope.launch {
-            val songUris = repository.getSongUrisForPlaylist(playlistId)
-            val songsToPlay = _songs.value.filter { song ->
-                songUris.contains(song.uri.toString())
+            val library = currentLibrary
+            val rules = repository.getPlaylist(playlistId)?.rules
+            val songsToPlay = if (rules != null) {
+                repository.getSmartPlaylistSongIds(rules).mapNotNull { library.findById(it) }
+            } else {
+                PlaylistResolver.resolve(repository.getPlaylistSongs(playlistId), library).songs
             }
             if (songsToPlay.isNotEmpty()) {
                 playSong(songsToPlay.first(), songsToPlay)
@@ -377,6 +598,52 @@ class MusicViewModel(application: Application) : AndroidViewModel(application) {
         }
     }
     
+    /**
+     * 与界面上的前一首/后一首交换位置，只修改被移动的一行
+     */
+    fun movePlaylistSong(playlistId: Long, song: Song, up: Boolean) {
+        val state = selectedPlaylist.value
+        if (state.playlistId != playlistId) return
+        val rows = state.rows
+        val visible = state.resolved.songs
+        val visibleIndex = visible.indexOfFirst { it.id == song.id }
+        val neighbour = visible.getOrNull(if (up) visibleIndex - 1 else visibleIndex + 1) ?: return
+        val entry = rows.firstOrNull { it.songId == song.id } ?: return
+        val neighbourIndex = rows.indexOfFirst { it.songId == neighbour.id }
+        if (neighbourIndex < 0) return
+        
+        // 位置按移除被移动条目后的列表计算：上移到邻居之前，下移到邻居之后
+        viewModelScope.launch {
+            repository.movePlaylistSong(playlistId, entry.id, neighbourIndex)
+        }
+    }
+    
+    /**
+     * 为失效条目重新匹配媒体库中的歌曲（按路径或标题+艺术家），匹配不到的保留
+     */
+    fun repairPlaylist() {
+        val resolved = selectedPlaylist.value.resolved
+        val orphans = resolved.orphans
+        if (orphans.isEmpty()) return
+        viewModelScope.launch {
+            val existingIds = resolved.songs.mapTo(HashSet()) { it.id }
+            val replacements = PlaylistResolver.findReplacements(orphans, currentLibrary, existingIds)
+            Log.d("MusicViewModel", "Repairing playlist: ${replacements.size}/${orphans.size} entries matched")
+            repository.repairPlaylistSongs(replacements)
+        }
+    }
+    
+    /**
+     * 从歌单中移除所有失效条目
+     */
+    fun removePlaylistOrphans() {
+        val orphans = selectedPlaylist.value.resolved.orphans
+        if (orphans.isEmpty()) return
+        viewModelScope.launch {
+            repository.removePlaylistSongs(orphans)
+        }
+    }
+    
     /**
      * 测试所有歌词API（用于调试）
      */
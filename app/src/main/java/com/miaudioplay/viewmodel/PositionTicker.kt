@@ -0,0 +1,71 @@
+package com.miaudioplay.viewmodel
+
+import androidx.compose.runtime.Stable
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.distinctUntilChangedBy
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.shareIn
+import kotlinx.coroutines.flow.transformLatest
+import kotlinx.coroutines.flow.update
+
+/**
+ * 播放进度分发
+ *
+ * 所有界面共享同一个上游轮询：按当前订阅者中最小的间隔读取播放位置，
+ * 暂停时只在播放器事件（跳转、切歌等）后读取一次；没有订阅者（界面不可见、
+ * 应用进入后台）时完全停止。每个订阅者再按自己的间隔去重，低频消费者
+ * （如每秒更新的时间文字）不会随高频刷新而重组。
+ */
+@Stable
+@OptIn(ExperimentalCoroutinesApi::class)
+class PositionTicker(
+    scope: CoroutineScope,
+    events: Flow<Unit>,
+    private val readPosition: () -> Long?,
+    private val isPlaying: () -> Boolean
+) {
+    // 当前所有订阅者请求的刷新间隔
+    private val requestedIntervals = MutableStateFlow<List<Long>>(emptyList())
+
+    private val positions: SharedFlow<Long> = combine(
+        requestedIntervals.map { it.minOrNull() }.distinctUntilChanged(),
+        events
+    ) { interval, _ -> interval }
+        .transformLatest { interval ->
+            if (interval == null) return@transformLatest
+            while (true) {
+                val position = readPosition() ?: break
+                emit(position)
+                if (!isPlaying()) break
+                delay(interval)
+            }
+        }
+        .shareIn(scope, SharingStarted.WhileSubscribed(replayExpirationMillis = 0), replay = 1)
+
+    /**
+     * 以 intervalMs 为粒度订阅播放位置
+     */
+    fun positionUpdates(intervalMs: Long): Flow<Long> = flow {
+        requestedIntervals.update { it + intervalMs }
+        try {
+            emitAll(positions)
+        } finally {
+            requestedIntervals.update { it - intervalMs }
+        }
+    }.distinctUntilChangedBy { it / intervalMs }
+
+    /**
+     * 立即读取一次当前位置，用作订阅前的初始值
+     */
+    fun currentPosition(): Long = readPosition() ?: 0L
+}
@@ -0,0 +1,60 @@
+package com.miaudioplay.viewmodel
+
+import com.miaudioplay.data.LibraryStore
+import com.miaudioplay.data.PlaylistResolver
+import com.miaudioplay.data.ResolvedPlaylist
+import com.miaudioplay.data.models.PlaylistSong
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.flowOf
+
+/**
+ * 当前打开的歌单：全部条目（含失效条目）与解析结果
+ */
+internal data class PlaylistState(
+    val playlistId: Long?,
+    val rows: List<PlaylistSong>,
+    val resolved: ResolvedPlaylist
+) {
+    companion object {
+        val EMPTY = PlaylistState(null, emptyList(), ResolvedPlaylist.EMPTY)
+    }
+}
+
+/**
+ * 当前打开歌单的状态
+ *
+ * 切换歌单时 flatMapLatest 取消上一个歌单的观察，始终只有一个观察者，
+ * 旧歌单的结果不会在切换后发出；歌单条目或媒体库快照变化时重新解析。
+ * 普通歌单按条目解析；智能歌单的成员由数据库按规则查询，只需按 id 取出歌曲。
+ *
+ * @param observeRules 歌单的智能规则，普通歌单为 null
+ */
+@OptIn(ExperimentalCoroutinesApi::class)
+internal fun selectedPlaylistFlow(
+    selectedId: Flow<Long?>,
+    library: Flow<LibraryStore>,
+    observeRules: (playlistId: Long) -> Flow<String?>,
+    observeRows: (playlistId: Long) -> Flow<List<PlaylistSong>>,
+    observeSmartIds: (rules: String) -> Flow<List<Long>>
+): Flow<PlaylistState> = selectedId.flatMapLatest { playlistId ->
+    if (playlistId == null) {
+        return@flatMapLatest flowOf(PlaylistState.EMPTY)
+    }
+    observeRules(playlistId)
+        .distinctUntilChanged()
+        .flatMapLatest { rules ->
+            if (rules == null) {
+                combine(observeRows(playlistId), library) { rows, store ->
+                    PlaylistState(playlistId, rows, PlaylistResolver.resolve(rows, store))
+                }
+            } else {
+                combine(observeSmartIds(rules), library) { ids, store ->
+                    PlaylistState(playlistId, emptyList(), ResolvedPlaylist(ids.mapNotNull { store.findById(it) }, emptyList()))
+                }
+            }
+        }
+}
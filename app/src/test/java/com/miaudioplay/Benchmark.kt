@@ -0,0 +1,52 @@
+package com.miaudioplay
+
+/**
+ * 单元测试中的粗略耗时基准：先预热，再重复执行并按中位数报告，结果打印到测试输出
+ *
+ * 基准测试类以 BenchmarkTest 结尾，普通的单元测试任务不运行（见 app/build.gradle.kts），
+ * 需要时执行 ./gradlew testDebugUnitTest -Pbenchmark
+ */
+object Benchmark {
+
+    /**
+     * 排序后的每次耗时（纳秒）
+     */
+    class Samples(private val sorted: LongArray) {
+        val median: Long
+            get() = sorted[sorted.size / 2]
+
+        val min: Long
+            get() = sorted[0]
+    }
+
+    /**
+     * operations 为每次执行包含的操作数，大于 1 时同时报告每次操作的耗时
+     */
+    inline fun measure(
+        name: String,
+        warmup: Int,
+        iterations: Int,
+        operations: Int = 1,
+        block: () -> Unit
+    ): Samples {
+        repeat(warmup) { block() }
+        val samples = LongArray(iterations)
+        for (i in 0 until iterations) {
+            val start = System.nanoTime()
+            block()
+            samples[i] = System.nanoTime() - start
+        }
+        samples.sort()
+        return Samples(samples).also { report(name, it, operations) }
+    }
+
+    fun report(name: String, samples: Samples, operations: Int = 1) {
+        val line = StringBuilder()
+            .append(name)
+            .append(": median %.3f ms, min %.3f ms".format(samples.median / 1e6, samples.min / 1e6))
+        if (operations > 1) {
+            line.append(" (%.1f ns/op)".format(samples.median.toDouble() / operations))
+        }
+        println(line)
+    }
+}
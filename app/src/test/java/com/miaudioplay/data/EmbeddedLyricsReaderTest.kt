@@ -0,0 +1,107 @@
+package com.miaudioplay.data
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.ByteArrayOutputStream
+
+class EmbeddedLyricsReaderTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private class Frame(val flags: Int, val extra: ByteArray, val body: ByteArray)
+
+    /**
+     * USLT 内容：编码 + 语言 + 空描述 + 歌词
+     */
+    private fun uslt(text: String, encoding: Int = 0): ByteArray {
+        val charset = if (encoding == 3) Charsets.UTF_8 else Charsets.ISO_8859_1
+        return byteArrayOf(encoding.toByte()) + "eng".toByteArray(Charsets.ISO_8859_1) + 0.toByte() + text.toByteArray(charset)
+    }
+
+    private fun syncSafe(value: Int) = byteArrayOf(
+        (value shr 21 and 0x7F).toByte(),
+        (value shr 14 and 0x7F).toByte(),
+        (value shr 7 and 0x7F).toByte(),
+        (value and 0x7F).toByte()
+    )
+
+    private fun bigEndian(value: Int) = byteArrayOf(
+        (value shr 24).toByte(),
+        (value shr 16).toByte(),
+        (value shr 8).toByte(),
+        value.toByte()
+    )
+
+    private fun writeTag(majorVersion: Int, vararg frames: Frame, tagFlags: Int = 0): String {
+        val content = ByteArrayOutputStream()
+        for (frame in frames) {
+            val size = frame.extra.size + frame.body.size
+            content.write("USLT".toByteArray(Charsets.ISO_8859_1))
+            content.write(if (majorVersion == 4) syncSafe(size) else bigEndian(size))
+            content.write(0)
+            content.write(frame.flags)
+            content.write(frame.extra)
+            content.write(frame.body)
+        }
+        val file = folder.newFile()
+        file.writeBytes(
+            "ID3".toByteArray(Charsets.ISO_8859_1) +
+                byteArrayOf(majorVersion.toByte(), 0, tagFlags.toByte()) +
+                syncSafe(content.size()) +
+                content.toByteArray()
+        )
+        return file.absolutePath
+    }
+
+    private fun firstLine(path: String): String {
+        val document = EmbeddedLyricsReader.readLyrics(path)
+        assertNotNull(document)
+        return document!!.lines.text(0)
+    }
+
+    @Test
+    fun `reads v2_4 frame with data length indicator`() {
+        val body = uslt("[00:01.00]with length", encoding = 3)
+        val path = writeTag(4, Frame(0x01, syncSafe(body.size), body))
+
+        assertEquals("with length", firstLine(path))
+    }
+
+    @Test
+    fun `undoes v2_4 frame unsynchronisation`() {
+        val body = uslt("[00:01.00]cafÿé")
+        // 0xFF 之后插入 0x00
+        val unsynced = ByteArrayOutputStream()
+        for (b in body) {
+            unsynced.write(b.toInt())
+            if (b == 0xFF.toByte()) unsynced.write(0)
+        }
+        val path = writeTag(4, Frame(0x02 or 0x01, syncSafe(body.size), unsynced.toByteArray()))
+
+        assertEquals("cafÿé", firstLine(path))
+    }
+
+    @Test
+    fun `skips compressed and encrypted v2_4 frames`() {
+        val path = writeTag(
+            4,
+            Frame(0x08 or 0x01, syncSafe(100), uslt("[00:01.00]compressed")),
+            Frame(0x04, byteArrayOf(1), uslt("[00:01.00]encrypted")),
+            Frame(0, ByteArray(0), uslt("[00:01.00]plain"))
+        )
+
+        assertEquals("plain", firstLine(path))
+    }
+
+    @Test
+    fun `skips v2_3 grouping identity byte`() {
+        // 分组标识若被当作编码字节，1 会按 UTF-16 解码
+        val path = writeTag(3, Frame(0x20, byteArrayOf(1), uslt("[00:01.00]grouped")))
+
+        assertEquals("grouped", firstLine(path))
+    }
+}
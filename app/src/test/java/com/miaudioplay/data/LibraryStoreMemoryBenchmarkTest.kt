@@ -0,0 +1,96 @@
+package com.miaudioplay.data
+
+import com.miaudioplay.data.models.LibrarySong
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * 常驻内存对比：每首歌一个对象的列表 vs 按列保存的 LibraryStore
+ *
+ * 在 JVM 上通过 GC 后的已用堆估算，只作量级参考；ART 的对象头与字符串布局不同。
+ */
+class LibraryStoreMemoryBenchmarkTest {
+
+    /**
+     * 改为列存之前的 Song：每首歌常驻两个 Uri。这里只用 Uri 的字符串形式代替，
+     * 真实的 android.net.Uri 还带有解析后的各部分，因此是下限
+     */
+    private data class EagerUriSong(
+        val id: Long,
+        val title: String,
+        val artist: String,
+        val album: String,
+        val duration: Long,
+        val uri: String,
+        val albumArtUri: String?,
+        val path: String
+    )
+
+    /**
+     * 模拟数据库游标读出的行：每行的字符串都是独立实例，和 Cursor.getString 一致
+     */
+    private fun rows(count: Int): List<LibrarySong> = List(count) { i ->
+        LibrarySong(
+            id = 1_000_000L + i,
+            title = String("Track title number $i".toCharArray()),
+            artist = String("Artist ${i % ARTISTS}".toCharArray()),
+            album = String("Album ${i % ALBUMS}".toCharArray()),
+            albumId = (i % ALBUMS).toLong(),
+            duration = 180_000L + i,
+            path = String("/storage/emulated/0/Music/Artist ${i % ARTISTS}/Album ${i % ALBUMS}/$i.mp3".toCharArray()),
+            dateModified = 0
+        )
+    }
+
+    private fun usedHeap(): Long {
+        val runtime = Runtime.getRuntime()
+        repeat(4) {
+            System.gc()
+            Thread.sleep(50)
+        }
+        return runtime.totalMemory() - runtime.freeMemory()
+    }
+
+    private fun retained(create: () -> Any): Long {
+        val samples = LongArray(5)
+        for (i in samples.indices) {
+            val before = usedHeap()
+            val value = create()
+            samples[i] = usedHeap() - before
+            // 保证测量期间对象仍然可达
+            assertEquals(SONGS, (value as List<*>).size)
+        }
+        samples.sort()
+        return samples[samples.size / 2]
+    }
+
+    @Test
+    fun `heap per 10k songs`() {
+        val eager = retained {
+            rows(SONGS).map {
+                EagerUriSong(
+                    id = it.id,
+                    title = it.title,
+                    artist = it.artist,
+                    album = it.album,
+                    duration = it.duration,
+                    uri = "content://media/external/audio/media/${it.id}",
+                    albumArtUri = "content://media/external/audio/albumart/${it.albumId}",
+                    path = it.path
+                )
+            }
+        }
+        val songList = retained { rows(SONGS).map(LibrarySong::toSong) }
+        val store = retained { LibraryStore.from(rows(SONGS)) }
+
+        println("List<Song> with Uris (lower bound): %.0f KiB per 10k songs".format(eager / 1024.0))
+        println("List<Song>:                         %.0f KiB per 10k songs".format(songList / 1024.0))
+        println("LibraryStore:                       %.0f KiB per 10k songs".format(store / 1024.0))
+    }
+
+    private companion object {
+        const val SONGS = 10_000
+        const val ARTISTS = 500
+        const val ALBUMS = 1_000
+    }
+}
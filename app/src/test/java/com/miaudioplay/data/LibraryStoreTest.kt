@@ -0,0 +1,63 @@
+package com.miaudioplay.data
+
+import com.miaudioplay.data.models.LibrarySong
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class LibraryStoreTest {
+
+    private fun row(id: Long, title: String = "Song $id", artist: String = "Artist", path: String = "/music/$id.mp3") =
+        LibrarySong(
+            id = id,
+            title = title,
+            artist = artist,
+            album = "Album",
+            albumId = 1,
+            duration = 1_000,
+            path = path,
+            dateModified = 0
+        )
+
+    @Test
+    fun `equals follows the List contract`() {
+        val rows = listOf(row(1), row(2), row(3))
+        val store = LibraryStore.from(rows)
+        val copy = LibraryStore.from(rows.map { it.copy(artist = String(it.artist.toCharArray())) })
+        val songs = rows.map { it.toSong() }
+
+        assertEquals(store, copy)
+        assertEquals(store, songs)
+        assertEquals(songs, store)
+        assertEquals(songs.hashCode(), store.hashCode())
+        assertEquals(copy.hashCode(), store.hashCode())
+    }
+
+    @Test
+    fun `store matches song list`() {
+        val rows = (1L..1_000L).map { row(it, artist = "Artist ${it % 50}") }
+        assertEquals(rows.map { it.toSong() }, LibraryStore.from(rows))
+    }
+
+    @Test
+    fun `snapshots with different content are not equal`() {
+        val store = LibraryStore.from(listOf(row(1), row(2)))
+
+        assertNotEquals(store, LibraryStore.from(listOf(row(1), row(2, artist = "Other"))))
+        assertNotEquals(store, LibraryStore.from(listOf(row(1), row(2, title = "Other"))))
+        assertNotEquals(store, LibraryStore.from(listOf(row(2), row(1))))
+        assertNotEquals(store, LibraryStore.from(listOf(row(1))))
+        assertNotEquals(store, store.drop(1))
+    }
+
+    @Test
+    fun `finds rows by id`() {
+        val store = LibraryStore.from(listOf(row(10), row(20), row(30)))
+
+        assertEquals(1, store.indexOfId(20))
+        assertEquals(-1, store.indexOfId(40))
+        assertEquals("Song 30", store.findById(30)?.title)
+        assertNull(store.findById(40))
+    }
+}
@@ -0,0 +1,63 @@
+package com.miaudioplay.data
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class LongIntMapTest {
+
+    @Test
+    fun `missing keys return MISSING`() {
+        val map = LongIntMap(4)
+        map.putIfAbsent(1, 10)
+
+        assertEquals(LongIntMap.MISSING, map.get(2))
+        assertEquals(LongIntMap.MISSING, LongIntMap(0).get(0))
+        assertFalse(2L in map)
+        assertTrue(1L in map)
+    }
+
+    @Test
+    fun `putIfAbsent keeps the first value for duplicate keys`() {
+        val map = LongIntMap(4)
+
+        assertTrue(map.putIfAbsent(42, 1))
+        assertFalse(map.putIfAbsent(42, 2))
+
+        assertEquals(1, map.get(42))
+        assertEquals(1, map.size)
+    }
+
+    @Test
+    fun `resolves colliding keys by probing`() {
+        // 容量为 8，写入 7 个键：0 与 2、5 与 6 落在同一槽位，需要线性探测
+        val map = LongIntMap(4)
+        for (key in 0L..6L) assertTrue(map.putIfAbsent(key, key.toInt() * 10))
+
+        for (key in 0L..6L) assertEquals(key.toInt() * 10, map.get(key))
+        assertEquals(LongIntMap.MISSING, map.get(7))
+        assertEquals(LongIntMap.MISSING, map.get(100))
+        assertEquals(7, map.size)
+    }
+
+    @Test
+    fun `handles negative, zero and extreme keys`() {
+        val map = LongIntMap(4)
+        val keys = longArrayOf(0, -1, Long.MIN_VALUE, Long.MAX_VALUE)
+        keys.forEachIndexed { i, key -> map.putIfAbsent(key, i) }
+
+        keys.forEachIndexed { i, key -> assertEquals(i, map.get(key)) }
+    }
+
+    @Test
+    fun `fills to expected size with sequential ids`() {
+        val count = 30_000
+        val map = LongIntMap(count)
+        for (i in 0 until count) map.putIfAbsent(1_000_000L + i, i)
+
+        assertEquals(count, map.size)
+        for (i in 0 until count) assertEquals(i, map.get(1_000_000L + i))
+        assertEquals(LongIntMap.MISSING, map.get(1_000_000L + count))
+    }
+}
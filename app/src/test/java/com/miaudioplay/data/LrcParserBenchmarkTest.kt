@@ -0,0 +1,60 @@
+package com.miaudioplay.data
+
+import com.miaudioplay.Benchmark
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.StringReader
+
+/**
+ * 大文件解析耗时（JVM 上的粗略基准，结果打印到测试输出）
+ */
+class LrcParserBenchmarkTest {
+
+    private fun largeLrc(lines: Int, translated: Boolean): String = buildString(lines * 64) {
+        append("[ti:Benchmark]\n[ar:Artist]\n")
+        // 每十行倒序一次，覆盖排序路径
+        for (i in 0 until lines) {
+            val timestamp = (i / 10 * 10 + (9 - i % 10)) * 500L
+            append('[').append(LrcParser.formatTimestamp(timestamp)).append(']')
+            append("第 ").append(i).append(" 行歌词 lyric line number ").append(i).append('\n')
+        }
+        if (translated) {
+            append("[x-trans]\n")
+            for (i in 0 until lines) {
+                val timestamp = (i / 10 * 10 + (9 - i % 10)) * 500L
+                append('[').append(LrcParser.formatTimestamp(timestamp)).append("]translation ").append(i).append('\n')
+            }
+        }
+    }
+
+    @Test
+    fun `parse 20k line lrc`() {
+        val content = largeLrc(20_000, translated = false)
+        var size = 0
+        Benchmark.measure("parse(CharSequence) 20k lines", WARMUP, ITERATIONS) { size = LrcParser.parse(content).size }
+        assertEquals(20_000, size)
+    }
+
+    @Test
+    fun `stream parse 20k line lrc`() {
+        val content = largeLrc(19_000, translated = false)
+        var size = 0
+        Benchmark.measure("parse(Reader) 19k lines", WARMUP, ITERATIONS) { size = LrcParser.parse(StringReader(content)).size }
+        assertEquals(19_000, size)
+    }
+
+    @Test
+    fun `parse 5k line lrc with translation`() {
+        val content = largeLrc(5_000, translated = true)
+        var translated = false
+        Benchmark.measure("parse(CharSequence) 5k lines + translation", WARMUP, ITERATIONS) {
+            translated = LrcParser.parse(content).hasTranslation
+        }
+        assertEquals(true, translated)
+    }
+
+    private companion object {
+        const val WARMUP = 5
+        const val ITERATIONS = 20
+    }
+}
@@ -0,0 +1,181 @@
+package com.miaudioplay.data
+
+import com.miaudioplay.data.models.LyricsSource
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.StringReader
+
+class LrcParserTest {
+
+    @Test
+    fun `parses supported timestamp formats`() {
+        val lines = LrcParser.parse(
+            """
+            [00:01]a
+            [0:02.5]b
+            [00:03.25]c
+            [00:04.125]d
+            [100:05.00]e
+            [00:06:50]f
+            """.trimIndent()
+        )
+
+        assertArrayEquals(
+            longArrayOf(1_000, 2_500, 3_250, 4_125, 6_500, 6_005_000),
+            lines.timestamps
+        )
+        assertEquals(listOf("a", "b", "c", "d", "f", "e"), lines.map { it.text })
+    }
+
+    @Test
+    fun `sorts out-of-order lines by timestamp`() {
+        val lines = LrcParser.parse(
+            """
+            [00:30.00]third
+            [00:10.00]first
+            [00:20.00]second
+            """.trimIndent()
+        )
+
+        assertArrayEquals(longArrayOf(10_000, 20_000, 30_000), lines.timestamps)
+        assertEquals(listOf("first", "second", "third"), lines.map { it.text })
+    }
+
+    @Test
+    fun `expands multiple timestamps on one line`() {
+        val lines = LrcParser.parse(
+            """
+            [00:05.00][00:25.00]chorus
+            [00:15.00]verse
+            """.trimIndent()
+        )
+
+        assertArrayEquals(longArrayOf(5_000, 15_000, 25_000), lines.timestamps)
+        assertEquals(listOf("chorus", "verse", "chorus"), lines.map { it.text })
+    }
+
+    @Test
+    fun `keeps file order for duplicate timestamps`() {
+        val lines = LrcParser.parse(
+            """
+            [00:20.00]late
+            [00:10.00]one
+            [00:10.00]two
+            [00:10.00]three
+            """.trimIndent()
+        )
+
+        assertArrayEquals(longArrayOf(10_000, 10_000, 10_000, 20_000), lines.timestamps)
+        assertEquals(listOf("one", "two", "three", "late"), lines.map { it.text })
+    }
+
+    @Test
+    fun `reads metadata and skips empty or invalid lines`() {
+        val lines = LrcParser.parse(
+            """
+            [ti:Title]
+            [ar:Artist]
+            [length:03:21.50]
+            [00:01.00]
+            [xx:yy]not a line
+            plain text
+            [00:02.00]kept
+            """.trimIndent()
+        )
+
+        assertEquals("Title", lines.metadata.title)
+        assertEquals("Artist", lines.metadata.artist)
+        assertEquals(201_500L, lines.metadata.lengthMs)
+        assertEquals(listOf("kept"), lines.map { it.text })
+    }
+
+    @Test
+    fun `caps the number of entries`() {
+        val maxEntries = 1 shl 21
+        val content = StringBuilder((maxEntries + 10) * 7 + 4)
+        repeat(maxEntries + 10) { content.append("[00:01]") }
+        content.append("line")
+
+        val lines = LrcParser.parse(content)
+
+        assertEquals(maxEntries, lines.size)
+        assertEquals("line", lines.text(maxEntries - 1))
+    }
+
+    @Test
+    fun `streaming parse matches in-memory parse`() {
+        val content = buildString {
+            append("[ti:Stream]\r\n")
+            for (i in 300 downTo 1) {
+                append('[').append(LrcParser.formatTimestamp(i * 1_000L)).append("]line ").append(i).append("\r\n")
+            }
+        }
+
+        val expected = LrcParser.parse(content)
+        val streamed = LrcParser.parse(StringReader(content))
+
+        assertArrayEquals(expected.timestamps, streamed.timestamps)
+        assertEquals(expected.map { it.text }, streamed.map { it.text })
+        assertEquals("Stream", streamed.metadata.title)
+    }
+
+    @Test
+    fun `streaming parse stops at the line limit`() {
+        val content = buildString {
+            for (i in 1..100) append("[00:").append("%02d".format(i % 60)).append(".00]l").append(i).append('\n')
+        }
+
+        val lines = LrcParser.parse(StringReader(content), maxLines = 10)
+
+        assertEquals(10, lines.size)
+        assertTrue(lines.timestamps.all { it >= 0 })
+    }
+
+    @Test
+    fun `aligns translation when offset is set`() {
+        val content = LrcParser.appendTranslation(
+            """
+            [offset:500]
+            [00:10.00]first
+            [00:20.00]second
+            [00:30.00]third
+            """.trimIndent(),
+            """
+            [00:10.00]第一行
+            [00:20.00]//
+            [00:30.00]第三行
+            """.trimIndent()
+        )
+
+        val lines = LrcParser.parse(content)
+
+        assertArrayEquals(longArrayOf(9_500, 19_500, 29_500), lines.timestamps)
+        assertTrue(lines.hasTranslation)
+        assertEquals("第一行", lines.translation(0))
+        assertEquals(null, lines.translation(1))
+        assertEquals("第三行", lines.translation(2))
+    }
+
+    @Test
+    fun `strips translation section for external lrc files`() {
+        val original = "[00:01.00]line\n[00:02.00]next"
+        val combined = LrcParser.appendTranslation(original, "[00:01.00]行\n[00:02.00]下一行")
+
+        val stripped = LrcParser.stripTranslation(combined)
+
+        assertEquals("$original\n", stripped)
+        assertFalse(LrcParser.parse(stripped).hasTranslation)
+        assertEquals(original, LrcParser.stripTranslation(original))
+    }
+
+    @Test
+    fun `plain text has no timeline`() {
+        val document = LrcParser.parseDocument("first\nsecond", LyricsSource.CACHE)
+
+        assertFalse(document!!.isSynced)
+        assertEquals(listOf("first", "second"), document.lines.map { it.text })
+    }
+}
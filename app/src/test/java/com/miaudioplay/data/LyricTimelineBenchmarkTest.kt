@@ -0,0 +1,45 @@
+package com.miaudioplay.data
+
+import com.miaudioplay.Benchmark
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * 2k 行歌词的时间轴查找耗时（JVM 上的粗略基准，结果打印到测试输出）
+ */
+class LyricTimelineBenchmarkTest {
+
+    private val timestamps = LongArray(LINES) { it * 1_500L }
+
+    @Test
+    fun `sequential playback over 2k lines`() {
+        // 每 100ms 查一次，从头播放到尾
+        val positions = LongArray((LINES * 1_500 / 100)) { it * 100L }
+        var last = 0
+        Benchmark.measure("indexAt sequential (2k lines)", WARMUP, ITERATIONS, operations = positions.size) {
+            val timeline = LyricTimeline(timestamps)
+            for (position in positions) last = timeline.indexAt(position)
+        }
+        assertEquals(LINES - 1, last)
+    }
+
+    @Test
+    fun `random seeks over 2k lines`() {
+        val random = java.util.Random(2_000)
+        val positions = LongArray(30_000) { random.nextInt(LINES * 1_500).toLong() }
+        val timeline = LyricTimeline(timestamps)
+        var sum = 0L
+        Benchmark.measure("indexAt random seek (2k lines)", WARMUP, ITERATIONS, operations = positions.size) {
+            for (position in positions) sum += timeline.indexAt(position)
+        }
+        assertTrue(sum > 0)
+        assertEquals(LINES - 1, timeline.indexAt(Long.MAX_VALUE))
+    }
+
+    private companion object {
+        const val LINES = 2_000
+        const val WARMUP = 20
+        const val ITERATIONS = 50
+    }
+}
@@ -0,0 +1,96 @@
+package com.miaudioplay.data
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class LyricTimelineTest {
+
+    private val timestamps = longArrayOf(1_000, 2_000, 2_000, 5_000, 8_000)
+
+    /**
+     * 线性扫描的参考实现
+     */
+    private fun expectedIndex(timestamps: LongArray, positionMs: Long): Int =
+        timestamps.indexOfLast { it <= positionMs }
+
+    @Test
+    fun `returns BEFORE_FIRST before the first line`() {
+        val timeline = LyricTimeline(timestamps)
+
+        assertEquals(LyricTimeline.BEFORE_FIRST, timeline.indexAt(0))
+        assertEquals(LyricTimeline.BEFORE_FIRST, timeline.indexAt(999))
+        assertEquals(1_000L, timeline.nextBoundary(LyricTimeline.BEFORE_FIRST))
+    }
+
+    @Test
+    fun `empty timeline has no lines and no boundary`() {
+        val timeline = LyricTimeline(LongArray(0))
+
+        assertEquals(LyricTimeline.BEFORE_FIRST, timeline.indexAt(10_000))
+        assertEquals(LyricTimeline.NO_BOUNDARY, timeline.nextBoundary(LyricTimeline.BEFORE_FIRST))
+    }
+
+    @Test
+    fun `line starts exactly at its timestamp`() {
+        val timeline = LyricTimeline(timestamps)
+
+        assertEquals(0, timeline.indexAt(1_000))
+        assertEquals(0, timeline.indexAt(1_999))
+        // 相同时间戳取最后一行
+        assertEquals(2, timeline.indexAt(2_000))
+        assertEquals(3, timeline.indexAt(5_000))
+    }
+
+    @Test
+    fun `cursor advances with playback`() {
+        val timeline = LyricTimeline(timestamps)
+
+        val indices = (0L..9_000L step 250).map { timeline.indexAt(it) }
+
+        assertEquals((0L..9_000L step 250).map { expectedIndex(timestamps, it) }, indices)
+    }
+
+    @Test
+    fun `large forward jump falls back to binary search`() {
+        val many = LongArray(1_000) { it * 100L }
+        val timeline = LyricTimeline(many)
+
+        assertEquals(0, timeline.indexAt(0))
+        assertEquals(750, timeline.indexAt(75_050))
+        assertEquals(751, timeline.indexAt(75_100))
+    }
+
+    @Test
+    fun `seeking backwards re-searches`() {
+        val timeline = LyricTimeline(timestamps)
+
+        assertEquals(4, timeline.indexAt(9_000))
+        assertEquals(2, timeline.indexAt(2_500))
+        assertEquals(0, timeline.indexAt(1_500))
+        assertEquals(LyricTimeline.BEFORE_FIRST, timeline.indexAt(500))
+        assertEquals(3, timeline.indexAt(6_000))
+    }
+
+    @Test
+    fun `no boundary after the last line`() {
+        val timeline = LyricTimeline(timestamps)
+
+        val last = timeline.indexAt(60_000)
+
+        assertEquals(4, last)
+        assertEquals(8_000L, timeline.nextBoundary(3))
+        assertEquals(LyricTimeline.NO_BOUNDARY, timeline.nextBoundary(last))
+    }
+
+    @Test
+    fun `matches linear scan for random seeks`() {
+        val random = java.util.Random(35)
+        val many = LongArray(2_000) { it * 1_500L + random.nextInt(3) * 500L }.apply { sort() }
+        val timeline = LyricTimeline(many)
+
+        repeat(10_000) {
+            val position = random.nextInt(3_100_000).toLong() - 10_000
+            assertEquals("position $position", expectedIndex(many, position), timeline.indexAt(position))
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.miaudioplay.data
+
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class PausedWhileSyncingTest {
+
+    /**
+     * 模拟 Room 的观察查询：订阅时读取一次，之后每次提交读取一次
+     */
+    private class FakeTable {
+        val rows = MutableStateFlow(0)
+        var reads = 0
+            private set
+
+        fun observe() = rows.map { reads++; it }
+    }
+
+    @Test
+    fun `batched writes during a sync are read once at the end`() = runTest {
+        val table = FakeTable()
+        val syncing = MutableStateFlow(false)
+        val seen = ArrayList<Int>()
+        val job = launch { table.observe().pausedWhileSyncing(syncing).collect { seen += it } }
+        runCurrent()
+
+        syncing.value = true
+        runCurrent()
+        repeat(BATCHES) {
+            table.rows.value += BATCH_SIZE
+            runCurrent()
+        }
+        syncing.value = false
+        runCurrent()
+
+        assertEquals(listOf(0, BATCHES * BATCH_SIZE), seen)
+        assertEquals(2, table.reads)
+        job.cancel()
+    }
+
+    @Test
+    fun `writes outside a sync are observed`() = runTest {
+        val table = FakeTable()
+        val seen = ArrayList<Int>()
+        val job = launch { table.observe().pausedWhileSyncing(MutableStateFlow(false)).collect { seen += it } }
+        runCurrent()
+
+        table.rows.value = 1
+        runCurrent()
+        table.rows.value = 2
+        runCurrent()
+
+        assertEquals(listOf(0, 1, 2), seen)
+        job.cancel()
+    }
+
+    @Test
+    fun `initial read is not delayed by a sync that is already running`() = runTest {
+        val table = FakeTable()
+        table.rows.value = 7
+        val syncing = MutableStateFlow(true)
+        val seen = ArrayList<Int>()
+        val job = launch { table.observe().pausedWhileSyncing(syncing).collect { seen += it } }
+        runCurrent()
+        assertEquals(listOf(7), seen)
+
+        repeat(BATCHES) {
+            table.rows.value += BATCH_SIZE
+            runCurrent()
+        }
+        assertEquals(listOf(7), seen)
+
+        syncing.value = false
+        runCurrent()
+        assertEquals(listOf(7, 7 + BATCHES * BATCH_SIZE), seen)
+        assertEquals(2, table.reads)
+        job.cancel()
+    }
+
+    private companion object {
+        // 30k 首歌曲的首次扫描
+        const val BATCHES = 60
+        const val BATCH_SIZE = 500
+    }
+}
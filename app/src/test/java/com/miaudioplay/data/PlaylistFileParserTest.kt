@@ -0,0 +1,122 @@
+package com.miaudioplay.data
+
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.nio.charset.Charset
+
+class PlaylistFileParserTest {
+
+    private suspend fun parse(bytes: ByteArray): List<PlaylistFileEntry> {
+        val entries = mutableListOf<PlaylistFileEntry>()
+        TextEncoding.reader(ByteArrayInputStream(bytes)).buffered().use { reader ->
+            PlaylistFileParser.parse(reader) { entries.add(it) }
+        }
+        return entries
+    }
+
+    private suspend fun parse(text: String) = parse(text.toByteArray(Charsets.UTF_8))
+
+    @Test
+    fun `parses plain m3u`() = runTest {
+        val entries = parse(
+            """
+            /storage/emulated/0/Music/a.mp3
+
+            # comment
+            Music/b.flac
+            """.trimIndent()
+        )
+
+        assertEquals(
+            listOf(PlaylistFileEntry("/storage/emulated/0/Music/a.mp3"), PlaylistFileEntry("Music/b.flac")),
+            entries
+        )
+    }
+
+    @Test
+    fun `attaches EXTINF to the following entry only`() = runTest {
+        val entries = parse(
+            """
+            #EXTM3U
+            #EXTINF:215,Artist Name - Song Title
+            a.mp3
+            b.mp3
+            #EXTINF:-1 tvg-id="x",Only Title
+            c.mp3
+            #EXTINF:abc
+            d.mp3
+            """.trimIndent()
+        )
+
+        assertEquals(PlaylistFileEntry("a.mp3", "Song Title", "Artist Name", 215), entries[0])
+        assertEquals(PlaylistFileEntry("b.mp3"), entries[1])
+        assertEquals(PlaylistFileEntry("c.mp3", "Only Title"), entries[2])
+        assertEquals(PlaylistFileEntry("d.mp3"), entries[3])
+    }
+
+    @Test
+    fun `parses pls entries by number`() = runTest {
+        val entries = parse(
+            """
+            [playlist]
+            File1=/music/one.mp3
+            Title1=Artist - One
+            Length1=100
+            File2=two.ogg
+            Length2=-1
+            Title3=no file
+            NumberOfEntries=3
+            Version=2
+            """.trimIndent()
+        )
+
+        assertEquals(
+            listOf(
+                PlaylistFileEntry("/music/one.mp3", title = "Artist - One", durationSeconds = 100),
+                PlaylistFileEntry("two.ogg")
+            ),
+            entries
+        )
+    }
+
+    @Test
+    fun `ignores pls keys with out-of-range numbers`() = runTest {
+        val entries = parse(
+            """
+            [playlist]
+            File1=one.mp3
+            File99999999999=huge.mp3
+            Title99999999999=huge
+            File2=two.mp3
+            """.trimIndent()
+        )
+
+        assertEquals(listOf(PlaylistFileEntry("one.mp3"), PlaylistFileEntry("two.mp3")), entries)
+    }
+
+    @Test
+    fun `skips BOM and detects encoding`() = runTest {
+        val text = "#EXTM3U\r\n#EXTINF:1,歌手 - 歌名\r\n音乐/歌.mp3\r\n"
+        val expected = listOf(PlaylistFileEntry("音乐/歌.mp3", "歌名", "歌手", 1))
+
+        assertEquals(expected, parse(byteArrayOf(0xEF.toByte(), 0xBB.toByte(), 0xBF.toByte()) + text.toByteArray()))
+        assertEquals(expected, parse(byteArrayOf(0xFF.toByte(), 0xFE.toByte()) + text.toByteArray(Charsets.UTF_16LE)))
+        assertEquals(expected, parse(text.toByteArray(Charset.forName("GBK"))))
+        // BOM 之后是 PLS
+        assertEquals(
+            listOf(PlaylistFileEntry("a.mp3")),
+            parse(byteArrayOf(0xEF.toByte(), 0xBB.toByte(), 0xBF.toByte()) + "[playlist]\nFile1=a.mp3\n".toByteArray())
+        )
+    }
+
+    @Test
+    fun `normalizes relative and windows paths`() {
+        assertEquals("Music/Album/01.mp3", PlaylistFileParser.toPath("Music\\Album\\01.mp3"))
+        assertEquals("../Album/01.mp3", PlaylistFileParser.toPath("..\\Album\\01.mp3"))
+        assertEquals("C:/Music/01.mp3", PlaylistFileParser.toPath("C:\\Music\\01.mp3"))
+        assertNull(PlaylistFileParser.toPath("http://example.com/stream.mp3"))
+    }
+}
@@ -0,0 +1,70 @@
+package com.miaudioplay.data
+
+import com.miaudioplay.Benchmark
+import com.miaudioplay.data.models.LibrarySong
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.ByteArrayInputStream
+
+/**
+ * 20k 行 M3U 在 30k 首歌的媒体库中解析与匹配的耗时（JVM 上的粗略基准）
+ */
+class PlaylistImportBenchmarkTest {
+
+    private val library = LibraryStore.from(List(LIBRARY_SIZE) { i ->
+        LibrarySong(
+            id = i + 1L,
+            title = "Track $i",
+            artist = "Artist ${i % 500}",
+            album = "Album ${i % 1_000}",
+            albumId = (i % 1_000).toLong(),
+            duration = 1_000,
+            path = "/storage/emulated/0/Music/Artist ${i % 500}/Album ${i % 1_000}/$i.mp3",
+            dateModified = 0
+        )
+    })
+
+    @Test
+    fun `parse and match 20k-line m3u`() = runTest {
+        // 10k 个条目，每个条目一行 #EXTINF 加一行路径；路径分别为绝对、相对、外部设备与找不到的文件
+        val random = java.util.Random(50)
+        val content = buildString {
+            append("#EXTM3U\n")
+            for (n in 0 until 10_000) {
+                val i = random.nextInt(LIBRARY_SIZE)
+                append("#EXTINF:180,Artist ").append(i % 500).append(" - Track ").append(i).append('\n')
+                when (n % 4) {
+                    0 -> append("/storage/emulated/0/Music/Artist ${i % 500}/Album ${i % 1_000}/$i.mp3")
+                    1 -> append("../Album ${i % 1_000}/$i.mp3")
+                    2 -> append("E:\\Music\\Artist ${i % 500}\\Album ${i % 1_000}\\$i.mp3")
+                    else -> append("missing/$n.mp3")
+                }
+                append('\n')
+            }
+        }.toByteArray()
+
+        var read = 0
+        var matched = 0
+        Benchmark.measure("parse + match 20k-line m3u (30k library)", WARMUP, ITERATIONS) {
+            read = 0
+            matched = 0
+            TextEncoding.reader(ByteArrayInputStream(content)).buffered().use { reader ->
+                PlaylistFileParser.parse(reader) { entry ->
+                    read++
+                    if (PlaylistResolver.match(entry, library) != null) matched++
+                }
+            }
+        }
+
+        assertEquals(10_000, read)
+        // 找不到文件的条目仍可通过 #EXTINF 的艺术家与标题匹配
+        assertEquals(10_000, matched)
+    }
+
+    private companion object {
+        const val LIBRARY_SIZE = 30_000
+        const val WARMUP = 3
+        const val ITERATIONS = 10
+    }
+}
@@ -0,0 +1,57 @@
+package com.miaudioplay.data
+
+import com.miaudioplay.data.models.LibrarySong
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+/**
+ * 歌单文件条目与媒体库的匹配（PlaylistResolver.match）
+ */
+class PlaylistImportTest {
+
+    private fun song(id: Long, title: String, artist: String, path: String) = LibrarySong(
+        id = id,
+        title = title,
+        artist = artist,
+        album = "Album",
+        albumId = 0,
+        duration = 1_000,
+        path = path,
+        dateModified = 0
+    )
+
+    private val library = LibraryStore.from(
+        listOf(
+            song(1, "Intro", "Band A", "/storage/emulated/0/Music/Band A/First/01.mp3"),
+            song(2, "Opening", "Band B", "/storage/emulated/0/Music/Band B/Debut/01.mp3"),
+            song(3, "Solo", "Singer", "/storage/emulated/0/Music/Singer/solo.mp3"),
+            song(4, "Title", "Someone", "/storage/emulated/0/Download/Someone - Title.mp3")
+        )
+    )
+
+    @Test
+    fun `matches absolute and relative paths`() {
+        assertEquals(3L, PlaylistResolver.match(PlaylistFileEntry("/storage/emulated/0/Music/Singer/solo.mp3"), library)?.id)
+        assertEquals(3L, PlaylistResolver.match(PlaylistFileEntry("../Singer/SOLO.mp3"), library)?.id)
+        assertEquals(1L, PlaylistResolver.match(PlaylistFileEntry("C:/Users/me/Music/Band A/First/01.mp3"), library)?.id)
+        assertEquals(2L, PlaylistResolver.match(PlaylistFileEntry("./Debut/01.mp3"), library)?.id)
+    }
+
+    @Test
+    fun `ambiguous file name falls back to title and artist`() {
+        // 只剩 "01.mp3" 时有两首同名文件，不能取第一首
+        assertNull(PlaylistResolver.match(PlaylistFileEntry("Other/01.mp3"), library))
+        assertEquals(
+            2L,
+            PlaylistResolver.match(PlaylistFileEntry("Other/01.mp3", title = "Opening", artist = "Band B"), library)?.id
+        )
+        assertEquals(2L, PlaylistResolver.match(PlaylistFileEntry("01.mp3", title = "band b - opening"), library)?.id)
+    }
+
+    @Test
+    fun `matches artist - title file names`() {
+        assertEquals(4L, PlaylistResolver.match(PlaylistFileEntry("D:/old/Someone - Title.flac"), library)?.id)
+        assertNull(PlaylistResolver.match(PlaylistFileEntry("http://example.com/Someone - Title.mp3"), library))
+    }
+}
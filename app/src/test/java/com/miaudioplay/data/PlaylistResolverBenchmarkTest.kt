@@ -0,0 +1,52 @@
+package com.miaudioplay.data
+
+import com.miaudioplay.Benchmark
+import com.miaudioplay.data.models.LibrarySong
+import com.miaudioplay.data.models.PlaylistSong
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * 2k 条目的歌单在 30k 首歌的媒体库中解析的耗时（JVM 上的粗略基准）
+ */
+class PlaylistResolverBenchmarkTest {
+
+    private val library = LibraryStore.from(List(LIBRARY_SIZE) { i ->
+        LibrarySong(
+            id = 1_000_000L + i,
+            title = "Track $i",
+            artist = "Artist ${i % 500}",
+            album = "Album ${i % 1_000}",
+            albumId = (i % 1_000).toLong(),
+            duration = 180_000,
+            path = "/music/$i.mp3",
+            dateModified = 0
+        )
+    })
+
+    // 随机抽取的歌曲，其中 1% 已不在媒体库中
+    private val rows: List<PlaylistSong> = java.util.Random(43).let { random ->
+        List(PLAYLIST_SIZE) { i ->
+            val songId = if (i % 100 == 0) 5_000_000L + i else 1_000_000L + random.nextInt(LIBRARY_SIZE)
+            PlaylistSong(id = i + 1L, playlistId = 1, songId = songId, songUri = "", position = i * 1_024L)
+        }
+    }
+
+    @Test
+    fun `resolve 2k playlist against 30k library`() {
+        var resolved = ResolvedPlaylist.EMPTY
+        Benchmark.measure("resolve 2k rows / 30k library", WARMUP, ITERATIONS) {
+            resolved = PlaylistResolver.resolve(rows, library)
+        }
+
+        assertEquals(PLAYLIST_SIZE / 100, resolved.orphans.size)
+        assertEquals(PLAYLIST_SIZE - PLAYLIST_SIZE / 100, resolved.songs.size)
+    }
+
+    private companion object {
+        const val LIBRARY_SIZE = 30_000
+        const val PLAYLIST_SIZE = 2_000
+        const val WARMUP = 50
+        const val ITERATIONS = 100
+    }
+}
@@ -0,0 +1,164 @@
+package com.miaudioplay.data
+
+import androidx.sqlite.db.SimpleSQLiteQuery
+import androidx.sqlite.db.SupportSQLiteProgram
+import com.miaudioplay.data.models.SmartRule
+import com.miaudioplay.data.models.SmartRule.Field
+import com.miaudioplay.data.models.SmartRule.Operator
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class SmartPlaylistQueryTest {
+
+    private val database = SongsTestDatabase()
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    private fun rule(field: Field, operator: Operator, value: String) =
+        SmartRule(field = field, operator = operator, value = value)
+
+    /**
+     * 按绑定顺序取出查询参数
+     */
+    private fun SimpleSQLiteQuery.args(): List<Any?> {
+        val args = arrayOfNulls<Any>(argCount)
+        bindTo(object : SupportSQLiteProgram {
+            override fun bindNull(index: Int) = Unit
+            override fun bindLong(index: Int, value: Long) { args[index - 1] = value }
+            override fun bindDouble(index: Int, value: Double) { args[index - 1] = value }
+            override fun bindString(index: Int, value: String) { args[index - 1] = value }
+            override fun bindBlob(index: Int, value: ByteArray) { args[index - 1] = value }
+            override fun clearBindings() = Unit
+            override fun close() = Unit
+        })
+        return args.toList()
+    }
+
+    private fun where(query: SimpleSQLiteQuery): String =
+        query.sql.substringAfter(" WHERE ").substringBefore(" ORDER BY ")
+
+    @Test
+    fun `escapes LIKE wildcards in user input`() {
+        val query = SmartPlaylistQuery.compile(rule(Field.ARTIST, Operator.CONTAINS, """50%_off\"""))!!
+
+        assertEquals("songs.artist LIKE ? ESCAPE '\\'", where(query))
+        assertEquals(listOf("""%50\%\_off\\%"""), query.args())
+
+        database.insertSong(1, artist = """Band 50%_off\""")
+        database.insertSong(2, artist = "Band 50% off")
+        database.insertSong(3, artist = "Band 50x_off")
+        database.commit()
+        assertEquals(listOf(1L), database.queryIds(query))
+    }
+
+    @Test
+    fun `starts with escapes and anchors the prefix`() {
+        val query = SmartPlaylistQuery.compile(rule(Field.ALBUM, Operator.STARTS_WITH, "100%"))!!
+
+        assertEquals(listOf("100\\%%"), query.args())
+
+        database.insertSong(1, album = "100% Hits")
+        database.insertSong(2, album = "1000 Hits")
+        database.insertSong(3, album = "Best of 100%")
+        database.commit()
+        assertEquals(listOf(1L), database.queryIds(query))
+    }
+
+    @Test
+    fun `folder IS excludes subfolders while STARTS_WITH includes them`() {
+        val folderIs = SmartPlaylistQuery.compile(rule(Field.FOLDER, Operator.IS, "/music/a_b/"))!!
+        val folderTree = SmartPlaylistQuery.compile(rule(Field.FOLDER, Operator.STARTS_WITH, "/music/a_b"))!!
+
+        assertEquals(listOf("/music/a\\_b/%", "/music/a\\_b/%/%"), folderIs.args())
+        assertEquals(listOf("/music/a\\_b/%"), folderTree.args())
+
+        database.insertSong(1, path = "/music/a_b/1.mp3")
+        database.insertSong(2, path = "/music/a_b/live/2.mp3")
+        database.insertSong(3, path = "/music/axb/3.mp3")
+        database.insertSong(4, path = "/music/a_bc/4.mp3")
+        database.commit()
+        assertEquals(listOf(1L), database.queryIds(folderIs))
+        assertEquals(listOf(1L, 2L), database.queryIds(folderTree))
+    }
+
+    @Test
+    fun `empty ALL matches everything and empty ANY matches nothing`() {
+        val all = SmartPlaylistQuery.compile(SmartRule.all())!!
+        val any = SmartPlaylistQuery.compile(SmartRule.any())!!
+
+        assertEquals("1", where(all))
+        assertEquals("0", where(any))
+
+        database.insertSong(1)
+        database.insertSong(2)
+        database.commit()
+        assertEquals(listOf(1L, 2L), database.queryIds(all))
+        assertEquals(emptyList<Long>(), database.queryIds(any))
+    }
+
+    @Test
+    fun `nested groups keep parameter order`() {
+        val query = SmartPlaylistQuery.compile(
+            SmartRule.all(
+                rule(Field.ARTIST, Operator.IS, "A"),
+                SmartRule.any(
+                    rule(Field.DURATION, Operator.GREATER_THAN, "60000"),
+                    rule(Field.PLAY_COUNT, Operator.LESS_THAN, "3")
+                )
+            )
+        )!!
+
+        assertEquals(
+            "(songs.artist = ? COLLATE NOCASE AND (songs.duration > ? OR IFNULL(song_stats.playCount, 0) < ?))",
+            where(query)
+        )
+        assertEquals(listOf("A", 60_000L, 3L), query.args())
+    }
+
+    @Test
+    fun `songs without stats count as unplayed and without lyrics`() {
+        database.insertSong(1)
+        database.insertSong(2)
+        database.insertStats(2, playCount = 5, hasLyrics = true)
+        database.insertSong(3)
+        database.insertStats(3, playCount = 0, hasLyrics = null)
+        database.commit()
+
+        val unplayed = SmartPlaylistQuery.compile(rule(Field.PLAY_COUNT, Operator.IS, "0"))!!
+        val noLyrics = SmartPlaylistQuery.compile(rule(Field.HAS_LYRICS, Operator.IS, "false"))!!
+
+        assertEquals(listOf(1L, 3L), database.queryIds(unplayed))
+        assertEquals(listOf(1L, 3L), database.queryIds(noLyrics))
+    }
+
+    @Test
+    fun `invalid rules compile to null`() {
+        assertNull(SmartPlaylistQuery.compile(rule(Field.DURATION, Operator.CONTAINS, "1")))
+        assertNull(SmartPlaylistQuery.compile(rule(Field.ARTIST, Operator.LESS_THAN, "a")))
+        assertNull(SmartPlaylistQuery.compile(rule(Field.FOLDER, Operator.CONTAINS, "/music")))
+        assertNull(SmartPlaylistQuery.compile(rule(Field.DATE_ADDED, Operator.IS, "7")))
+        assertNull(SmartPlaylistQuery.compile(rule(Field.HAS_LYRICS, Operator.IS, "yes")))
+        assertNull(SmartPlaylistQuery.compile(rule(Field.PLAY_COUNT, Operator.GREATER_THAN, "many")))
+        assertNull(SmartPlaylistQuery.compile(SmartRule(operator = Operator.IS)))
+        // 子规则不合法时整个规则不合法
+        assertNull(SmartPlaylistQuery.compile(SmartRule.all(rule(Field.ALBUM, Operator.WITHIN_DAYS, "1"))))
+        assertNotNull(SmartPlaylistQuery.compile(rule(Field.DATE_ADDED, Operator.WITHIN_DAYS, " 30 ")))
+    }
+
+    @Test
+    fun `user input is never inlined into the SQL`() {
+        val query = SmartPlaylistQuery.compile(rule(Field.ARTIST, Operator.IS, "x' OR 1=1 --"))!!
+
+        assertTrue(query.sql.indexOf("OR 1=1") < 0)
+        database.insertSong(1)
+        database.commit()
+        assertEquals(emptyList<Long>(), database.queryIds(query))
+    }
+}
@@ -0,0 +1,108 @@
+package com.miaudioplay.data
+
+import androidx.sqlite.db.SupportSQLiteProgram
+import androidx.sqlite.db.SupportSQLiteQuery
+import java.io.Closeable
+import java.sql.Connection
+import java.sql.DriverManager
+import java.sql.PreparedStatement
+
+/**
+ * 内存中的 SQLite（sqlite-jdbc），表结构与 songs / song_stats 相同，
+ * 用于在 JVM 上执行 SmartPlaylistQuery 编译出的查询
+ */
+class SongsTestDatabase : Closeable {
+    private val connection: Connection = DriverManager.getConnection("jdbc:sqlite::memory:")
+
+    init {
+        connection.createStatement().use { statement ->
+            statement.executeUpdate(
+                "CREATE TABLE songs (id INTEGER NOT NULL PRIMARY KEY, title TEXT NOT NULL, " +
+                    "artist TEXT NOT NULL, album TEXT NOT NULL, albumId INTEGER NOT NULL, " +
+                    "duration INTEGER NOT NULL, path TEXT NOT NULL, dateModified INTEGER NOT NULL, " +
+                    "dateAdded INTEGER NOT NULL DEFAULT 0)"
+            )
+            statement.executeUpdate(
+                "CREATE TABLE song_stats (songId INTEGER NOT NULL PRIMARY KEY, playCount INTEGER NOT NULL, " +
+                    "lastPlayedAt INTEGER NOT NULL, hasLyrics INTEGER)"
+            )
+        }
+    }
+
+    fun insertSong(
+        id: Long,
+        title: String = "Song $id",
+        artist: String = "Artist",
+        album: String = "Album",
+        duration: Long = 180_000,
+        path: String = "/music/$id.mp3",
+        dateAdded: Long = 0
+    ) {
+        songInsert.apply {
+            setLong(1, id)
+            setString(2, title)
+            setString(3, artist)
+            setString(4, album)
+            setLong(5, 0)
+            setLong(6, duration)
+            setString(7, path)
+            setLong(8, dateAdded)
+            setLong(9, dateAdded)
+            addBatch()
+        }
+    }
+
+    fun insertStats(songId: Long, playCount: Int, hasLyrics: Boolean?) {
+        statsInsert.apply {
+            setLong(1, songId)
+            setInt(2, playCount)
+            setLong(3, 0)
+            if (hasLyrics == null) setNull(4, java.sql.Types.INTEGER) else setInt(4, if (hasLyrics) 1 else 0)
+            addBatch()
+        }
+    }
+
+    /**
+     * 写入之前 insertSong / insertStats 缓存的行
+     */
+    fun commit() {
+        connection.autoCommit = false
+        songInsert.executeBatch()
+        statsInsert.executeBatch()
+        connection.commit()
+        connection.autoCommit = true
+    }
+
+    private val songInsert: PreparedStatement by lazy {
+        connection.prepareStatement("INSERT INTO songs VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")
+    }
+
+    private val statsInsert: PreparedStatement by lazy {
+        connection.prepareStatement("INSERT INTO song_stats VALUES (?, ?, ?, ?)")
+    }
+
+    fun queryIds(query: SupportSQLiteQuery): List<Long> {
+        connection.prepareStatement(query.sql).use { statement ->
+            query.bindTo(JdbcProgram(statement))
+            statement.executeQuery().use { result ->
+                val ids = ArrayList<Long>()
+                while (result.next()) ids.add(result.getLong(1))
+                return ids
+            }
+        }
+    }
+
+    override fun close() {
+        connection.close()
+    }
+
+    private class JdbcProgram(private val statement: PreparedStatement) : SupportSQLiteProgram {
+        override fun bindNull(index: Int) = statement.setNull(index, java.sql.Types.NULL)
+        override fun bindLong(index: Int, value: Long) = statement.setLong(index, value)
+        override fun bindDouble(index: Int, value: Double) = statement.setDouble(index, value)
+        override fun bindString(index: Int, value: String) = statement.setString(index, value)
+        override fun bindBlob(index: Int, value: ByteArray) = statement.setBytes(index, value)
+        override fun clearBindings() = statement.clearParameters()
+        override fun close() = Unit
+    }
+}
@@ -0,0 +1,162 @@
+package com.miaudioplay.viewmodel
+
+import com.miaudioplay.data.LrcParser
+import com.miaudioplay.data.LyricTimeline
+import com.miaudioplay.data.models.LrcLines
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * 用虚拟时间驱动 lyricIndexFlow，统计每分钟读取播放位置（即被唤醒）的次数
+ */
+@OptIn(ExperimentalCoroutinesApi::class)
+class LyricIndexFlowTest {
+
+    /**
+     * 播放位置随虚拟时间推进的假播放器
+     */
+    private class FakePlayer(private val scope: TestScope) {
+        var playing = true
+        var speed = 1f
+        var reads = 0
+            private set
+
+        private var basePosition = 0L
+        private var baseTime = scope.testScheduler.currentTime
+
+        fun position(): Long {
+            reads++
+            return currentPosition()
+        }
+
+        fun seekTo(positionMs: Long) {
+            basePosition = positionMs
+            baseTime = scope.testScheduler.currentTime
+        }
+
+        fun setPlaybackSpeed(value: Float) {
+            basePosition = currentPosition()
+            baseTime = scope.testScheduler.currentTime
+            speed = value
+        }
+
+        private fun currentPosition(): Long {
+            if (!playing) return basePosition
+            return basePosition + ((scope.testScheduler.currentTime - baseTime) * speed).toLong()
+        }
+    }
+
+    /**
+     * 每 intervalMs 一行，共 count 行，第一行从 firstMs 开始
+     */
+    private fun lyrics(count: Int, intervalMs: Long, firstMs: Long = 0): LrcLines {
+        val content = buildString {
+            for (i in 0 until count) {
+                append('[').append(LrcParser.formatTimestamp(firstMs + i * intervalMs)).append("]line ").append(i).append('\n')
+            }
+        }
+        return LrcParser.parse(content)
+    }
+
+    private fun TestScope.collect(
+        lines: LrcLines,
+        player: FakePlayer,
+        events: Flow<Unit> = flowOf(Unit)
+    ): MutableList<Int> {
+        val indices = mutableListOf<Int>()
+        backgroundScope.launch {
+            lyricIndexFlow(
+                lyrics = MutableStateFlow(lines),
+                events = events,
+                readPosition = player::position,
+                isPlaying = { player.playing },
+                playbackSpeed = { player.speed }
+            ).collect { indices.add(it) }
+        }
+        runCurrent()
+        return indices
+    }
+
+    @Test
+    fun `wakes up once per lyric line instead of polling`() = runTest {
+        // 每 4 秒一行，一分钟内 15 行；按原先 100ms 轮询需要 600 次
+        val player = FakePlayer(this)
+        val indices = collect(lyrics(count = 60, intervalMs = 4_000), player)
+
+        advanceTimeBy(60_000)
+        runCurrent()
+
+        assertTrue("reads = ${player.reads}", player.reads <= 15 + 1)
+        assertEquals((0..15).toList(), indices)
+    }
+
+    @Test
+    fun `scales wakeups with playback speed`() = runTest {
+        val player = FakePlayer(this)
+        player.speed = 2f
+        val indices = collect(lyrics(count = 60, intervalMs = 4_000), player)
+
+        advanceTimeBy(60_000)
+        runCurrent()
+
+        // 两倍速：一分钟实际播放 120 秒歌词，即 30 行
+        assertTrue("reads = ${player.reads}", player.reads <= 30 + 1)
+        assertEquals((0..30).toList(), indices)
+    }
+
+    @Test
+    fun `paused playback reads position once`() = runTest {
+        val player = FakePlayer(this)
+        player.playing = false
+        player.seekTo(10_000)
+        val indices = collect(lyrics(count = 60, intervalMs = 4_000), player)
+
+        advanceTimeBy(60_000)
+        runCurrent()
+
+        assertEquals(1, player.reads)
+        assertEquals(listOf(2), indices)
+    }
+
+    @Test
+    fun `stops after the last line`() = runTest {
+        val player = FakePlayer(this)
+        val indices = collect(lyrics(count = 3, intervalMs = 1_000, firstMs = 500), player)
+
+        advanceTimeBy(60_000)
+        runCurrent()
+
+        assertEquals(listOf(LyricTimeline.BEFORE_FIRST, 0, 1, 2), indices)
+        assertEquals(4, player.reads)
+    }
+
+    @Test
+    fun `resynchronizes on player events`() = runTest {
+        val player = FakePlayer(this)
+        val events = MutableSharedFlow<Unit>(replay = 1).apply { tryEmit(Unit) }
+        val indices = collect(lyrics(count = 60, intervalMs = 4_000), player, events)
+        advanceTimeBy(5_000)
+        runCurrent()
+
+        player.seekTo(40_000)
+        events.emit(Unit)
+        runCurrent()
+        // 向后跳转
+        player.seekTo(2_000)
+        events.emit(Unit)
+        runCurrent()
+
+        assertEquals(listOf(0, 1, 10, 0), indices)
+    }
+}
@@ -0,0 +1,151 @@
+package com.miaudioplay.viewmodel
+
+import com.miaudioplay.data.LibraryStore
+import com.miaudioplay.data.models.LibrarySong
+import com.miaudioplay.data.models.PlaylistSong
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.awaitCancellation
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.stateIn
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class SelectedPlaylistFlowTest {
+
+    // 歌单 n 包含 id 为 n*100+1 .. n*100+5 的歌曲
+    private fun songIdsOf(playlistId: Long) = (1..5).map { playlistId * 100 + it }
+
+    private val library = LibraryStore.from(
+        (1L..5L).flatMap(::songIdsOf).map { id ->
+            LibrarySong(
+                id = id,
+                title = "Song $id",
+                artist = "Artist",
+                album = "Album",
+                albumId = 0,
+                duration = 1_000,
+                path = "/music/$id.mp3",
+                dateModified = 0
+            )
+        }
+    )
+
+    /**
+     * 模拟 Room 的 getSongsForPlaylist：记录同时活跃的观察者数量，查询有 loadDelayMs 的延迟
+     */
+    private class FakeRows(private val loadDelayMs: Long) {
+        var active = 0
+            private set
+        var maxActive = 0
+            private set
+        var started = 0
+            private set
+
+        fun observe(playlistId: Long, songIds: List<Long>): Flow<List<PlaylistSong>> = flow {
+            active++
+            started++
+            maxActive = maxOf(maxActive, active)
+            try {
+                delay(loadDelayMs)
+                emit(songIds.mapIndexed { i, id ->
+                    PlaylistSong(id = i + 1L, playlistId = playlistId, songId = id, songUri = "")
+                })
+                awaitCancellation()
+            } finally {
+                active--
+            }
+        }
+    }
+
+    // backgroundScope 中的任务不计入 advanceUntilIdle，按固定时间推进
+    private fun TestScope.settle() {
+        advanceTimeBy(1_000)
+        runCurrent()
+    }
+
+    private fun TestScope.playlistSongs(
+        selectedId: MutableStateFlow<Long?>,
+        rows: FakeRows
+    ): Pair<MutableList<Pair<Long?, List<Long>>>, StateFlow<List<Long>>> {
+        val selected = selectedPlaylistFlow(
+            selectedId = selectedId,
+            library = flowOf(library),
+            observeRules = { flowOf(null) },
+            observeRows = { id -> rows.observe(id, songIdsOf(id)) },
+            observeSmartIds = { flowOf(emptyList()) }
+        ).stateIn(backgroundScope, SharingStarted.Eagerly, PlaylistState.EMPTY)
+
+        // 每次发出时记录当时选中的歌单，用于检查旧歌单的结果是否漏出
+        val emissions = mutableListOf<Pair<Long?, List<Long>>>()
+        backgroundScope.launch {
+            selected.collect { state ->
+                emissions.add(selectedId.value to state.resolved.songs.map { it.id })
+            }
+        }
+        val songs = selected.map { state -> state.resolved.songs.map { it.id } }
+            .stateIn(backgroundScope, SharingStarted.Eagerly, emptyList())
+        return emissions to songs
+    }
+
+    @Test
+    fun `switching playlists keeps a single collector and never shows a stale playlist`() = runTest {
+        val selectedId = MutableStateFlow<Long?>(null)
+        val rows = FakeRows(loadDelayMs = 50)
+        val (emissions, songs) = playlistSongs(selectedId, rows)
+        runCurrent()
+
+        // 加载完成前快速切换
+        for (id in 1L..4L) {
+            selectedId.value = id
+            advanceTimeBy(20)
+            assertTrue("active = ${rows.active}", rows.active <= 1)
+        }
+        // 加载完成后再切换
+        selectedId.value = 5
+        settle()
+        selectedId.value = 2
+        settle()
+
+        assertEquals(1, rows.maxActive)
+        assertEquals(1, rows.active)
+        assertEquals(6, rows.started)
+        assertEquals(songIdsOf(2), songs.value)
+        for ((selected, ids) in emissions) {
+            if (ids.isEmpty()) continue
+            assertEquals("stale playlist emitted while $selected was selected", songIdsOf(selected!!), ids)
+        }
+        // 加载完成前就被切走的歌单 1..4 没有任何结果发出
+        val shown = emissions.filter { it.second.isNotEmpty() }.map { it.second.first() / 100 }
+        assertEquals(listOf(5L, 2L), shown)
+    }
+
+    @Test
+    fun `closing the playlist cancels its collector`() = runTest {
+        val selectedId = MutableStateFlow<Long?>(3)
+        val rows = FakeRows(loadDelayMs = 10)
+        val (_, songs) = playlistSongs(selectedId, rows)
+        settle()
+        assertEquals(songIdsOf(3), songs.value)
+        assertEquals(1, rows.active)
+
+        selectedId.value = null
+        settle()
+
+        assertEquals(0, rows.active)
+        assertEquals(emptyList<Long>(), songs.value)
+    }
+}